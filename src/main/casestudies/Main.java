@@ -1,11 +1,14 @@
 package main; //casestudies;
 // (não aceitou, e não achei que valia a pena parar para resolver isso agora :P)
+import graphs.ConnectedComponents;
 import graphs.Graph;
+import graphs.TraversalResult;
+import graphs.TraversalWorkspace;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -82,10 +85,11 @@ public class Main {
 
         String csvHeader = "grafo,memMatriz,tBFSMatriz,tDFSMatriz," +
                 "memLista,tBFSLista,tDFSLista," +
+                "memCSR,tBFSCSR,tDFSCSR," +
                 "pai10BFS,pai20BFS,pai30BFS," +
                 "pai10DFS,pai20DFS,pai30DFS," +
                 "dist10_20,dist10_30,dist20_30," +
-                "nComponentes,compMax,compMin,diam";
+                "nComponentes,compMax,compMin,diam,nBFSDiam";
 
         // melhor separar em várias tabelas na hora de fazer o relatório, mas
         // talvez seja mais simples/conveniente imprimir pra um arquivo só aqui
@@ -101,30 +105,28 @@ public class Main {
         for (int i=1; i <= nCases; i ++) {
             String csvRow = i + ",";  // grafo
 
-            for (int repr=0; repr <= 1; repr++) {
-                if (i > 3 && repr == 0) {
-                    // pulando os casos que estouram a heap (por enquanto?)
-                    csvRow += "-2,-2,-2";
-                    // sinalizando que não foram feitas as medidas de tempo
-                    // e uso de memória específicas para a representação por
-                    // matriz nesses casos
-                    // (usando -2 para evitar confundir com o -1 retornado
-                    // por alguns métodos da classe Graph)
-                    continue;
-                }
+            for (int repr=Graph.MATRIX; repr <= Graph.CSR; repr++) {
                 try {
                     String in = inputDir + "grafo_" + i + ".txt";
+                    String snapshot = inputDir + "grafo_" + i + ".bin";
+
+                    if (new File(snapshot).exists()) {
+                        in = snapshot;  // salvo numa execução anterior
+                    }
 
                     System.out.print("\nLendo arquivo " + in + " (repr.: ");
 
-                    if (repr == 0) {
+                    if (repr == Graph.MATRIX) {
                         System.out.print("matriz");
-                    } else {
+                    } else if (repr == Graph.LIST) {
                         System.out.print("lista");
+                    } else {
+                        System.out.print("CSR");
                     }
 
                     System.out.print(")\n");
 
+                    graph = null;  // p/ o grafo anterior não contar na memória
                     graph = new Graph(in, repr);
                     System.gc();
                     // tentando forçar o coletor de lixo a apagar o anterior da
@@ -133,6 +135,18 @@ public class Main {
                     // liberando o espaço de imediato)
 
                 } catch (InstantiationException exc) {
+                    if (repr == Graph.MATRIX) {
+                        // A matriz (mesmo compactada em bits) não coube na
+                        // heap; pulamos só as medidas dela
+                        csvRow += "-2,-2,-2,";
+                        // sinalizando que não foram feitas as medidas de tempo
+                        // e uso de memória específicas para a representação por
+                        // matriz nesse caso
+                        // (usando -2 para evitar confundir com o -1 retornado
+                        // por alguns métodos da classe Graph)
+                        continue;
+                    }
+
                     System.err.println("Falha na leitura do arquivo do estudo de " +
                             "caso " + i +"; abortando execucao");
                     graph = null;  // p/ evitar erro de "pode não estar inicializado"
@@ -143,6 +157,25 @@ public class Main {
 
                 printMemUsage(runtime);
 
+                String snapshot = inputDir + "grafo_" + i + ".bin";
+
+                if (repr == Graph.CSR && !new File(snapshot).exists()) {
+                    // Nas próximas execuções, a carga não precisa mais
+                    // interpretar o texto
+                    try {
+                        graph.saveSnapshot(snapshot);
+                    } catch (IOException exc) {
+                        System.err.println("Falha na escrita do snapshot " +
+                                snapshot + "; seguindo sem ele");
+                    }
+                }
+
+                HashMap<String, Double> loadStats = graph.getLoadStats();
+                System.out.println("Leitura: " +
+                        loadStats.get("bytesPerSec") / (1024 * 1024) + " MB/s, " +
+                        loadStats.get("edgesPerSec") + " arestas/s (montagem: " +
+                        loadStats.get("buildSeconds") + " s)");
+
                 currentMem = usedMemory(runtime) / 1024;
 
                 csvRow += currentMem + ",";
@@ -154,20 +187,26 @@ public class Main {
                     // esperando o algoritmo rodar...
                 }
 
+                TraversalWorkspace workspace =
+                        new TraversalWorkspace(graph.getNNodes());
+                TraversalResult result = workspace.getResult();
+                // reaproveitados em todas as buscas, para medir só o tempo
+                // delas (e não o de alocar arrays ou um HashMap por busca)
+
                 for (int meth=0; meth <= 1; meth++) {  // Jesse, let's cook
                     long avg = 0;
                     long start, end, elapsed;
 
                     for (int r=0; r < nRuns; r++) {
-                        int origin = r % graph.getNNodes();
-                        // por simplicidade
+                        int origin = 1 + r % graph.getNNodes();
+                        // por simplicidade (os nós começam do 1)
 
                         start = System.nanoTime();
 
                         if (meth == 0) {
-                            graph.BFS(origin);
+                            graph.BFS(origin, -1, workspace);
                         } else {
-                            graph.DFS(origin);
+                            graph.DFS(origin, -1, workspace);
                         }
 
                         end = System.nanoTime();
@@ -181,45 +220,59 @@ public class Main {
 
                 // As medidas seguintes não dependem da forma de
                 // representação, então só precisam ser executadas uma vez
+                // (usamos a CSR, que é a última e a mais rápida; os pais na
+                // BFS seguem a ordem crescente dos vizinhos)
 
-                if (repr == 1) {
+                if (repr == Graph.CSR) {
                     // Pais de 10, 20 e 30 nas árvores:
                     for (int s=0; s <= 1; s++) {
                         for (int n=1; n <= 3; n++) {
-                            HashMap<Integer, Integer[]> tree;
-
                             if (s == 0) {
-                                tree = graph.BFS(n);
+                                graph.BFS(n, -1, workspace);
                             } else {
-                                tree = graph.DFS(n);
+                                graph.DFS(n, -1, workspace);
                             }
 
-                            try {
-                                csvRow += tree.get(10 * n)[0] + ",";
-                            } catch (NullPointerException exc) {
-                                // chave não existe; não está na componente
-                                // conexa da origem
+                            if (result.isReached(10 * n)) {
+                                csvRow += result.getParent(10 * n) + ",";
+                            } else {
+                                // não está na componente conexa da origem
                                 csvRow += "N/A,";
                             }
                         }
                     }
 
-                    // Distâncias entre nós:
-                    csvRow += graph.calcDistance(10, 20) + ",";
-                    csvRow += graph.calcDistance(10, 30) + ",";
-                    csvRow += graph.calcDistance(20, 30) + ",";
+                    // Distâncias entre nós (10-20, 10-30 e 20-30):
+                    int[] distances = graph.calcDistances(new int[]{10, 10, 20},
+                            new int[]{20, 30, 30});
+
+                    for (int distance : distances) {
+                        csvRow += distance + ",";
+                    }
 
                     // Número de componentes conexas:
-                    ArrayList<ArrayList<Integer>> components =
-                            graph.findConnectedComponents();
+                    ConnectedComponents components = graph.findComponents();
+                    int nComponents = components.getNComponents();
 
-                    csvRow += components.size() + ",";  //nComponentes
-                    csvRow += components.get(0).size() + ",";  //compMax
-                    csvRow += components.get(components.size()-1).size() +
+                    csvRow += nComponents + ",";  //nComponentes
+                    csvRow += components.getSize(0) + ",";  //compMax
+                    csvRow += components.getSize(nComponents - 1) +
                             ",";  //compMin
-                    csvRow += graph.calcDiameter(10000);  // diam
 
-                }  // if (repr == 1); os que só precisam rodar uma vez
+                    // Diâmetro exato (iFUB) e quantas BFS ele precisou:
+                    int diam = 0;
+                    int nBFSDiam = 0;
+
+                    for (HashMap<String, Integer> component :
+                            graph.calcExactDiameters()) {
+                        diam = Math.max(diam, component.get("diameter"));
+                        nBFSDiam += component.get("bfsCalls");
+                    }
+
+                    csvRow += diam + ",";  // diam
+                    csvRow += nBFSDiam;  // nBFSDiam
+
+                }  // if (repr == Graph.CSR); os que só precisam rodar uma vez
 
             }
 
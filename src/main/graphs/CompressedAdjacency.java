@@ -0,0 +1,237 @@
+package graphs;
+
+/**
+ * Lista de adjacências comprimida: os vizinhos de cada nó, em ordem
+ * crescente, são guardados como diferenças codificadas em varints (7 bits
+ * por byte, com o bit mais alto indicando que o número continua), todos
+ * concatenados num único byte[], com um índice de onde começam os bytes de
+ * cada nó.
+ *
+ * O primeiro vizinho de v é guardado como a diferença para o próprio v (em
+ * zigzag, pois pode ser negativa), e os seguintes como a diferença para o
+ * anterior. Em grafos com localidade nos índices, a maioria das diferenças
+ * cabe num único byte, contra 4 de um int. É a mesma codificação dos
+ * snapshots comprimidos (ver GraphSnapshot).
+ */
+class CompressedAdjacency {
+    private final int nNodes;
+
+    /**
+     * Os bytes dos vizinhos de v ocupam data[offsets[v]] a
+     * data[offsets[v + 1] - 1].
+     */
+    private final int[] offsets;
+
+    private final byte[] data;
+
+    /**
+     * Maior grau, para dimensionar os buffers de decodificação.
+     */
+    private final int maxDegree;
+
+    /**
+     * Comprime uma CSR.
+     * @param nNodes Número de nós.
+     * @param csrOffsets Offsets da CSR.
+     * @param csrTargets Vizinhos da CSR (em ordem crescente para cada nó).
+     * @throws IllegalStateException Se os bytes não couberem num array.
+     */
+    CompressedAdjacency(int nNodes, int[] csrOffsets, int[] csrTargets) {
+        this.nNodes = nNodes;
+        this.offsets = new int[nNodes + 2];
+
+        // 1a passada: tamanho de cada nó, para alocar data de uma vez
+        long total = 0;
+        int maxDeg = 0;
+
+        for (int v=1; v <= nNodes; v++) {
+            int previous = v;
+
+            offsets[v] = (int) Math.min(total, Integer.MAX_VALUE);
+
+            for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                total += varintSize(gap(v, i == csrOffsets[v], previous, csrTargets[i]));
+                previous = csrTargets[i];
+            }
+
+            maxDeg = Math.max(maxDeg, csrOffsets[v + 1] - csrOffsets[v]);
+        }
+
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Lista comprimida grande demais " +
+                    "para um unico array (" + total + " bytes)");
+        }
+
+        offsets[nNodes + 1] = (int) total;
+        this.maxDegree = maxDeg;
+        this.data = new byte[(int) total];
+
+        // 2a passada: codificação
+        int p = 0;
+
+        for (int v=1; v <= nNodes; v++) {
+            int previous = v;
+
+            for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                int value = gap(v, i == csrOffsets[v], previous, csrTargets[i]);
+
+                while ((value & ~0x7F) != 0) {
+                    data[p++] = (byte) ((value & 0x7F) | 0x80);
+                    value >>>= 7;
+                }
+
+                data[p++] = (byte) value;
+                previous = csrTargets[i];
+            }
+        }
+    }
+
+    /**
+     * @return Valor a ser codificado para o vizinho w (o primeiro de v em
+     *          zigzag em relação a v; os outros, a diferença para o anterior).
+     */
+    private static int gap(int v, boolean first, int previous, int w) {
+        if (first) {
+            int delta = w - v;
+            return (delta << 1) ^ (delta >> 31);
+        }
+
+        return w - previous;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+    /**
+     * Decodifica todos os vizinhos de um nó.
+     * @param v Índice do nó.
+     * @param buffer Onde escrever os vizinhos (com pelo menos getMaxDegree()
+     *               posições).
+     * @return Número de vizinhos (o grau de v).
+     */
+    int decode(int v, int[] buffer) {
+        byte[] bytes = this.data;
+        int p = offsets[v];
+        int end = offsets[v + 1];
+
+        if (p == end) {
+            return 0;
+        }
+
+        // Primeiro vizinho, em zigzag em relação a v
+        int b = bytes[p++];
+        int value = b & 0x7F;
+
+        for (int shift=7; b < 0; shift += 7) {
+            b = bytes[p++];
+            value |= (b & 0x7F) << shift;
+        }
+
+        int w = v + ((value >>> 1) ^ -(value & 1));
+        buffer[0] = w;
+        int count = 1;
+
+        while (p < end) {
+            b = bytes[p++];
+
+            if (b >= 0) {  // caso comum: diferença de um byte só
+                w += b;
+            } else {
+                value = b & 0x7F;
+
+                for (int shift=7; b < 0; shift += 7) {
+                    b = bytes[p++];
+                    value |= (b & 0x7F) << shift;
+                }
+
+                w += value;
+            }
+
+            buffer[count++] = w;
+        }
+
+        return count;
+    }
+
+    /**
+     * Decodifica um único vizinho, para percorrer a lista aos poucos (como
+     * na DFS).
+     * @param v Índice do nó.
+     * @param p Posição em data do vizinho (de start(v) a end(v) - 1).
+     * @param previous Vizinho anterior (ignorado se p == start(v)).
+     * @return Vizinho e posição do próximo, juntos num long (vizinho nos 32
+     *          bits mais altos).
+     */
+    long next(int v, int p, int previous) {
+        boolean first = p == offsets[v];
+        int b = data[p++];
+
+        if (b >= 0 && !first) {  // caso comum: diferença de um byte só
+            return ((long) (previous + b) << 32) | p;
+        }
+
+        int value = b & 0x7F;
+
+        for (int shift=7; b < 0; shift += 7) {
+            b = data[p++];
+            value |= (b & 0x7F) << shift;
+        }
+
+        int w = first ? v + ((value >>> 1) ^ -(value & 1)) : previous + value;
+
+        return ((long) w << 32) | p;
+    }
+
+    /**
+     * @return Posição em data dos bytes de v.
+     */
+    int start(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * @return Posição em data logo depois dos bytes de v.
+     */
+    int end(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * @return Grau de v, contado pelos bytes que terminam um varint (sem
+     *          decodificar os valores).
+     */
+    int degree(int v) {
+        int count = 0;
+
+        for (int p=offsets[v]; p < offsets[v + 1]; p++) {
+            if (data[p] >= 0) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    int getNNodes() {
+        return nNodes;
+    }
+
+    int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * @return Tamanho da lista comprimida, em bytes (sem contar o índice).
+     */
+    long getDataBytes() {
+        return data.length;
+    }
+}
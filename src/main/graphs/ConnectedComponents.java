@@ -0,0 +1,182 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Componentes conexas de um Graph (Graph.findComponents()), guardadas em
+ * arrays de inteiros, sem nenhum objeto por nó: cada nó tem o número da sua
+ * componente, e os nós de cada componente ficam num trecho contíguo de um
+ * único array.
+ *
+ * As componentes são numeradas da maior para a menor (empates pela ordem do
+ * menor nó), e os nós de cada uma estão em ordem crescente. Todas as
+ * consultas são O(1).
+ */
+public class ConnectedComponents {
+    /**
+     * Componente de cada nó (a posição 0 não é usada).
+     */
+    private final int[] componentId;
+
+    /**
+     * Nós agrupados por componente.
+     */
+    private final int[] members;
+
+    /**
+     * Os nós da componente c ocupam members[starts[c]] a
+     * members[starts[c + 1] - 1].
+     */
+    private final int[] starts;
+
+    /**
+     * Monta as componentes a partir de uma floresta de conjuntos disjuntos
+     * em que já foram unidas as pontas de todas as arestas, em O(n).
+     * @param sets Conjuntos dos nós de 1 a nNodes.
+     * @param nNodes Número de nós.
+     */
+    ConnectedComponents(UnionFind sets, int nNodes) {
+        this(sets, nNodes, null);
+    }
+
+    /**
+     * Versão do construtor para um grafo renumerado (ver Graph.relabel()):
+     * os conjuntos estão nos índices internos, e as componentes são montadas
+     * nos índices originais.
+     * @param sets Conjuntos dos nós, nos índices internos.
+     * @param nNodes Número de nós.
+     * @param internalId Índice interno de cada nó original (ou null, se o
+     *                   grafo não foi renumerado).
+     */
+    ConnectedComponents(UnionFind sets, int nNodes, int[] internalId) {
+        this.componentId = new int[nNodes + 1];
+
+        // Rótulo provisório de cada raiz, na ordem do menor nó da componente
+        int[] label = new int[nNodes + 1];
+        Arrays.fill(label, -1);
+
+        int[] provisional = new int[nNodes + 1];
+        int[] sizes = new int[nNodes];
+        int nComponents = 0;
+
+        for (int v=1; v <= nNodes; v++) {
+            int root = sets.find(internalId == null ? v : internalId[v]);
+
+            if (label[root] == -1) {
+                label[root] = nComponents++;
+            }
+
+            provisional[v] = label[root];
+            sizes[provisional[v]]++;
+        }
+
+        // Renumeração por tamanho decrescente com counting sort (estável,
+        // então empates mantêm a ordem do menor nó)
+        int[] bySize = new int[nNodes + 2];
+
+        for (int c=0; c < nComponents; c++) {
+            bySize[nNodes - sizes[c]]++;
+        }
+
+        for (int s=0, acc=0; s <= nNodes; s++) {
+            int count = bySize[s];
+            bySize[s] = acc;
+            acc += count;
+        }
+
+        int[] finalId = new int[nComponents];
+        this.starts = new int[nComponents + 1];
+
+        for (int c=0; c < nComponents; c++) {
+            finalId[c] = bySize[nNodes - sizes[c]]++;
+        }
+
+        for (int c=0; c < nComponents; c++) {
+            starts[finalId[c] + 1] = sizes[c];
+        }
+
+        for (int c=0; c < nComponents; c++) {
+            starts[c + 1] += starts[c];
+        }
+
+        // Nós em ordem crescente dentro de cada componente
+        this.members = new int[nNodes];
+        int[] cursor = Arrays.copyOf(starts, nComponents);
+
+        for (int v=1; v <= nNodes; v++) {
+            int c = finalId[provisional[v]];
+
+            componentId[v] = c;
+            members[cursor[c]++] = v;
+        }
+    }
+
+    /**
+     * @return Número de componentes conexas.
+     */
+    public int getNComponents() {
+        return starts.length - 1;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Número da componente do nó (0 é a maior).
+     */
+    public int getComponentId(int node) {
+        return componentId[node];
+    }
+
+    /**
+     * @return Cópia do array de componentes: a posição v tem o número da
+     *          componente do nó v (a posição 0 não é usada).
+     */
+    public int[] getComponentIds() {
+        return Arrays.copyOf(componentId, componentId.length);
+    }
+
+    /**
+     * @param c Número da componente.
+     * @return Número de nós da componente.
+     */
+    public int getSize(int c) {
+        return starts[c + 1] - starts[c];
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Número de nós da componente que contém o nó.
+     */
+    public int getComponentSize(int node) {
+        return getSize(componentId[node]);
+    }
+
+    /**
+     * @return Se os dois nós estão na mesma componente (ou seja, se existe
+     *          caminho entre eles).
+     */
+    public boolean sameComponent(int node1, int node2) {
+        return componentId[node1] == componentId[node2];
+    }
+
+    /**
+     * @param c Número da componente.
+     * @param i Posição, de 0 a getSize(c) - 1.
+     * @return i-ésimo menor nó da componente.
+     */
+    public int getNode(int c, int i) {
+        if (i < 0 || i >= getSize(c)) {
+            throw new IndexOutOfBoundsException("Posicao " + i + " fora da " +
+                    "componente " + c + " (" + getSize(c) + " nos)");
+        }
+
+        return members[starts[c] + i];
+    }
+
+    /**
+     * @param c Número da componente.
+     * @return Nós da componente, em ordem crescente.
+     */
+    public int[] getMembers(int c) {
+        return Arrays.copyOfRange(members, starts[c], starts[c + 1]);
+    }
+}
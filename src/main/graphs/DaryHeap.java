@@ -0,0 +1,134 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Heap indexado de aridade 4 para o Dijkstra com pesos reais: guarda só os
+ * índices dos nós (as chaves são lidas do array de distâncias do
+ * ShortestPaths) e a posição de cada nó no heap, para que a diminuição de
+ * uma chave seja feita no lugar, sem entradas repetidas e sem nenhum
+ * objeto por elemento. Com 4 filhos por nó, a árvore tem metade da altura
+ * do heap binário, e os filhos de um nó ficam na mesma linha de cache.
+ */
+class DaryHeap {
+    private static final int ARITY = 4;
+
+    /**
+     * Nós no heap, com heap[0] o de menor chave.
+     */
+    private final int[] heap;
+
+    /**
+     * Posição de cada nó em heap, ou -1 se ele não está no heap.
+     */
+    private final int[] position;
+
+    private int size;
+
+    /**
+     * @param nNodes Maior índice de nó.
+     */
+    DaryHeap(int nNodes) {
+        this.heap = new int[nNodes];
+        this.position = new int[nNodes + 1];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Esvazia o heap (em tempo proporcional ao número de elementos).
+     */
+    void clear() {
+        for (int i=0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Insere um nó, ou o reposiciona se ele já está no heap e sua chave
+     * diminuiu.
+     * @param node Nó.
+     * @param key Chaves de todos os nós (a de node já atualizada).
+     */
+    void update(int node, double[] key) {
+        int i = position[node];
+
+        if (i < 0) {
+            i = size++;
+        }
+
+        // Sobe, puxando os pais maiores para baixo
+        double k = key[node];
+
+        while (i > 0) {
+            int p = (i - 1) / ARITY;
+
+            if (key[heap[p]] <= k) {
+                break;
+            }
+
+            heap[i] = heap[p];
+            position[heap[i]] = i;
+            i = p;
+        }
+
+        heap[i] = node;
+        position[node] = i;
+    }
+
+    /**
+     * Retira o nó de menor chave.
+     * @param key Chaves de todos os nós.
+     * @return O nó retirado.
+     */
+    int pop(double[] key) {
+        int top = heap[0];
+        position[top] = -1;
+
+        int node = heap[--size];
+
+        if (size == 0) {
+            return top;
+        }
+
+        // Desce o último elemento a partir da raiz, puxando o menor filho
+        // para cima
+        double k = key[node];
+        int i = 0;
+
+        while (true) {
+            int first = ARITY * i + 1;
+
+            if (first >= size) {
+                break;
+            }
+
+            int best = first;
+            int end = Math.min(first + ARITY, size);
+
+            for (int c = first + 1; c < end; c++) {
+                if (key[heap[c]] < key[heap[best]]) {
+                    best = c;
+                }
+            }
+
+            if (key[heap[best]] >= k) {
+                break;
+            }
+
+            heap[i] = heap[best];
+            position[heap[i]] = i;
+            i = best;
+        }
+
+        heap[i] = node;
+        position[node] = i;
+
+        return top;
+    }
+}
@@ -0,0 +1,435 @@
+package graphs;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Oráculo de distâncias por marcos (landmarks), montado por
+ * Graph.buildDistanceOracle(): guarda a distância de cada nó a k nós
+ * escolhidos (os marcos), calculadas com uma BFS a partir de cada um, e
+ * responde consultas de distância com a desigualdade triangular. Para
+ * quaisquer nós u e v e qualquer marco l,
+ *
+ *     |d(l, u) - d(l, v)| <= d(u, v) <= d(l, u) + d(l, v),
+ *
+ * então lowerBound() e upperBound() dão limites para a distância em O(k),
+ * sem percorrer o grafo. Quando os limites coincidem (por exemplo, se um
+ * marco está num caminho mais curto entre u e v), essa é a distância
+ * exata; senão, distance() faz a BFS bidirecional de Graph.calcDistance(),
+ * mas parando assim que os níveis explorados alcançam o limite superior,
+ * o que costuma poupar a expansão do último nível (a mais cara).
+ *
+ * (Podar também os nós cujo limite inferior já impede um caminho mais
+ * curto, como em buscas guiadas por marcos, não compensa aqui: em grafos
+ * de diâmetro pequeno os limites inferiores são fracos, e ler as k
+ * distâncias de cada nó descoberto deixou as consultas de 2 a 4 vezes mais
+ * lentas.)
+ *
+ * As k distâncias de cada nó ficam juntas num array de char (2 bytes por
+ * distância), de forma que uma consulta lê uma única faixa contígua por nó.
+ * Distâncias a partir de SATURATED não são guardadas (o marco é ignorado
+ * para esse nó), o que só acontece em grafos com caminhos mais curtos de
+ * dezenas de milhares de arestas.
+ *
+ * O índice pode ser salvo (save()) e reaberto para o mesmo grafo
+ * (Graph.loadDistanceOracle()), inclusive depois de uma renumeração
+ * diferente dos nós.
+ */
+public class DistanceOracle {
+    /**
+     * Marcos escolhidos entre os nós de maior grau.
+     */
+    public static final int BY_DEGREE = 0;
+
+    /**
+     * Marcos sorteados (com semente fixa).
+     */
+    public static final int RANDOM = 1;
+
+    /**
+     * Marcos escolhidos um a um, cada um o nó mais distante dos anteriores
+     * (o primeiro é o de maior grau). Nós de componentes ainda sem marco
+     * contam como infinitamente distantes, então cada componente recebe um
+     * marco antes de alguma receber o segundo.
+     */
+    public static final int FARTHEST = 2;
+
+    /**
+     * Distância guardada para os nós que um marco não alcança.
+     */
+    static final char UNREACHABLE = 0xFFFF;
+
+    /**
+     * Distâncias a partir daqui não são guardadas (ver a descrição da
+     * classe).
+     */
+    static final char SATURATED = 0xFFFE;
+
+    static final long RANDOM_SEED = 0x5EED;
+
+    /**
+     * Primeiros bytes de um índice salvo.
+     */
+    private static final byte[] MAGIC = {'G', 'R', 'A', 'F', 'O', 'L', 'M', 'K'};
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 24;
+
+    private static final int BUFFER_SIZE = 1 << 20;  // 1 MB
+
+    private final Graph graph;
+
+    private final int nNodes;
+
+    /**
+     * Marcos, nos índices internos do grafo.
+     */
+    private final int[] landmarks;
+
+    /**
+     * distances[v * k + l] é a distância do nó (interno) v ao l-ésimo marco,
+     * UNREACHABLE se não houver caminho ou SATURATED se for grande demais.
+     */
+    private final char[] distances;
+
+    private long buildNanos;
+
+    /**
+     * Cria um oráculo vazio (todas as distâncias desconhecidas), a ser
+     * preenchido com setLandmark().
+     * @param graph Grafo.
+     * @param nLandmarks Número de marcos.
+     */
+    DistanceOracle(Graph graph, int nLandmarks) {
+        this.graph = graph;
+        this.nNodes = graph.getNNodes();
+        this.landmarks = new int[nLandmarks];
+        this.distances = new char[(nNodes + 1) * nLandmarks];
+        Arrays.fill(distances, UNREACHABLE);
+    }
+
+    /**
+     * Guarda as distâncias a partir de um marco. Marcos diferentes podem ser
+     * guardados ao mesmo tempo por threads diferentes.
+     * @param l Posição do marco, de 0 a k - 1.
+     * @param landmark Índice interno do marco.
+     * @param tree Resultado da BFS (em índices internos) a partir do marco.
+     */
+    void setLandmark(int l, int landmark, TraversalResult tree) {
+        int k = landmarks.length;
+        int[] order = tree.orderArray();
+        int[] level = tree.levelArray();
+
+        landmarks[l] = landmark;
+
+        for (int i=0; i < tree.getNReached(); i++) {
+            int v = order[i];
+            distances[v * k + l] = (char) Math.min(level[v], SATURATED);
+        }
+    }
+
+    void setBuildNanos(long buildNanos) {
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * @return Número de marcos.
+     */
+    public int getNLandmarks() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param l Posição do marco, de 0 a getNLandmarks() - 1.
+     * @return Índice do l-ésimo marco.
+     */
+    public int getLandmark(int l) {
+        return graph.toOriginal(landmarks[l]);
+    }
+
+    /**
+     * Fornece dados sobre o índice.
+     * @return HashMap em que o índice "landmarks" corresponde ao número de
+     * marcos, "buildSeconds" ao tempo de montagem (ou de leitura, se o
+     * índice foi lido de um arquivo), "bytes" à memória ocupada pelas
+     * distâncias e "bytesPerNode" a essa memória dividida pelo número de nós.
+     */
+    public HashMap<String, Double> getStats() {
+        HashMap<String, Double> data = new HashMap<String, Double>();
+
+        data.put("landmarks", (double) landmarks.length);
+        data.put("buildSeconds", buildNanos / 1e9);
+        data.put("bytes", 2.0 * distances.length);
+        data.put("bytesPerNode", 2.0 * distances.length / Math.max(1, nNodes));
+
+        return data;
+    }
+
+    /**
+     * Distância exata entre dois nós: pelos limites dos marcos, se eles
+     * coincidirem, ou por uma BFS bidirecional limitada por eles.
+     * @param node1 Índice de um nó.
+     * @param node2 Índice de um nó.
+     * @return Distância entre node1 e node2; -1 se esta for infinita.
+     */
+    public int distance(int node1, int node2) {
+        int u = this.internal(node1);
+        int v = this.internal(node2);
+        int upper = this.upperBoundInternal(u, v);
+
+        if (upper < 0 || upper == this.lowerBoundInternal(u, v)) {
+            return upper;
+        }
+
+        return graph.boundedDistance(u, v, upper);
+    }
+
+    /**
+     * Limite inferior da distância entre dois nós, só pelos marcos.
+     * @param node1 Índice de um nó.
+     * @param node2 Índice de um nó.
+     * @return Limite inferior; Integer.MAX_VALUE se algum marco mostra que os
+     *          nós estão em componentes diferentes.
+     */
+    public int lowerBound(int node1, int node2) {
+        return this.lowerBoundInternal(this.internal(node1), this.internal(node2));
+    }
+
+    /**
+     * Limite superior da distância entre dois nós, só pelos marcos (a
+     * estimativa usual de um oráculo por marcos: o menor caminho que passa
+     * por algum marco).
+     * @param node1 Índice de um nó.
+     * @param node2 Índice de um nó.
+     * @return Limite superior; -1 se algum marco mostra que os nós estão em
+     *          componentes diferentes, ou Integer.MAX_VALUE se nenhum marco
+     *          alcança os dois.
+     */
+    public int upperBound(int node1, int node2) {
+        return this.upperBoundInternal(this.internal(node1), this.internal(node2));
+    }
+
+    /**
+     * lowerBound() nos índices internos.
+     */
+    private int lowerBoundInternal(int u, int v) {
+        int k = landmarks.length;
+        int lower = u == v ? 0 : 1;
+
+        for (int l=0, i=u * k, j=v * k; l < k; l++, i++, j++) {
+            int du = distances[i];
+            int dv = distances[j];
+
+            if (du >= SATURATED || dv >= SATURATED) {
+                if ((du == UNREACHABLE) != (dv == UNREACHABLE)) {
+                    return Integer.MAX_VALUE;  // só um dos dois é alcançado
+                }
+
+                continue;
+            }
+
+            lower = Math.max(lower, Math.abs(du - dv));
+        }
+
+        return lower;
+    }
+
+    /**
+     * upperBound() nos índices internos.
+     */
+    private int upperBoundInternal(int u, int v) {
+        if (u == v) {
+            return 0;
+        }
+
+        int k = landmarks.length;
+        int upper = Integer.MAX_VALUE;
+
+        for (int l=0, i=u * k, j=v * k; l < k; l++, i++, j++) {
+            int du = distances[i];
+            int dv = distances[j];
+
+            if (du >= SATURATED || dv >= SATURATED) {
+                if ((du == UNREACHABLE) != (dv == UNREACHABLE)) {
+                    return -1;
+                }
+
+                continue;
+            }
+
+            upper = Math.min(upper, du + dv);
+        }
+
+        return upper;
+    }
+
+    /**
+     * Salva o índice num arquivo binário, para ser reaberto por
+     * Graph.loadDistanceOracle() sem refazer as BFS. Os nós são gravados
+     * pelos índices originais.
+     * @param outfile Caminho do arquivo.
+     */
+    public void save(String outfile) throws IOException {
+        int k = landmarks.length;
+
+        try (RandomAccessFile file = new RandomAccessFile(outfile, "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(nNodes);
+            buffer.putInt(graph.getNEdges());
+            buffer.putInt(k);
+
+            for (int landmark : landmarks) {
+                flushIfFull(channel, buffer, 4);
+                buffer.putInt(graph.toOriginal(landmark));
+            }
+
+            for (int v=1; v <= nNodes; v++) {
+                int row = graph.toInternal(v) * k;
+
+                for (int l=0; l < k; l++) {
+                    flushIfFull(channel, buffer, 2);
+                    buffer.putChar(distances[row + l]);
+                }
+            }
+
+            flushIfFull(channel, buffer, BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Lê um índice salvo com save().
+     * @param graph Grafo de que o índice foi montado (com qualquer
+     *              representação ou renumeração).
+     * @param filepath Caminho do arquivo.
+     * @throws IOException Se o arquivo não puder ser lido, estiver truncado
+     *          ou não corresponder ao grafo.
+     */
+    static DistanceOracle read(Graph graph, String filepath) throws IOException {
+        long start = System.nanoTime();
+
+        try (RandomAccessFile file = new RandomAccessFile(filepath, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);  // nada lido ainda
+            fill(channel, buffer, HEADER_SIZE);
+
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Arquivo nao e um indice de marcos");
+            }
+
+            int version = buffer.getInt();
+
+            if (version != VERSION) {
+                throw new IOException("Versao de indice nao suportada: " + version);
+            }
+
+            int nNodes = buffer.getInt();
+            int nEdges = buffer.getInt();
+            int k = buffer.getInt();
+
+            if (nNodes != graph.getNNodes() || nEdges != graph.getNEdges()) {
+                throw new IOException("Indice de marcos de outro grafo (" +
+                        nNodes + " nos e " + nEdges + " arestas)");
+            }
+
+            if (k < 1 || k > nNodes || channel.size() != HEADER_SIZE + 4L * k +
+                    2L * k * nNodes) {
+                throw new IOException("Indice de marcos truncado ou com " +
+                        "cabecalho invalido");
+            }
+
+            DistanceOracle oracle = new DistanceOracle(graph, k);
+
+            for (int l=0; l < k; l++) {
+                fill(channel, buffer, 4);
+                int landmark = buffer.getInt();
+
+                if (landmark < 1 || landmark > nNodes) {
+                    throw new IOException("Marco fora do grafo: " + landmark);
+                }
+
+                oracle.landmarks[l] = graph.toInternal(landmark);
+            }
+
+            for (int v=1; v <= nNodes; v++) {
+                int row = graph.toInternal(v) * k;
+
+                for (int l=0; l < k; l++) {
+                    fill(channel, buffer, 2);
+                    oracle.distances[row + l] = buffer.getChar();
+                }
+            }
+
+            oracle.buildNanos = System.nanoTime() - start;
+
+            return oracle;
+        }
+    }
+
+    /**
+     * @param node Índice original de um nó.
+     * @return Índice interno do nó.
+     */
+    private int internal(int node) {
+        if (node < 1 || node > nNodes) {
+            throw new IndexOutOfBoundsException("No " + node + " fora do " +
+                    "grafo (1 a " + nNodes + ")");
+        }
+
+        return graph.toInternal(node);
+    }
+
+    /**
+     * Escreve o conteúdo do buffer no arquivo se não couberem mais bytes
+     * nele.
+     */
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer,
+                                    int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Garante que o buffer tem pelo menos bytes bytes a serem lidos, lendo
+     * mais do arquivo se preciso.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, int bytes)
+            throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        buffer.compact();
+
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Indice de marcos truncado");
+            }
+        }
+
+        buffer.flip();
+    }
+}
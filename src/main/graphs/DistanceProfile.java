@@ -0,0 +1,90 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Resultado de uma BFS a partir de vários nós de origem
+ * (Graph.multiSourceBFS()): a excentricidade de cada origem e o histograma
+ * das distâncias entre as origens e os nós alcançados por elas.
+ */
+public class DistanceProfile {
+    /**
+     * Nós de origem, na ordem fornecida.
+     */
+    private final int[] sources;
+
+    /**
+     * Excentricidade de cada origem (maior distância até um nó da sua
+     * componente), na mesma ordem de sources.
+     */
+    private final int[] eccentricity;
+
+    /**
+     * histogram[d] é o número de pares (origem, nó) a distância d (a
+     * posição 0 conta as próprias origens).
+     */
+    private final long[] histogram;
+
+    DistanceProfile(int[] sources, int[] eccentricity, long[] histogram) {
+        this.sources = sources;
+        this.eccentricity = eccentricity;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @param originalSources As mesmas origens, nos índices originais de um
+     *                        grafo renumerado (ver Graph.relabel()).
+     * @return O mesmo perfil, com as origens trocadas.
+     */
+    DistanceProfile withSources(int[] originalSources) {
+        return new DistanceProfile(originalSources, eccentricity, histogram);
+    }
+
+    /**
+     * @return Número de origens.
+     */
+    public int getNSources() {
+        return sources.length;
+    }
+
+    /**
+     * @param i Posição da origem, de 0 a getNSources() - 1.
+     * @return Índice do nó da i-ésima origem.
+     */
+    public int getSource(int i) {
+        return sources[i];
+    }
+
+    /**
+     * @param i Posição da origem, de 0 a getNSources() - 1.
+     * @return Excentricidade da i-ésima origem dentro da sua componente
+     *          conexa (0 para um nó isolado).
+     */
+    public int getEccentricity(int i) {
+        return eccentricity[i];
+    }
+
+    /**
+     * @return Maior excentricidade entre as origens; se as origens forem
+     *          todos os nós, é o diâmetro exato do grafo (o maior dentre os
+     *          das suas componentes).
+     */
+    public int getMaxEccentricity() {
+        int max = 0;
+
+        for (int ecc : eccentricity) {
+            max = Math.max(max, ecc);
+        }
+
+        return max;
+    }
+
+    /**
+     * @return Cópia do histograma de distâncias: a posição d tem o número de
+     *          pares (origem, nó), com o nó na componente da origem, que
+     *          estão a distância d (a posição 0 tem o número de origens).
+     */
+    public long[] getHistogram() {
+        return Arrays.copyOf(histogram, histogram.length);
+    }
+}
@@ -0,0 +1,244 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Buffer de arestas lidas de um arquivo de entrada, guardadas como pares de
+ * inteiros num único array primitivo (sem nenhum objeto por aresta), e os
+ * pesos, se houver, num array de doubles paralelo. É o formato
+ * intermediário a partir do qual o construtor de Graph monta a
+ * representação escolhida pelo usuário.
+ */
+class EdgeList {
+    /**
+     * Número de nós declarado no cabeçalho do arquivo (-1 enquanto o
+     * cabeçalho não tiver sido lido).
+     */
+    private int nNodes;
+
+    /**
+     * Pontas das arestas: a i-ésima aresta liga ends[2 * i] a
+     * ends[2 * i + 1]. Cresce conforme necessário, então pode ter posições
+     * sobrando no final. (Será null num buffer que só conta as arestas.)
+     */
+    private int[] ends;
+
+    /**
+     * Peso de cada aresta (null se as arestas não têm peso, ou se o buffer
+     * não guarda as arestas).
+     */
+    private double[] weights;
+
+    /**
+     * Se as arestas inseridas têm peso (mesmo que o buffer não os guarde).
+     */
+    private boolean weighted;
+
+    /**
+     * Número de arestas já inseridas.
+     */
+    private int size;
+
+    /**
+     * Tamanho do arquivo (ou trecho de arquivo) que deu origem às arestas, em
+     * bytes.
+     */
+    private long bytesRead;
+
+    /**
+     * Componentes conexas mantidas durante a leitura, com as pontas de cada
+     * aresta lida já unidas (null se não foram pedidas).
+     */
+    private UnionFind components;
+
+    /**
+     * Cria um buffer vazio.
+     * @param expectedEdges Estimativa do número de arestas, para evitar
+     *                      realocações; o buffer cresce se for preciso.
+     */
+    EdgeList(int expectedEdges) {
+        this.nNodes = -1;
+        this.ends = new int[2 * Math.max(expectedEdges, 16)];
+        this.size = 0;
+    }
+
+    /**
+     * Cria um buffer que só conta as arestas inseridas, sem guardá-las (para
+     * a leitura que só monta o resumo das componentes conexas).
+     * @return Buffer vazio sem armazenamento de arestas.
+     */
+    static EdgeList countOnly() {
+        return new EdgeList();
+    }
+
+    /**
+     * Cria um buffer sem armazenamento, que só conta as arestas (ver
+     * countOnly()); subclasses podem redefinir add() para consumir as
+     * arestas à medida que são lidas.
+     */
+    EdgeList() {
+        this.nNodes = -1;
+        this.ends = null;
+        this.size = 0;
+    }
+
+    /**
+     * @return Se o buffer guarda as arestas (e não só as conta).
+     */
+    boolean storesEdges() {
+        return ends != null;
+    }
+
+    /**
+     * Insere uma aresta no final do buffer.
+     * @param node1 Índice de uma das pontas.
+     * @param node2 Índice da outra ponta.
+     */
+    void add(int node1, int node2) {
+        if (ends == null) {
+            size++;
+            return;
+        }
+
+        if (2 * size + 2 > ends.length) {
+            long newLength = Math.min(ends.length + (ends.length >> 1) + 2L,
+                    Integer.MAX_VALUE - 8L);  // cresce 1,5x, até o limite de um array
+
+            if (newLength < 2L * size + 2) {
+                throw new IllegalStateException("Arestas demais para um " +
+                        "unico buffer");
+            }
+
+            ends = Arrays.copyOf(ends, (int) newLength);
+        }
+
+        ends[2 * size] = node1;
+        ends[2 * size + 1] = node2;
+        size++;
+    }
+
+    /**
+     * Insere uma aresta com peso no final do buffer. Num mesmo buffer, ou
+     * todas as arestas têm peso, ou nenhuma tem.
+     * @param node1 Índice de uma das pontas.
+     * @param node2 Índice da outra ponta.
+     * @param weight Peso da aresta.
+     */
+    void add(int node1, int node2, double weight) {
+        this.weighted = true;
+        this.add(node1, node2);  // (ou a versão de uma subclasse)
+
+        if (ends != null) {
+            if (weights == null || weights.length < ends.length / 2) {
+                weights = weights == null ? new double[ends.length / 2]
+                        : Arrays.copyOf(weights, ends.length / 2);
+            }
+
+            weights[size - 1] = weight;
+        }
+    }
+
+    /**
+     * Junta vários buffers num só, na ordem dada (por exemplo, os trechos de
+     * um arquivo lidos em paralelo).
+     * @param parts Buffers a serem concatenados (que guardem as arestas); o
+     *              número de nós e as componentes são tomados do primeiro.
+     * @return Novo buffer com todas as arestas.
+     */
+    static EdgeList concat(EdgeList[] parts) {
+        long total = 0;
+
+        for (EdgeList part : parts) {
+            total += part.size();
+        }
+
+        if (2 * total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Arestas demais para um unico " +
+                    "buffer");
+        }
+
+        EdgeList all = new EdgeList((int) total);
+        all.setNNodes(parts[0].getNNodes());
+        all.setComponents(parts[0].getComponents());
+
+        for (EdgeList part : parts) {
+            if (part.weights != null) {
+                if (all.weights == null) {
+                    all.weights = new double[all.ends.length / 2];
+                    all.weighted = true;
+                }
+
+                System.arraycopy(part.weights, 0, all.weights, all.size, part.size);
+            }
+
+            System.arraycopy(part.ends, 0, all.ends, 2 * all.size, 2 * part.size);
+            all.size += part.size;
+            all.bytesRead += part.bytesRead;
+        }
+
+        return all;
+    }
+
+    int getNNodes() {
+        return nNodes;
+    }
+
+    void setNNodes(int nNodes) {
+        this.nNodes = nNodes;
+    }
+
+    /**
+     * @return Número de arestas no buffer.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param edge Índice da aresta, de 0 a size() - 1.
+     * @return Primeira ponta da aresta, na ordem em que aparece no arquivo.
+     */
+    int getNode1(int edge) {
+        return ends[2 * edge];
+    }
+
+    /**
+     * @param edge Índice da aresta, de 0 a size() - 1.
+     * @return Segunda ponta da aresta, na ordem em que aparece no arquivo.
+     */
+    int getNode2(int edge) {
+        return ends[2 * edge + 1];
+    }
+
+    /**
+     * @return Se as arestas inseridas têm peso.
+     */
+    boolean hasWeights() {
+        return weighted;
+    }
+
+    /**
+     * @param edge Índice da aresta, de 0 a size() - 1.
+     * @return Peso da aresta (só num buffer que guarda as arestas e em que
+     *          elas têm peso).
+     */
+    double getWeight(int edge) {
+        return weights[edge];
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    UnionFind getComponents() {
+        return components;
+    }
+
+    void setComponents(UnionFind components) {
+        this.components = components;
+    }
+}
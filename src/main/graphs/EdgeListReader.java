@@ -0,0 +1,567 @@
+package graphs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Leitor do formato de entrada dos grafos (primeira linha com o número de
+ * nós, depois uma aresta "u v" por linha, ou "u v peso" em todas as linhas,
+ * para um grafo com pesos) que interpreta os bytes do arquivo
+ * diretamente, sem criar Strings: o arquivo é mapeado em memória
+ * (FileChannel.map) em janelas, copiado em blocos para um array de bytes e
+ * os inteiros são montados dígito a dígito.
+ *
+ * Diferentemente do Scanner + split(" ") que usávamos antes, aceita linhas em
+ * branco, espaços repetidos, tabulações e fim de linha no formato do Windows
+ * (\r\n).
+ *
+ * Cada instância é um "autômato" que guarda o estado da linha corrente entre
+ * um bloco e outro, de forma que um número pode ser quebrado entre dois
+ * blocos sem problemas. Para a leitura paralela (readParallel()), o arquivo
+ * é dividido em trechos que começam no início de uma linha, e cada trecho é
+ * lido por uma instância própria.
+ */
+class EdgeListReader {
+    /**
+     * Tamanho máximo de cada janela mapeada do arquivo.
+     */
+    private static final long WINDOW_SIZE = 1L << 26;  // 64 MB
+
+    /**
+     * Tamanho dos blocos copiados da janela mapeada para o array de trabalho.
+     */
+    private static final int CHUNK_SIZE = 1 << 16;  // 64 KB
+
+    /**
+     * Estimativa (por baixo) de bytes por linha, usada para dimensionar o
+     * buffer de arestas de antemão.
+     */
+    private static final int BYTES_PER_LINE_GUESS = 10;
+
+    /**
+     * Tamanho mínimo do trecho de cada thread na leitura paralela; abaixo
+     * disso, o custo de criar as threads não compensa.
+     */
+    private static final long MIN_BYTES_PER_THREAD = 1L << 20;  // 1 MB
+
+    /**
+     * Potências de 10 representáveis exatamente num double, para converter
+     * os pesos com uma única divisão (correta até o último bit quando a
+     * mantissa também é exata).
+     */
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+
+        for (int i=1; i < POW10.length; i++) {
+            POW10[i] = 10 * POW10[i - 1];
+        }
+    }
+
+    /**
+     * Buffer onde as arestas lidas são inseridas.
+     */
+    private final EdgeList edges;
+
+    /**
+     * Se a próxima linha não vazia ainda é o cabeçalho (número de nós).
+     */
+    private boolean expectHeader;
+
+    /**
+     * Número de nós do grafo, para validar os índices lidos (-1 enquanto o
+     * cabeçalho não tiver sido lido; aí a validação fica por conta de quem
+     * chamou).
+     */
+    private int nNodes;
+
+    /**
+     * Se as componentes conexas devem ser mantidas durante a leitura (a
+     * floresta é criada assim que o cabeçalho é lido).
+     */
+    private boolean trackComponents;
+
+    /**
+     * Floresta em que as pontas de cada aresta são unidas assim que a linha
+     * é lida (null se as componentes não forem mantidas).
+     */
+    private UnionFind components;
+
+    /**
+     * Se components é compartilhada com outras threads (leitura paralela),
+     * caso em que as uniões usam UnionFind.unionConcurrent().
+     */
+    private boolean concurrentUnions;
+
+    /**
+     * Valor do número sendo lido no momento (no peso, sem o ponto decimal).
+     */
+    private long value;
+
+    /**
+     * Dígitos depois do ponto decimal no número sendo lido (-1 se ainda não
+     * houve ponto). Só o peso pode ter ponto decimal e sinal.
+     */
+    private int fractionDigits = -1;
+
+    /**
+     * Se o número sendo lido começou com um sinal de menos.
+     */
+    private boolean negative;
+
+    /**
+     * Se o último byte lido foi um dígito.
+     */
+    private boolean inNumber;
+
+    /**
+     * Números já lidos na linha corrente.
+     */
+    private final int[] tokens = new int[2];
+
+    /**
+     * Peso lido na linha corrente (terceiro número).
+     */
+    private double weight;
+
+    /**
+     * Quantidade de números já lidos na linha corrente.
+     */
+    private int nTokens;
+
+    /**
+     * Números por linha de aresta: 2 ou 3 (com peso), conforme a primeira
+     * linha de aresta do trecho; 0 enquanto ela não tiver sido lida.
+     */
+    private int edgeTokens;
+
+    /**
+     * Número da linha corrente (a partir de 1), para as mensagens de erro.
+     */
+    private long line;
+
+    /**
+     * Posição no arquivo em que começa o trecho lido por esta instância
+     * (as linhas são contadas a partir dela).
+     */
+    private long firstByte;
+
+    /**
+     * @param edges Buffer onde as arestas serão inseridas.
+     * @param expectHeader Se o trecho a ser lido começa pelo cabeçalho (ou
+     *                     seja, se é o início do arquivo).
+     * @param nNodes Número de nós, caso já se saiba (se não, -1).
+     */
+    EdgeListReader(EdgeList edges, boolean expectHeader, int nNodes) {
+        this.edges = edges;
+        this.expectHeader = expectHeader;
+        this.nNodes = nNodes;
+        this.line = 1;
+    }
+
+    /**
+     * Lê um arquivo de entrada inteiro.
+     * @param filepath Caminho do arquivo.
+     * @return Buffer com o número de nós e as arestas lidas, além do tamanho
+     *          do arquivo.
+     * @throws IOException Se o arquivo não puder ser lido ou estiver fora do
+     *          formato (nesse caso, a mensagem indica a linha).
+     */
+    static EdgeList read(String filepath) throws IOException {
+        return read(filepath, true, false);
+    }
+
+    /**
+     * Lê um arquivo de entrada inteiro, mantendo opcionalmente as componentes
+     * conexas à medida que as arestas são lidas.
+     * @param filepath Caminho do arquivo.
+     * @param storeEdges Se as arestas devem ser guardadas no buffer (se não,
+     *                   só são contadas).
+     * @param trackComponents Se as componentes conexas devem ser mantidas
+     *                        (ficam em EdgeList.getComponents()).
+     * @return Buffer com o número de nós e as arestas lidas, além do tamanho
+     *          do arquivo.
+     * @throws IOException Se o arquivo não puder ser lido ou estiver fora do
+     *          formato.
+     */
+    static EdgeList read(String filepath, boolean storeEdges,
+                         boolean trackComponents) throws IOException {
+        EdgeList edges;
+
+        if (storeEdges) {
+            long size = new File(filepath).length();
+            edges = new EdgeList((int) Math.min(size / BYTES_PER_LINE_GUESS, 1 << 28));
+        } else {
+            edges = EdgeList.countOnly();
+        }
+
+        return read(filepath, edges, trackComponents);
+    }
+
+    /**
+     * Lê um arquivo de entrada inteiro para um buffer fornecido (que pode
+     * ser uma subclasse de EdgeList que consome as arestas conforme são
+     * lidas).
+     * @param filepath Caminho do arquivo.
+     * @param edges Buffer vazio onde as arestas serão inseridas.
+     * @param trackComponents Se as componentes conexas devem ser mantidas.
+     * @return O próprio buffer, com o número de nós e o tamanho do arquivo.
+     * @throws IOException Se o arquivo não puder ser lido ou estiver fora do
+     *          formato.
+     */
+    static EdgeList read(String filepath, EdgeList edges, boolean trackComponents)
+            throws IOException {
+        try (FileInputStream stream = new FileInputStream(filepath);
+             FileChannel channel = stream.getChannel()) {
+            long size = channel.size();
+            EdgeListReader reader = new EdgeListReader(edges, true, -1);
+            reader.trackComponents = trackComponents;
+
+            reader.feed(channel, 0, size);
+            reader.finish();
+
+            edges.setBytesRead(size);
+
+            return edges;
+        }
+    }
+
+    /**
+     * Lê um arquivo de entrada dividindo-o em trechos, alinhados a quebras de
+     * linha, que são interpretados simultaneamente por várias threads.
+     * @param filepath Caminho do arquivo.
+     * @param nThreads Número máximo de threads (arquivos pequenos usam menos).
+     * @return Um buffer de arestas por trecho, na ordem do arquivo, todos com
+     *          o número de nós preenchido e com o tamanho de cada trecho (o
+     *          do primeiro inclui o cabeçalho).
+     * @throws IOException Se o arquivo não puder ser lido ou estiver fora do
+     *          formato.
+     */
+    static EdgeList[] readParallel(String filepath, int nThreads) throws IOException {
+        return readParallel(filepath, nThreads, true, false);
+    }
+
+    /**
+     * Versão de readParallel() que mantém opcionalmente as componentes
+     * conexas durante a leitura: todas as threads unem as pontas das suas
+     * arestas numa mesma floresta, compartilhada por todos os trechos.
+     * @param filepath Caminho do arquivo.
+     * @param nThreads Número máximo de threads.
+     * @param storeEdges Se as arestas devem ser guardadas (se não, só são
+     *                   contadas).
+     * @param trackComponents Se as componentes conexas devem ser mantidas.
+     * @return Um buffer de arestas por trecho, como em readParallel().
+     * @throws IOException Se o arquivo não puder ser lido ou estiver fora do
+     *          formato.
+     */
+    static EdgeList[] readParallel(String filepath, int nThreads,
+                                   boolean storeEdges, boolean trackComponents)
+            throws IOException {
+        try (FileInputStream stream = new FileInputStream(filepath);
+             FileChannel channel = stream.getChannel()) {
+            long size = channel.size();
+
+            // Cabeçalho: lido byte a byte só até o fim da sua linha
+            EdgeList header = new EdgeList(0);
+            EdgeListReader headerReader = new EdgeListReader(header, true, -1);
+            long bodyStart = 0;
+            ByteBuffer small = ByteBuffer.allocate(4096);
+            byte[] oneByte = new byte[1];
+
+            while (headerReader.expectHeader && bodyStart < size) {
+                small.clear();
+
+                int nRead = channel.read(small, bodyStart);
+
+                for (int i=0; i < nRead && headerReader.expectHeader; i++) {
+                    oneByte[0] = small.get(i);
+                    headerReader.feed(oneByte, 1);
+                    bodyStart++;
+                }
+            }
+
+            headerReader.finish();
+
+            int nNodes = header.getNNodes();
+            long bodySize = size - bodyStart;
+            int nParts = (int) Math.max(1, Math.min(nThreads,
+                    bodySize / MIN_BYTES_PER_THREAD));
+
+            // Fronteiras dos trechos, cada uma empurrada para o início da
+            // linha seguinte
+            long[] bounds = new long[nParts + 1];
+            bounds[0] = bodyStart;
+            bounds[nParts] = size;
+
+            for (int w=1; w < nParts; w++) {
+                long guess = bodyStart + bodySize * w / nParts;
+                bounds[w] = Math.max(bounds[w - 1], lineStart(channel, guess, size));
+            }
+
+            EdgeList[] parts = new EdgeList[nParts];
+            UnionFind components = trackComponents ? new UnionFind(nNodes) : null;
+
+            try {
+                Parallel.run(nParts, w -> {
+                    long from = bounds[w];
+                    long to = bounds[w + 1];
+
+                    EdgeList part = storeEdges
+                            ? new EdgeList((int) Math.min((to - from) / BYTES_PER_LINE_GUESS, 1 << 28))
+                            : EdgeList.countOnly();
+                    part.setNNodes(nNodes);
+                    part.setComponents(components);
+
+                    EdgeListReader reader = new EdgeListReader(part, false, nNodes);
+                    reader.firstByte = from;
+                    reader.components = components;
+                    reader.concurrentUnions = nParts > 1;
+
+                    try {
+                        reader.feed(channel, from, to);
+                        reader.finish();
+                    } catch (IOException exc) {
+                        throw new UncheckedIOException(exc);
+                    }
+
+                    part.setBytesRead(to - (w == 0 ? 0 : from));
+                    parts[w] = part;
+                });
+            } catch (UncheckedIOException exc) {
+                throw exc.getCause();
+            }
+
+            // Cada trecho decide pela sua primeira linha se tem pesos
+            EdgeList first = null;
+
+            for (EdgeList part : parts) {
+                if (part.size() == 0) {
+                    continue;
+                }
+
+                if (first == null) {
+                    first = part;
+                } else if (part.hasWeights() != first.hasWeights()) {
+                    throw new IOException("Arquivo mistura linhas com e sem " +
+                            "peso");
+                }
+            }
+
+            return parts;
+        }
+    }
+
+    /**
+     * Encontra o início da primeira linha que começa em pos ou depois.
+     * @param channel Canal do arquivo.
+     * @param pos Posição a partir da qual procurar.
+     * @param size Tamanho do arquivo.
+     * @return Posição logo depois da primeira quebra de linha em pos - 1 ou
+     *          adiante (ou size, se não houver nenhuma).
+     */
+    private static long lineStart(FileChannel channel, long pos, long size)
+            throws IOException {
+        ByteBuffer small = ByteBuffer.allocate(4096);
+        long p = pos - 1;
+
+        while (p < size) {
+            small.clear();
+
+            int nRead = channel.read(small, p);
+
+            if (nRead <= 0) {
+                break;
+            }
+
+            for (int i=0; i < nRead; i++) {
+                if (small.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+
+            p += nRead;
+        }
+
+        return size;
+    }
+
+    /**
+     * Interpreta um trecho do arquivo, janela por janela.
+     * @param channel Canal do arquivo.
+     * @param from Posição inicial do trecho (inclusive), em bytes.
+     * @param to Posição final do trecho (exclusive), em bytes.
+     */
+    void feed(FileChannel channel, long from, long to) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+
+        for (long pos = from; pos < to; pos += WINDOW_SIZE) {
+            long windowSize = Math.min(WINDOW_SIZE, to - pos);
+            MappedByteBuffer window =
+                    channel.map(FileChannel.MapMode.READ_ONLY, pos, windowSize);
+
+            while (window.hasRemaining()) {
+                int len = Math.min(CHUNK_SIZE, window.remaining());
+                window.get(chunk, 0, len);
+                this.feed(chunk, len);
+            }
+        }
+    }
+
+    /**
+     * Interpreta um bloco de bytes, continuando do ponto em que o bloco
+     * anterior parou.
+     * @param buf Bloco de bytes.
+     * @param len Quantidade de bytes válidos em buf.
+     */
+    void feed(byte[] buf, int len) throws IOException {
+        for (int i=0; i < len; i++) {
+            int c = buf[i];
+
+            if (c >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - 9) / 10) {
+                    throw new IOException(where() + ": numero grande " +
+                            "demais");
+                }
+
+                value = 10 * value + (c - '0');
+                inNumber = true;
+
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == ' ' || c == '\t' || c == '\r') {
+                endNumber();
+            } else if (c == '\n') {
+                endNumber();
+                endLine();
+                line++;
+            } else if (c == '.' && nTokens == 2 && fractionDigits < 0) {
+                fractionDigits = 0;
+                inNumber = true;
+            } else if (c == '-' && nTokens == 2 && !inNumber && !negative) {
+                negative = true;
+            } else {
+                throw new IOException(where() + ": caractere " +
+                        "inesperado '" + (char) (c & 0xFF) + "'");
+            }
+        }
+    }
+
+    /**
+     * Encerra a leitura, processando a última linha caso o arquivo não
+     * termine com uma quebra de linha.
+     */
+    void finish() throws IOException {
+        endNumber();
+        endLine();
+
+        if (expectHeader) {
+            throw new IOException("Cabecalho (numero de nos) ausente");
+        }
+    }
+
+    /**
+     * Localização da linha corrente, para as mensagens de erro.
+     */
+    private String where() {
+        if (firstByte == 0) {
+            return "Linha " + line;
+        }
+
+        return "Linha " + line + " do trecho iniciado no byte " + firstByte;
+    }
+
+    private void endNumber() throws IOException {
+        if (!inNumber) {
+            if (negative) {
+                throw new IOException(where() + ": sinal sem numero");
+            }
+
+            return;
+        }
+
+        if (nTokens == tokens.length) {
+            // (o ponto e o sinal só são aceitos aqui, no terceiro número)
+            double magnitude = fractionDigits <= 0 ? value :
+                    fractionDigits < POW10.length ? value / POW10[fractionDigits] :
+                    value / Math.pow(10, fractionDigits);
+            weight = negative ? -magnitude : magnitude;
+            fractionDigits = -1;
+            negative = false;
+        } else if (nTokens > tokens.length) {
+            throw new IOException(where() + ": numeros demais " +
+                    "(esperado: \"u v\" ou \"u v peso\")");
+        } else if (value > Integer.MAX_VALUE) {
+            throw new IOException(where() + ": numero grande demais");
+        } else {
+            tokens[nTokens] = (int) value;
+        }
+
+        nTokens++;
+        value = 0;
+        inNumber = false;
+    }
+
+    private void endLine() throws IOException {
+        if (nTokens == 0) {
+            return;  // linha em branco
+        }
+
+        if (expectHeader) {
+            if (nTokens != 1) {
+                throw new IOException(where() + ": esperado apenas " +
+                        "o numero de nos");
+            }
+
+            nNodes = tokens[0];
+            edges.setNNodes(nNodes);
+            expectHeader = false;
+
+            if (trackComponents) {
+                components = new UnionFind(nNodes);
+                edges.setComponents(components);
+            }
+        } else {
+            if (edgeTokens == 0 && (nTokens == 2 || nTokens == 3)) {
+                edgeTokens = nTokens;  // todas as outras linhas seguem esta
+            }
+
+            if (nTokens != edgeTokens) {
+                throw new IOException(where() + (edgeTokens == 3
+                        ? ": esperado \"u v peso\", como nas linhas anteriores"
+                        : ": esperado \"u v\", como nas linhas anteriores"));
+            }
+
+            int node1 = tokens[0];
+            int node2 = tokens[1];
+
+            if (nNodes != -1 && (node1 < 1 || node1 > nNodes || node2 < 1 ||
+                    node2 > nNodes)) {
+                throw new IOException(where() + ": no fora do " +
+                        "intervalo 1.." + nNodes);
+            }
+
+            if (edgeTokens == 3) {
+                edges.add(node1, node2, weight);
+            } else {
+                edges.add(node1, node2);
+            }
+
+            if (components != null) {
+                if (concurrentUnions) {
+                    components.unionConcurrent(node1, node2);
+                } else {
+                    components.union(node1, node2);
+                }
+            }
+        }
+
+        nTokens = 0;
+    }
+}
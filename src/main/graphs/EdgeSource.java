@@ -0,0 +1,20 @@
+package graphs;
+
+import java.io.IOException;
+
+/**
+ * Origem de arestas que pode ser percorrida mais de uma vez, sempre com as
+ * mesmas arestas na mesma ordem (um arquivo de entrada ou um
+ * GraphGenerator, que tem semente fixa), para as montagens em duas passadas
+ * que não guardam as arestas (ver OffHeapAdjacency).
+ */
+interface EdgeSource {
+    /**
+     * Insere todas as arestas num buffer, como EdgeListReader.read().
+     * @param edges Buffer vazio (ou subclasse de EdgeList que consome as
+     *              arestas).
+     * @param trackComponents Se as componentes conexas devem ser mantidas.
+     * @return O próprio buffer, com o número de nós preenchido.
+     */
+    EdgeList readInto(EdgeList edges, boolean trackComponents) throws IOException;
+}
@@ -6,7 +6,6 @@ import java.util.*;
 import java.lang.Math;
 
 // Leitura e escrita de arquivos:
-import java.io.File;
 import java.io.FileWriter;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -19,6 +18,94 @@ import java.util.stream.IntStream;
  * nas especificações o trabalho.
  */
 public class Graph {
+    /**
+     * Valor de reprChoice para a representação por matriz de adjacências.
+     */
+    public static final int MATRIX = 0;
+
+    /**
+     * Valor de reprChoice para a representação por lista de adjacências.
+     */
+    public static final int LIST = 1;
+
+    /**
+     * Valor de reprChoice para a representação CSR ("compressed sparse
+     * row"): a lista de adjacências compactada em dois arrays primitivos.
+     */
+    public static final int CSR = 2;
+
+    /**
+     * Valor de reprChoice para a leitura só do resumo: nenhuma representação
+     * das arestas é montada, e o grafo guarda apenas o número de nós e de
+     * arestas e as componentes conexas, mantidas durante a leitura (ver
+     * findComponents()). Os métodos que precisam dos vizinhos dos nós lançam
+     * UnsupportedOperationException.
+     */
+    public static final int SUMMARY = 3;
+
+    /**
+     * Valor de reprChoice para a lista de adjacências compactada (como a
+     * CSR) guardada fora da heap, em ByteBuffers diretos ou, se o arquivo
+     * de entrada for um snapshot sem compressão, mapeada diretamente do
+     * arquivo. Serve para grafos maiores que a heap: o coletor de lixo não
+     * percorre as arestas, e a leitura do texto não guarda as arestas na
+     * heap (lê o arquivo duas vezes). Os buffers diretos são limitados por
+     * -XX:MaxDirectMemorySize (por padrão, igual ao -Xmx).
+     */
+    public static final int OFFHEAP = 4;
+
+    /**
+     * Valor de reprChoice para a lista de adjacências comprimida: os
+     * vizinhos de cada nó, em ordem crescente, guardados como diferenças em
+     * varints (ver CompressedAdjacency) e decodificados durante as buscas.
+     * Em grafos com localidade nos índices, ocupa perto de 1 byte por
+     * aresta em cada sentido, contra 4 da CSR.
+     */
+    public static final int COMPRESSED = 5;
+
+    /**
+     * Valor padrão do limiar alpha de directionOptimizingBFS(): a busca passa
+     * a ser "de baixo para cima" quando as arestas saindo da fronteira
+     * superam 1/alpha das arestas dos nós ainda não visitados.
+     */
+    public static final int DO_BFS_ALPHA = 14;
+
+    /**
+     * Valor padrão do limiar beta de directionOptimizingBFS(): a busca volta
+     * a ser "de cima para baixo" quando a fronteira, diminuindo, fica com
+     * menos de 1/beta dos nós do grafo.
+     */
+    public static final int DO_BFS_BETA = 24;
+
+    /**
+     * Tamanho padrão da menor fronteira processada em paralelo por
+     * parallelBFS(); níveis menores são processados sequencialmente.
+     */
+    public static final int PARALLEL_BFS_MIN_FRONTIER = 1 << 12;
+
+    /**
+     * Número padrão de palavras de 64 bits por nó em multiSourceBFS() (ou
+     * seja, 256 origens por lote).
+     */
+    public static final int MSBFS_WORDS = 4;
+
+    /**
+     * Renumeração pela ordem de visita de uma BFS (ver relabel()).
+     */
+    public static final int ORDER_BFS = 0;
+
+    /**
+     * Renumeração pela ordem de Cuthill-McKee reversa, que aproxima os
+     * índices de nós vizinhos (ver relabel()).
+     */
+    public static final int ORDER_RCM = 1;
+
+    /**
+     * Renumeração por grau decrescente, que junta os nós de grau alto no
+     * início dos arrays (ver relabel()).
+     */
+    public static final int ORDER_DEGREE = 2;
+
     /**
      * Nome do arquivo de origem, sem caminho e sem extensão.
      */
@@ -36,9 +123,19 @@ public class Graph {
 
     /**
      * Representação do grafo por matriz de adjacência (será null caso o
-     * usuário opte pela representação por lista).
+     * usuário opte por outra representação). Cada linha é compactada em
+     * palavras de 64 bits: a coluna j da linha i é o bit (j % 64) de
+     * adjMatrix[i][j / 64]. Isso ocupa 1 bit por célula, em vez de uma
+     * referência a um Boolean, e permite processar 64 colunas por vez.
      */
-    private ArrayList<ArrayList<Boolean>> adjMatrix;
+    private long[][] adjMatrix;
+
+    /**
+     * Grau de cada nó, contado durante a montagem da matriz de adjacências.
+     * (Será null nas outras representações, em que o grau sai da própria
+     * estrutura em O(1).)
+     */
+    private int[] matrixDegrees;
 
     /**
      * Representação do grafo por lista de adjacência (será null caso o
@@ -46,417 +143,3173 @@ public class Graph {
      */
     private ArrayList<LinkedList<Integer>> adjList;
 
+    /**
+     * Representação escolhida pelo usuário no construtor (MATRIX, LIST ou
+     * CSR).
+     */
+    private int repr;
+
+    /**
+     * Na representação CSR, os vizinhos do nó v ocupam as posições de
+     * csrOffsets[v] (inclusive) a csrOffsets[v + 1] (exclusive) de
+     * csrTargets. Tem nNodes + 2 posições, já que o índice 0 fica sem uso
+     * (como nas outras representações) e a última marca o fim do último nó.
+     * (Será null nas outras representações.)
+     */
+    private int[] csrOffsets;
+
+    /**
+     * Vizinhos de todos os nós, concatenados em ordem crescente de nó e, para
+     * cada nó, em ordem crescente de índice do vizinho. Cada aresta aparece
+     * duas vezes (uma em cada sentido). (Será null nas outras
+     * representações.)
+     */
+    private int[] csrTargets;
+
+    /**
+     * Peso de cada aresta de csrTargets, na mesma posição (null se o grafo
+     * não tem pesos ou não está na representação CSR, a única que guarda os
+     * pesos).
+     */
+    private double[] csrWeights;
+
+    /**
+     * Se todos os pesos são inteiros (o Dijkstra usa então um radix heap).
+     */
+    private boolean integerWeights;
+
+    /**
+     * Se há algum peso negativo (o Dijkstra não se aplica).
+     */
+    private boolean negativeWeights;
+
+    /**
+     * Lista de adjacências fora da heap. (Será null nas outras
+     * representações.)
+     */
+    private OffHeapAdjacency offHeap;
+
+    /**
+     * Lista de adjacências comprimida. (Será null nas outras
+     * representações.)
+     */
+    private CompressedAdjacency compressed;
+
+    /**
+     * Tamanho do arquivo de entrada, em bytes.
+     */
+    private long loadBytes;
+
+    /**
+     * Tempo gasto lendo e interpretando o arquivo de entrada, em
+     * nanossegundos.
+     */
+    private long parseNanos;
+
+    /**
+     * Tempo gasto montando a representação a partir das arestas lidas, em
+     * nanossegundos.
+     */
+    private long buildNanos;
+
+    /**
+     * Componentes conexas mantidas durante a leitura do arquivo (null se não
+     * foram pedidas no construtor).
+     */
+    private ConnectedComponents loadComponents;
+
+    /**
+     * Distribuição dos graus (a posição d tem o número de nós de grau d),
+     * calculada na primeira consulta às estatísticas de grau.
+     */
+    private volatile int[] degreeDistribution;
+
+    /**
+     * Se o grafo foi renumerado (ver relabel()), internalId[v] é o índice
+     * usado nas estruturas internas para o nó v da entrada, e originalId é
+     * a renumeração inversa. Os métodos públicos convertem os índices na
+     * entrada e na saída. (Ambos são null se o grafo não foi renumerado.)
+     */
+    private int[] internalId;
+    private int[] originalId;
+
     /**
      * Construtor da classe Graph.
      * @param filepath Arquivo de entrada no formato especificado. O caminho pode
      *                 ser especificado de forma absoluta ou relativa, a partir da
-     *                 raiz do projeto.
-     * @param reprChoice O valor 0 indica escolha pela representação por matriz de
-     *                   adjacências; 1 define a opção pela lista de adjacências.
+     *                 raiz do projeto. As linhas das arestas podem ter um
+     *                 terceiro número, o peso (em todas ou em nenhuma); os
+     *                 pesos só são guardados na representação CSR (ver
+     *                 dijkstra()), e as outras os ignoram.
+     * @param reprChoice O valor 0 (MATRIX) indica escolha pela representação por
+     *                   matriz de adjacências; 1 (LIST) define a opção pela lista
+     *                   de adjacências; 2 (CSR), pela lista de adjacências
+     *                   compactada em arrays primitivos, que ocupa cerca de 8
+     *                   bytes por aresta em cada sentido e é a indicada para os
+     *                   grafos grandes.
      */
     public Graph(String filepath, int reprChoice) throws InstantiationException {
-        if (reprChoice != 1 && reprChoice !=0) {
-            System.err.println("Argumento invalido: use 0 para representacao " +
-                    "por matriz, 1 para lista");
-            throw new InstantiationException("Arquivo de entrada inexistente; grafo nao instanciado");
-        }  // else
+        this(filepath, reprChoice, 1);
+    }
+
+    /**
+     * Construtor da classe Graph com leitura em paralelo: o arquivo de entrada
+     * é dividido em trechos (alinhados a quebras de linha) interpretados por
+     * threads diferentes e, na representação CSR, a contagem de graus, a
+     * soma de prefixos, a distribuição das arestas e a ordenação dos vizinhos
+     * também são divididas entre as threads. (Nas outras representações, só
+     * a leitura é paralela.)
+     * @param filepath Arquivo de entrada no formato especificado, como no
+     *                 outro construtor.
+     * @param reprChoice Representação escolhida (MATRIX, LIST ou CSR), como no
+     *                   outro construtor.
+     * @param nThreads Número de threads; se for menor que 1, usa o número de
+     *                 processadores disponíveis. Arquivos pequenos usam menos
+     *                 threads na leitura, já que não compensaria.
+     */
+    public Graph(String filepath, int reprChoice, int nThreads)
+            throws InstantiationException {
+        this(filepath, reprChoice, nThreads, reprChoice == SUMMARY);
+    }
+
+    /**
+     * Construtor da classe Graph que, opcionalmente, mantém as componentes
+     * conexas à medida que as arestas são lidas: as pontas de cada aresta são
+     * unidas numa floresta de conjuntos disjuntos assim que a linha é
+     * interpretada, e o resultado fica disponível em findComponents() ao fim
+     * da leitura, sem nenhuma passada extra pelo grafo.
+     * @param filepath Arquivo de entrada no formato especificado, como nos
+     *                 outros construtores.
+     * @param reprChoice Representação escolhida (MATRIX, LIST, CSR,
+     *                   OFFHEAP, que guarda a CSR fora da heap, COMPRESSED,
+     *                   que a comprime com varints, ou SUMMARY,
+     *                   que não guarda as arestas: só o resumo das
+     *                   componentes, com memória proporcional ao número de
+     *                   nós).
+     * @param nThreads Número de threads, como no outro construtor.
+     * @param trackComponents Se as componentes devem ser mantidas durante a
+     *                        leitura (sempre, no caso de SUMMARY).
+     */
+    public Graph(String filepath, int reprChoice, int nThreads,
+                 boolean trackComponents) throws InstantiationException {
+        checkRepresentation(reprChoice);
+        this.repr = reprChoice;
+
+        inputFile = filepath.substring(filepath.lastIndexOf("/") + 1);
+        inputFile = inputFile.substring(0, inputFile.lastIndexOf("."));
+
+        nThreads = Parallel.resolveThreads(nThreads);
+
+        long parseStart = System.nanoTime();
+        trackComponents = trackComponents || reprChoice == SUMMARY;
+
+        boolean snapshot;
 
         try {
-            inputFile = filepath.substring(filepath.lastIndexOf("/") + 1);
-            inputFile = inputFile.substring(0, inputFile.lastIndexOf("."));
+            snapshot = GraphSnapshot.isSnapshot(filepath);
+        } catch (IOException exc) {
+            snapshot = false;  // o erro é relatado na leitura abaixo
+        }
 
-            File inputFile = new File(filepath);
-            Scanner inputReader = new Scanner(inputFile);
+        if (snapshot) {
+            this.loadSnapshot(filepath, trackComponents, parseStart);
+            return;
+        }
 
-            this.nNodes = Integer.parseInt(inputReader.nextLine());
-            this.nEdges = 0;  // acumulador
+        if (reprChoice == OFFHEAP) {
+            this.loadOffHeap((edges, track) -> EdgeListReader.read(filepath,
+                    edges, track), filepath, trackComponents, parseStart);
+            return;
+        }
 
-            if (reprChoice == 0) {
-                this.adjList = null;
-                this.adjMatrix = new ArrayList<ArrayList<Boolean>>();
+        EdgeList[] parts = readEdges(filepath, nThreads, reprChoice != SUMMARY,
+                trackComponents);
 
-                // Inicializa matriz de adjacência com zeros
-                for (int i=0; i <= this.getNNodes(); i++) {
-                    ArrayList<Boolean> row = new ArrayList<Boolean>();
+        this.build(parts, nThreads, trackComponents, filepath, parseStart);
+    }
 
-                    for (int j = 0; j <= this.getNNodes(); j++) {
-                        row.add(false);
-                    }
+    /**
+     * Construtor que carrega um grafo sintético direto do gerador, sem
+     * arquivo intermediário (ver GraphGenerator). Na representação OFFHEAP,
+     * as arestas são geradas duas vezes, como as duas passadas pelo arquivo,
+     * e nunca ficam na heap.
+     * @param generator Gerador do grafo; getInputFile() retorna o nome dele.
+     * @param reprChoice Representação escolhida, como nos outros
+     *                   construtores.
+     */
+    public Graph(GraphGenerator generator, int reprChoice)
+            throws InstantiationException {
+        checkRepresentation(reprChoice);
+        this.repr = reprChoice;
+        this.inputFile = generator.getName();
+
+        long parseStart = System.nanoTime();
+        boolean trackComponents = reprChoice == SUMMARY;
+
+        if (reprChoice == OFFHEAP) {
+            this.loadOffHeap(generator::generate, generator.getName(),
+                    trackComponents, parseStart);
+            return;
+        }
 
-                    this.adjMatrix.add(row);
-                }
+        EdgeList edges;
 
-            } else {
-                this.adjMatrix = null;
-                this.adjList = new ArrayList<LinkedList<Integer>>();
+        try {
+            edges = generator.generate(reprChoice == SUMMARY ? EdgeList.countOnly() :
+                    new EdgeList((int) Math.min(generator.expectedEdges(), 1 << 28)),
+                    trackComponents);
+        } catch (IllegalStateException exc) {
+            System.err.println(exc.getMessage() + " em " + generator.getName());
+            throw new InstantiationException("Grafo grande demais; grafo nao instanciado");
+        }
+
+        this.build(new EdgeList[]{edges}, 1, trackComponents,
+                generator.getName(), parseStart);
+    }
 
-                // Inicializa lista de adjacências sem vizinhos
-                for (int i=0; i <= this.getNNodes(); i++) {
-                    LinkedList<Integer> ll = new LinkedList<Integer>();
-                    ll.add(i);
+    /**
+     * @param reprChoice Representação pedida ao construtor.
+     * @throws InstantiationException Se não for uma das representações.
+     */
+    private static void checkRepresentation(int reprChoice)
+            throws InstantiationException {
+        if (reprChoice != MATRIX && reprChoice != LIST && reprChoice != CSR &&
+                reprChoice != SUMMARY && reprChoice != OFFHEAP &&
+                reprChoice != COMPRESSED) {
+            System.err.println("Argumento invalido: use 0 para representacao " +
+                    "por matriz, 1 para lista, 2 para CSR, 3 so para o resumo, " +
+                    "4 para CSR fora da heap, 5 para lista comprimida");
+            throw new InstantiationException("Representacao invalida; grafo nao instanciado");
+        }
+    }
 
-                    this.adjList.add(ll);
-                }
-            }
+    /**
+     * Monta a representação escolhida a partir das arestas lidas.
+     * @param parts Buffers de arestas (um por trecho do arquivo).
+     * @param nThreads Número de threads para a montagem da CSR.
+     * @param trackComponents Se as componentes foram mantidas na leitura.
+     * @param filepath Origem das arestas (só para mensagens de erro).
+     * @param parseStart Início da carga, para getLoadStats().
+     */
+    private void build(EdgeList[] parts, int nThreads, boolean trackComponents,
+                       String filepath, long parseStart)
+            throws InstantiationException {
+        int reprChoice = this.repr;
+        long start = System.nanoTime();
+
+        long totalEdges = 0;
+
+        for (EdgeList part : parts) {
+            totalEdges += part.size();
+            this.loadBytes += part.getBytesRead();
+        }
 
-            // Obs: não sei se é o melhor caminho, mas, como ele indexa a partir
-            // do 1, em ambos os casos incluí o índice 0, mas pra deixar "em
-            // branco" (sem uso); me pareceu melhor do que usar um HashMap só
-            // pra pular os índices 0
+        if (2 * totalEdges > Integer.MAX_VALUE) {
+            System.err.println("Arestas demais em " + filepath);
+            throw new InstantiationException("Grafo grande demais; grafo nao instanciado");
+        }
 
-            while (inputReader.hasNextLine()) {
-                this.nEdges++;
+        this.nNodes = parts[0].getNNodes();
+        this.nEdges = (int) totalEdges;
+        this.parseNanos = start - parseStart;
 
-                String link = inputReader.nextLine();
-                String[] nodeStrings = link.split(" ");
+        // Obs: não sei se é o melhor caminho, mas, como ele indexa a partir
+        // do 1, em todos os casos incluí o índice 0, mas pra deixar "em
+        // branco" (sem uso); me pareceu melhor do que usar um HashMap só
+        // pra pular os índices 0
 
-                int node1 = Integer.parseInt(nodeStrings[0]);
-                int node2 = Integer.parseInt(nodeStrings[1]);
+        if (trackComponents) {
+            this.loadComponents = new ConnectedComponents(
+                    parts[0].getComponents(), this.nNodes);
+        }
 
-                if (reprChoice == 0) {
-                    this.adjMatrix.get(node1).set(node2, true);
-                    this.adjMatrix.get(node2).set(node1, true);
-                } else {
-                    this.adjList.get(node1).add(node2);
-                    this.adjList.get(node2).add(node1);
-                }
+        if (reprChoice == SUMMARY) {
+            this.adjMatrix = null;
+            this.adjList = null;
+        } else if ((reprChoice == CSR || reprChoice == COMPRESSED) && nThreads > 1 &&
+                !(reprChoice == CSR && parts[0].hasWeights())) {
+            // (com pesos, a CSR é montada na versão sequencial)
+            this.buildCSRParallel(parts, nThreads);
+        } else {
+            EdgeList edges = parts.length == 1 ? parts[0] : EdgeList.concat(parts);
+
+            if (reprChoice == MATRIX) {
+                this.buildMatrix(edges, filepath);
+            } else if (reprChoice == LIST) {
+                this.buildList(edges);
+            } else {
+                this.buildCSR(edges, filepath);
+            }
+        }
+
+        if (reprChoice == COMPRESSED) {
+            // comprimida a partir da CSR, que é descartada em seguida
+            this.compressCSR(this.csrOffsets, this.csrTargets, filepath);
+        }
+
+        this.buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Lê o arquivo de entrada para buffers de arestas (ver EdgeListReader).
+     * @param filepath Arquivo de entrada, como no construtor.
+     * @param nThreads Número de threads para a leitura.
+     * @param storeEdges Se as arestas devem ser guardadas (se não, só são
+     *                   contadas).
+     * @param trackComponents Se as componentes conexas devem ser mantidas
+     *                        durante a leitura.
+     * @return Buffers com o número de nós e as arestas do arquivo (um só, se
+     *          a leitura for sequencial; senão, um por trecho do arquivo).
+     */
+    private static EdgeList[] readEdges(String filepath, int nThreads,
+                                        boolean storeEdges, boolean trackComponents)
+            throws InstantiationException {
+        try {
+            if (nThreads == 1) {
+                return new EdgeList[]{EdgeListReader.read(filepath, storeEdges,
+                        trackComponents)};
             }
 
-            inputReader.close();
+            return EdgeListReader.readParallel(filepath, nThreads, storeEdges,
+                    trackComponents);
         } catch (FileNotFoundException exc) {
             System.err.println("Falha na leitura de " + filepath);
             throw new InstantiationException("Arquivo de entrada inexistente; grafo nao instanciado");
+        } catch (IOException exc) {
+            System.err.println("Falha na leitura de " + filepath + ": " +
+                    exc.getMessage());
+            throw new InstantiationException("Arquivo de entrada invalido; grafo nao instanciado");
         }
     }
 
     /**
-     * Retorna a quantidade de nós do grafo.
-     * @return Número de nós.
+     * Carrega o grafo de um snapshot binário (ver saveSnapshot()). Na
+     * representação CSR, os arrays lidos são usados diretamente; nas
+     * outras, são convertidos em arestas e montados como num arquivo de
+     * texto.
+     * @param filepath Arquivo do snapshot.
+     * @param trackComponents Se as componentes conexas devem ser calculadas
+     *                        já na carga.
+     * @param parseStart Início da carga, para getLoadStats().
      */
-    public int getNNodes() {
-        return nNodes;
+    private void loadSnapshot(String filepath, boolean trackComponents,
+                              long parseStart) throws InstantiationException {
+        GraphSnapshot snapshot;
+
+        try {
+            if (this.repr == OFFHEAP) {
+                this.offHeap = GraphSnapshot.map(filepath);  // sem cópia
+
+                if (this.offHeap != null) {
+                    this.adoptOffHeap(trackComponents, parseStart);
+                    return;
+                }  // else: comprimido, lido e copiado abaixo
+            }
+
+            snapshot = GraphSnapshot.read(filepath);
+        } catch (IOException exc) {
+            System.err.println("Falha na leitura de " + filepath + ": " +
+                    exc.getMessage());
+            throw new InstantiationException("Snapshot invalido; grafo nao instanciado");
+        }
+
+        long start = System.nanoTime();
+
+        this.nNodes = snapshot.nNodes;
+        this.nEdges = snapshot.nEdges;
+        this.loadBytes = snapshot.bytes;
+        this.parseNanos = start - parseStart;
+        this.setLabels(snapshot.labels);
+
+        if (trackComponents) {
+            UnionFind sets = new UnionFind(this.nNodes);
+
+            for (int v=1; v <= this.nNodes; v++) {
+                for (int i=snapshot.offsets[v]; i < snapshot.offsets[v + 1]; i++) {
+                    if (snapshot.targets[i] > v) {
+                        sets.union(v, snapshot.targets[i]);
+                    }
+                }
+            }
+
+            this.loadComponents = new ConnectedComponents(sets, this.nNodes,
+                    this.internalId);
+        }
+
+        if (this.repr == CSR) {
+            this.csrOffsets = snapshot.offsets;
+            this.csrTargets = snapshot.targets;
+        } else if (this.repr == MATRIX) {
+            this.buildMatrix(snapshot.toEdgeList(), filepath);
+        } else if (this.repr == LIST) {
+            this.buildList(snapshot.toEdgeList());
+        } else if (this.repr == OFFHEAP) {
+            this.offHeap = OffHeapAdjacency.copyOf(this.nNodes, this.nEdges,
+                    snapshot.offsets, snapshot.targets);
+        } else if (this.repr == COMPRESSED) {
+            this.compressCSR(snapshot.offsets, snapshot.targets, filepath);
+        }
+
+        this.buildNanos = System.nanoTime() - start;
     }
 
     /**
-     * Retorna a quantidade de arestas do grafo.
-     * @return Número de arestas.
+     * Monta a lista de adjacências fora da heap a partir de um arquivo de
+     * texto ou de um gerador (ver OffHeapAdjacency.build()).
+     * @param source Origem das arestas.
+     * @param filepath Arquivo de entrada (ou nome do gerador).
+     * @param trackComponents Se as componentes conexas devem ser mantidas
+     *                        durante a leitura.
+     * @param parseStart Início da carga, para getLoadStats().
      */
-    public int getNEdges() {
-        return nEdges;
+    private void loadOffHeap(EdgeSource source, String filepath,
+                             boolean trackComponents, long parseStart)
+            throws InstantiationException {
+        try {
+            this.offHeap = OffHeapAdjacency.build(source, trackComponents);
+        } catch (FileNotFoundException exc) {
+            System.err.println("Falha na leitura de " + filepath);
+            throw new InstantiationException("Arquivo de entrada inexistente; grafo nao instanciado");
+        } catch (IOException exc) {
+            System.err.println("Falha na leitura de " + filepath + ": " +
+                    exc.getMessage());
+            throw new InstantiationException("Arquivo de entrada invalido; grafo nao instanciado");
+        } catch (OutOfMemoryError exc) {
+            // (os buffers diretos têm limite próprio)
+            System.err.println("Memoria fora da heap insuficiente para " +
+                    filepath + "; aumente -XX:MaxDirectMemorySize");
+            throw new InstantiationException("Grafo nao cabe na memoria; grafo nao instanciado");
+        }
+
+        this.adoptOffHeap(false, parseStart);
+
+        if (this.offHeap.getComponents() != null) {
+            this.loadComponents = new ConnectedComponents(
+                    this.offHeap.getComponents(), this.nNodes);
+        }
     }
 
     /**
-     * Retorna o nome do arquivo de texto que deu origem ao grafo.
-     *
-     * @return Nome do arquivo (com caminho absoluto ou a partir da raiz do
-     * diretório de trabalho, conforme tenha sido fornecido).
+     * Preenche os dados do grafo a partir da lista de adjacências fora da
+     * heap já carregada. (A leitura e a montagem acontecem juntas, então
+     * todo o tempo conta como leitura.)
+     * @param trackComponents Se as componentes conexas devem ser calculadas.
+     * @param parseStart Início da carga, para getLoadStats().
      */
-    public String getInputFile() {
-        return inputFile;
+    private void adoptOffHeap(boolean trackComponents, long parseStart) {
+        this.nNodes = this.offHeap.getNNodes();
+        this.nEdges = this.offHeap.getNEdges();
+        this.loadBytes = this.offHeap.getBytesRead();
+        this.parseNanos = System.nanoTime() - parseStart;
+        this.setLabels(this.offHeap.getLabels());
+
+        if (trackComponents) {
+            this.loadComponents = this.findComponents();
+        }
     }
 
     /**
-     * Retorna os vizinhos de um nó num formato unificado tanto para a representação por
-     * matriz quanto por lista, para possibilitar a composição com outros métodos.
-     *
-     * Discutimos sobre potenciais ineficiências introduzidas por essa
-     * abstração, que pode acabar exigindo uma etapa extra de conversão, e
-     * ficamos em dúvida se o uso desse método na BFS e DFS seria
-     * incompatível com o trabalho, já que foi pedido que medíssemos o tempo
-     * separadamente para cada forma de representação. (Por um lado, este
-     * método poderia ter um efeito "uniformizador"; por outro lado, ele
-     * próprio é executado de forma diferente para cada forma de
-     * representação, então pode ser que a diferença se mantivesse.)
-     *
-     * Optamos por não usá-lo na BFS, ainda que isso deixasse o código mais
-     * bifurcado e "menos abstrato", mas a forma como conseguimos implementar
-     * a DFS com geração de árvore acabou envolvendo o uso dele.
-     *
-     * @param node Índice do nó.
-     * @return ArrayList de inteiros, com os índices dos vizinhos do nó.
+     * Salva o grafo num snapshot binário: os arrays da representação CSR
+     * (montados a partir da representação atual, se não for a CSR),
+     * precedidos por um cabeçalho com o número de nós e de arestas e um
+     * checksum. Passar o snapshot para o construtor no lugar do arquivo de
+     * texto evita toda a interpretação da entrada: a carga fica limitada a
+     * mapear o arquivo e copiar os arrays. Um grafo renumerado (ver
+     * relabel()) é salvo já na nova ordem, junto com a renumeração, que é
+     * restaurada na carga. (Os pesos das arestas não fazem parte do
+     * formato: salvar um grafo com pesos lança
+     * UnsupportedOperationException.)
+     * @param outfile Arquivo de saída (será sobrescrito caso já exista).
+     * @param compressed Se os vizinhos devem ser gravados como diferenças
+     *                   em varints (arquivo menor, carga um pouco mais lenta).
      */
-    public ArrayList<Integer> getNeighbors(int node) {
-        ArrayList<Integer> neighbors;
+    public void saveSnapshot(String outfile, boolean compressed) throws IOException {
+        this.requireAdjacency();
 
-        if (this.adjList == null) {
-            neighbors = new ArrayList<Integer>();
-            ArrayList<Boolean> mtxRow = adjMatrix.get(node);
+        if (this.csrWeights != null) {
+            throw new UnsupportedOperationException("O snapshot nao guarda " +
+                    "os pesos das arestas");
+        }
+
+        int[] offsets = this.csrOffsets;
+        int[] targets = this.csrTargets;
 
-            for (int i=1; i<=nNodes; i++) {
-                if (mtxRow.get(i)) {
-                    neighbors.add(i);
+        if (this.repr != CSR) {
+            int n = this.getNNodes();
+            offsets = new int[n + 2];
+
+            for (int v=1; v <= n; v++) {
+                offsets[v + 1] = offsets[v] + this.degreeOf(v);
+            }
+
+            targets = new int[offsets[n + 1]];
+
+            for (int v=1; v <= n; v++) {
+                int i = offsets[v];
+
+                for (int w : this.neighborsOf(v)) {
+                    targets[i++] = w;
                 }
             }
-        } else {
-            LinkedList<Integer> ll = adjList.get(node);
-            neighbors = new ArrayList<Integer>(ll);
-            neighbors.remove(0); // o próprio nó
         }
 
-        return neighbors;
+        GraphSnapshot.write(outfile, this.getNNodes(), this.getNEdges(), offsets,
+                targets, this.originalId, compressed ? GraphSnapshot.COMPRESSED : 0);
     }
 
     /**
-     * Calcula e retorna o grau de um nó, identificado pelo seu índice. O grau é definido
-     * como o número de arestas de que um nó participa, ou, equivalentemente, o número de
-     * nós ligados a ele.
-     *
-     * @param node Índice do nó.
-     * @return Grau do nó.
+     * Versão de saveSnapshot() sem compressão.
+     * @param outfile Arquivo de saída.
      */
-    public int getDegree(int node) {
-        ArrayList<Integer> neighbors = this.getNeighbors(node);
-        return neighbors.size();
+    public void saveSnapshot(String outfile) throws IOException {
+        this.saveSnapshot(outfile, false);
     }
 
     /**
-     * Fornece alguns dados com caráter de "resumo numérico" sobre os valores
-     * dos graus dos nós -- nominalmente, os graus máximo, mínimo, médio e
-     * mediano do grafo.
-     *
-     * @return HashMap em que o índice "min" corresponde ao grau mínimo, "max" ao
-     * máximo, "mean" ao grau médio e "med" ao grau mediano.
+     * Monta a lista de adjacências comprimida a partir de uma CSR.
+     * @param offsets Offsets da CSR.
+     * @param targets Vizinhos da CSR.
+     * @param filepath Arquivo de entrada (só para mensagens de erro).
      */
-    public HashMap<String, Double> getDegreeOverview() {
-        HashMap<String, Double> data = new HashMap<String, Double>();
+    private void compressCSR(int[] offsets, int[] targets, String filepath)
+            throws InstantiationException {
+        try {
+            this.compressed = new CompressedAdjacency(this.nNodes, offsets, targets);
+        } catch (IllegalStateException exc) {
+            System.err.println(exc.getMessage() + " em " + filepath);
+            throw new InstantiationException("Grafo grande demais para a " +
+                    "lista comprimida; grafo nao instanciado");
+        }
 
-        data.put("mean",
-                2.0 * ((double) this.getNEdges()) / ((double) this.getNNodes()));
+        this.csrOffsets = null;
+        this.csrTargets = null;
+        this.csrWeights = null;
+    }
 
-        ArrayList<Double> degrees = new ArrayList<Double>();
+    /**
+     * Renumera os nós para que os que são visitados juntos fiquem próximos
+     * nos arrays internos: como os índices dos arquivos de entrada costumam
+     * ser arbitrários, os vizinhos de cada nó ficam espalhados pela memória,
+     * e quase todo acesso de uma busca é uma falta de cache. A representação
+     * é remontada na nova ordem, e a renumeração é transparente: todos os
+     * métodos continuam recebendo e retornando os índices originais. (Só a
+     * ordem em que a BFS e a DFS examinam os vizinhos muda, pois passa a ser
+     * a dos índices internos; os níveis e as distâncias não mudam.)
+     *
+     * O snapshot de um grafo renumerado (saveSnapshot()) guarda a
+     * renumeração, e o grafo carregado dele já vem renumerado.
+     *
+     * Só as representações CSR e COMPRESSED podem ser renumeradas (na
+     * comprimida, a renumeração também diminui as diferenças entre vizinhos
+     * e, portanto, os bytes por aresta).
+     * @param ordering ORDER_BFS (em geral a que mais acelera as buscas),
+     *                 ORDER_RCM (menor distância entre índices vizinhos, para
+     *                 grafos em forma de malha) ou ORDER_DEGREE.
+     * @throws IllegalStateException Se a lista comprimida renumerada não
+     *          couber num único array.
+     */
+    public void relabel(int ordering) {
+        if (ordering != ORDER_BFS && ordering != ORDER_RCM &&
+                ordering != ORDER_DEGREE) {
+            throw new IllegalArgumentException("Ordenacao invalida: " + ordering);
+        }
 
-        degrees.add(0.0);  // ignorando o índice 0
+        if (this.repr != CSR && this.repr != COMPRESSED) {
+            throw new UnsupportedOperationException("Renumeracao disponivel " +
+                    "so nas representacoes CSR e COMPRESSED");
+        }
 
         int n = this.getNNodes();
+        int[] offsets = this.csrOffsets;
+        int[] targets = this.csrTargets;
 
-        for (int i=1; i <= n; i++) {
-            double deg = (double) this.getDegree(i);
-            degrees.add(deg);
-        }
+        if (this.repr == COMPRESSED) {  // descomprimida só durante a renumeração
+            offsets = new int[n + 2];
 
-        Collections.sort(degrees);  // sorts in place
+            for (int v=1; v <= n; v++) {
+                offsets[v + 1] = offsets[v] + compressed.degree(v);
+            }
 
-        data.put("max", degrees.get(n));
-        data.put("min", degrees.get(1));  // pula o 0
+            targets = new int[offsets[n + 1]];
+            int[] buffer = new int[compressed.getMaxDegree()];
 
-        if (n % 2 == 0) {
-            data.put("med", (degrees.get(n/2) + degrees.get(n/2 + 1)) / 2);
+            for (int v=1; v <= n; v++) {
+                System.arraycopy(buffer, 0, targets, offsets[v],
+                        compressed.decode(v, buffer));
+            }
+        }
+
+        int[] order;
+
+        if (ordering == ORDER_BFS) {
+            order = VertexOrdering.bfs(n, offsets, targets);
+        } else if (ordering == ORDER_RCM) {
+            order = VertexOrdering.reverseCuthillMcKee(n, offsets, targets);
         } else {
-            data.put("med", degrees.get(n/2 + 1));
+            order = VertexOrdering.byDegree(n, offsets);
+        }
+
+        int[] rank = new int[n + 1];  // novo índice de cada nó
+
+        for (int k=1; k <= n; k++) {
+            rank[order[k]] = k;
+        }
+
+        int[] newOffsets = new int[n + 2];
+        int[] newTargets = new int[targets.length];
+        double[] newWeights = this.csrWeights == null ? null : new double[targets.length];
+
+        for (int k=1; k <= n; k++) {
+            int v = order[k];
+            int start = newOffsets[k];
+            int end = start + offsets[v + 1] - offsets[v];
+
+            for (int i=offsets[v], j=start; j < end; i++, j++) {
+                newTargets[j] = rank[targets[i]];
+
+                if (newWeights != null) {
+                    newWeights[j] = this.csrWeights[i];
+                }
+            }
+
+            // em ordem crescente, como na CSR
+            sortNeighbors(newTargets, newWeights, start, end);
+            newOffsets[k + 1] = end;
+        }
+
+        // Índice original de cada novo índice (composto com a renumeração
+        // anterior, se houver)
+        int[] labels = new int[n + 1];
+
+        for (int k=1; k <= n; k++) {
+            labels[k] = this.originalId == null ? order[k] : this.originalId[order[k]];
+        }
+
+        if (this.repr == CSR) {
+            this.csrOffsets = newOffsets;
+            this.csrTargets = newTargets;
+            this.csrWeights = newWeights;
+        } else {
+            this.compressed = new CompressedAdjacency(n, newOffsets, newTargets);
+        }
+
+        this.setLabels(labels);
+    }
+
+    /**
+     * @return Cópia da renumeração dos nós (ver relabel()): a posição v tem o
+     *          índice interno do nó v (a posição 0 não é usada); ou null, se
+     *          o grafo não foi renumerado.
+     */
+    public int[] getPermutation() {
+        return this.internalId == null ? null :
+                Arrays.copyOf(this.internalId, this.internalId.length);
+    }
+
+    /**
+     * Monta a representação por matriz de adjacências.
+     * @param edges Arestas lidas do arquivo de entrada.
+     * @param filepath Arquivo de entrada (só para mensagens de erro).
+     */
+    private void buildMatrix(EdgeList edges, String filepath) throws InstantiationException {
+        this.adjList = null;
+
+        long matrixBytes = estimateMatrixBytes(this.getNNodes());
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() -
+                runtime.freeMemory());
+
+        if (matrixBytes > available) {
+            // Melhor avisar logo do que estourar a heap no meio da
+            // alocação
+            System.err.println("Matriz de adjacencias de " + filepath +
+                    " exigiria " + matrixBytes / 1024 + " KB; " +
+                    "disponiveis: " + available / 1024 + " KB");
+            throw new InstantiationException("Matriz de adjacencias " +
+                    "nao cabe na memoria; grafo nao instanciado");
+        }
+
+        // Inicializa matriz de adjacência com zeros (o Java já zera os arrays
+        // na alocação)
+        int words = matrixWords(this.getNNodes());
+        this.adjMatrix = new long[this.getNNodes() + 1][words];
+        this.matrixDegrees = new int[this.getNNodes() + 1];
+
+        for (int e=0; e < edges.size(); e++) {
+            int node1 = edges.getNode1(e);
+            int node2 = edges.getNode2(e);
+
+            // O grau só aumenta se o bit ainda não estava ligado (arestas
+            // repetidas e a volta de um laço não contam de novo)
+            if ((this.adjMatrix[node1][node2 >>> 6] & (1L << node2)) == 0) {
+                this.adjMatrix[node1][node2 >>> 6] |= 1L << node2;
+                this.matrixDegrees[node1]++;
+            }
+
+            if ((this.adjMatrix[node2][node1 >>> 6] & (1L << node1)) == 0) {
+                this.adjMatrix[node2][node1 >>> 6] |= 1L << node1;
+                this.matrixDegrees[node2]++;
+            }
+            // (o shift de long em Java já usa só os 6 bits menos
+            // significativos, ou seja, 1L << node2 == 1L << (node2 % 64))
+        }
+    }
+
+    /**
+     * Monta a representação por lista de adjacências.
+     * @param edges Arestas lidas do arquivo de entrada.
+     */
+    private void buildList(EdgeList edges) {
+        this.adjMatrix = null;
+        this.adjList = new ArrayList<LinkedList<Integer>>();
+
+        // Inicializa lista de adjacências sem vizinhos
+        for (int i=0; i <= this.getNNodes(); i++) {
+            LinkedList<Integer> ll = new LinkedList<Integer>();
+            ll.add(i);
+
+            this.adjList.add(ll);
+        }
+
+        for (int e=0; e < edges.size(); e++) {
+            int node1 = edges.getNode1(e);
+            int node2 = edges.getNode2(e);
+
+            this.adjList.get(node1).add(node2);
+            this.adjList.get(node2).add(node1);
+        }
+
+        // Vizinhos em ordem crescente (depois do próprio nó, na posição 0),
+        // como na CSR e na matriz: as buscas não precisam mais ordená-los
+        for (LinkedList<Integer> ll : this.adjList) {
+            ll.subList(1, ll.size()).sort(null);
+        }
+    }
+
+    /**
+     * Versão paralela de buildCSR(), para arestas lidas em vários trechos. Os
+     * nós são divididos em blocos contíguos (alguns por thread), e a montagem
+     * é feita em três fases:
+     * 1. cada trecho conta, em paralelo, quantas pontas de aresta caem em
+     *    cada bloco;
+     * 2. com uma soma de prefixos sobre essas contagens, cada trecho sabe
+     *    onde escrever as suas arestas num array temporário agrupado por
+     *    bloco, e as distribui em paralelo;
+     * 3. cada bloco, com suas arestas agora contíguas, calcula os graus e
+     *    offsets dos seus nós, preenche o seu pedaço de csrTargets e ordena os
+     *    vizinhos, independentemente dos outros blocos.
+     * Toda posição de memória é escrita por uma única thread, sem incrementos
+     * atômicos: testamos com AtomicIntegerArray e cada getAndIncrement em
+     * posição aleatória custava umas 10 vezes uma escrita comum. Como os
+     * trechos são processados na ordem do arquivo, cada nó recebe os vizinhos
+     * na mesma ordem da versão sequencial, e o resultado é idêntico.
+     * @param parts Arestas lidas de cada trecho do arquivo de entrada. As
+     *              posições do array são liberadas (null) no meio do caminho,
+     *              para não ocupar memória junto com o array temporário.
+     * @param nThreads Número de threads.
+     */
+    private void buildCSRParallel(EdgeList[] parts, int nThreads) {
+        this.adjMatrix = null;
+        this.adjList = null;
+
+        int n = this.nNodes;
+        int nParts = parts.length;
+
+        // Blocos com 2^shift nós (para o bloco de um nó sair de um shift),
+        // cerca de 4 por thread, para equilibrar a carga na fase 3
+        int shift = 0;
+
+        while (((long) n >>> shift) > 4L * nThreads) {
+            shift++;
+        }
+
+        final int blockShift = shift;
+        final int nBlocks = Math.max(1, ((n - 1) >>> shift) + 1);
+
+        // Fase 1: contagem por trecho e bloco
+        int[][] cursor = new int[nParts][nBlocks];
+
+        Parallel.run(nParts, t -> {
+            EdgeList part = parts[t];
+            int[] count = cursor[t];
+
+            for (int e=0; e < part.size(); e++) {
+                count[(part.getNode1(e) - 1) >>> blockShift]++;
+                count[(part.getNode2(e) - 1) >>> blockShift]++;
+            }
+        });
+
+        // Soma de prefixos (bloco por bloco e, dentro de cada um, trecho por
+        // trecho); as contagens viram a posição inicial de cada par
+        int[] blockStart = new int[nBlocks + 1];
+        int pos = 0;
+
+        for (int b=0; b < nBlocks; b++) {
+            blockStart[b] = pos;
+
+            for (int t=0; t < nParts; t++) {
+                int count = cursor[t][b];
+                cursor[t][b] = pos;
+                pos += count;
+            }
+        }
+
+        blockStart[nBlocks] = pos;
+
+        // Fase 2: distribuição por bloco; cada ponta vai como um long com a
+        // origem nos 32 bits mais significativos e o destino nos outros
+        long[] arcs = new long[2 * this.nEdges];
+
+        Parallel.run(nParts, t -> {
+            EdgeList part = parts[t];
+            int[] next = cursor[t];
+
+            for (int e=0; e < part.size(); e++) {
+                long node1 = part.getNode1(e);
+                long node2 = part.getNode2(e);
+
+                arcs[next[(int) (node1 - 1) >>> blockShift]++] = node1 << 32 | node2;
+                arcs[next[(int) (node2 - 1) >>> blockShift]++] = node2 << 32 | node1;
+            }
+        });
+
+        Arrays.fill(parts, null);  // as arestas já estão todas em arcs
+
+        // Fase 3: cada bloco monta o seu pedaço da CSR
+        this.csrOffsets = new int[n + 2];
+        this.csrTargets = new int[arcs.length];
+
+        Parallel.run(nThreads, w -> {
+            int[] next = new int[1 << blockShift];  // reaproveitado entre blocos
+
+            for (int b=w; b < nBlocks; b += nThreads) {
+                int first = 1 + (b << blockShift);
+                int last = Math.min(n, (b + 1) << blockShift);
+                int size = last - first + 1;
+
+                Arrays.fill(next, 0, size, 0);
+
+                for (int a=blockStart[b]; a < blockStart[b + 1]; a++) {
+                    next[(int) (arcs[a] >>> 32) - first]++;
+                }
+
+                int running = blockStart[b];
+
+                for (int i=0; i < size; i++) {
+                    int degree = next[i];
+                    this.csrOffsets[first + i] = running;
+                    next[i] = running;
+                    running += degree;
+                }
+
+                for (int a=blockStart[b]; a < blockStart[b + 1]; a++) {
+                    int node1 = (int) (arcs[a] >>> 32);
+                    this.csrTargets[next[node1 - first]++] = (int) arcs[a];
+                }
+
+                // (next[i] terminou no fim do trecho do nó first + i; o
+                // offset de last + 1 pode ainda não ter sido escrito pela
+                // thread do bloco seguinte)
+                for (int i=0; i < size; i++) {
+                    Arrays.sort(this.csrTargets, this.csrOffsets[first + i],
+                            next[i]);
+                }
+            }
+        });
+
+        this.csrOffsets[n + 1] = arcs.length;
+    }
+
+    /**
+     * Quantidade de palavras de 64 bits por linha da matriz de adjacências,
+     * considerando as colunas de 0 a nNodes (a 0 fica sem uso, como nas
+     * outras representações).
+     * @param nNodes Número de nós do grafo.
+     * @return Número de longs em cada linha.
+     */
+    private static int matrixWords(int nNodes) {
+        return (nNodes + 1 + 63) >>> 6;
+    }
+
+    /**
+     * Estima a memória ocupada pela matriz de adjacências de um grafo com o
+     * número de nós dado (incluindo o cabeçalho de cada array de linha), para
+     * que se possa verificar de antemão se ela cabe na heap.
+     * @param nNodes Número de nós do grafo.
+     * @return Estimativa em bytes.
+     */
+    public static long estimateMatrixBytes(int nNodes) {
+        long rowBytes = 16L + 8L * matrixWords(nNodes);
+        return (nNodes + 1L) * (rowBytes + 8);  // + referência a cada linha
+    }
+
+    /**
+     * Monta a representação CSR a partir das arestas lidas, em duas passadas:
+     * a primeira só conta o grau de cada nó, para que os offsets sejam
+     * calculados por soma de prefixos, e a segunda espalha cada aresta nas
+     * posições já reservadas para as suas duas pontas. Assim os arrays são
+     * alocados uma única vez, já no tamanho exato, e nenhum índice de vértice
+     * é "encaixotado" num Integer.
+     * @param edges Arestas lidas do arquivo de entrada.
+     * @param filepath Arquivo de entrada (só para mensagens de erro).
+     */
+    private void buildCSR(EdgeList edges, String filepath) throws InstantiationException {
+        this.adjMatrix = null;
+        this.adjList = null;
+
+        if (2L * this.nEdges > Integer.MAX_VALUE) {
+            System.err.println("Arestas demais para a representacao CSR " +
+                    "em " + filepath);
+            throw new InstantiationException("Grafo grande demais para a " +
+                    "representacao CSR; grafo nao instanciado");
+        }
+
+        // 1a passada: graus
+        int[] degree = new int[this.nNodes + 2];
+
+        for (int e=0; e < edges.size(); e++) {
+            degree[edges.getNode1(e)]++;
+            degree[edges.getNode2(e)]++;
+        }
+
+        // Soma de prefixos: os vizinhos de v começam logo depois dos de v - 1
+        this.csrOffsets = new int[this.nNodes + 2];
+
+        for (int v=1; v <= this.nNodes + 1; v++) {
+            this.csrOffsets[v] = this.csrOffsets[v - 1] + degree[v - 1];
+        }
+
+        // 2a passada: espalhando as arestas; degree é reaproveitado como a
+        // próxima posição livre de cada nó
+        this.csrTargets = new int[2 * this.nEdges];
+        System.arraycopy(this.csrOffsets, 0, degree, 0, this.nNodes + 2);
+
+        // Pesos só na CSR propriamente dita (a comprimida é montada a partir
+        // desta e os descarta)
+        double[] weights = this.repr == CSR && edges.hasWeights()
+                ? new double[2 * this.nEdges] : null;
+
+        for (int e=0; e < edges.size(); e++) {
+            int node1 = edges.getNode1(e);
+            int node2 = edges.getNode2(e);
+
+            if (weights != null) {
+                weights[degree[node1]] = edges.getWeight(e);
+                weights[degree[node2]] = edges.getWeight(e);
+            }
+
+            this.csrTargets[degree[node1]++] = node2;
+            this.csrTargets[degree[node2]++] = node1;
+        }
+
+        // Vizinhos em ordem crescente (a DFS depende disso, e a varredura fica
+        // sequencial na memória)
+        for (int v=1; v <= this.nNodes; v++) {
+            sortNeighbors(this.csrTargets, weights, this.csrOffsets[v],
+                    this.csrOffsets[v + 1]);
+        }
+
+        this.setWeights(weights);
+    }
+
+    /**
+     * Ordena os vizinhos de um nó na CSR, levando junto os pesos.
+     * @param targets Vizinhos da CSR.
+     * @param weights Pesos da CSR (ou null).
+     * @param from Início do trecho do nó (inclusive).
+     * @param to Fim do trecho do nó (exclusive).
+     */
+    private static void sortNeighbors(int[] targets, double[] weights, int from, int to) {
+        if (weights == null) {
+            Arrays.sort(targets, from, to);
+            return;
+        }
+
+        int i0 = from + 1;
+
+        while (i0 < to && targets[i0 - 1] <= targets[i0]) {
+            i0++;
+        }
+
+        if (i0 >= to) {
+            return;  // já em ordem (o caso comum em arquivos ordenados)
+        }
+
+        // Ordena pares (vizinho, posição original) empacotados em longs e
+        // depois aplica a permutação aos pesos
+        long[] pairs = new long[to - from];
+
+        for (int i=from; i < to; i++) {
+            pairs[i - from] = (long) targets[i] << 32 | (i - from);
+        }
+
+        Arrays.sort(pairs);
+
+        double[] original = Arrays.copyOfRange(weights, from, to);
+
+        for (int i=from; i < to; i++) {
+            targets[i] = (int) (pairs[i - from] >>> 32);
+            weights[i] = original[(int) pairs[i - from]];
+        }
+    }
+
+    /**
+     * Guarda os pesos da CSR e verifica se são todos inteiros e se há algum
+     * negativo.
+     * @param weights Pesos, na mesma ordem de csrTargets (ou null).
+     */
+    private void setWeights(double[] weights) {
+        this.csrWeights = weights;
+        this.integerWeights = weights != null;
+        this.negativeWeights = false;
+
+        if (weights != null) {
+            for (double w : weights) {
+                if (w < 0) {
+                    this.negativeWeights = true;
+                }
+
+                if (w != Math.rint(w) || w > 1L << 40) {
+                    this.integerWeights = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna a quantidade de nós do grafo.
+     * @return Número de nós.
+     */
+    public int getNNodes() {
+        return nNodes;
+    }
+
+    /**
+     * Retorna a quantidade de arestas do grafo.
+     * @return Número de arestas.
+     */
+    public int getNEdges() {
+        return nEdges;
+    }
+
+    /**
+     * Fornece dados sobre o desempenho da leitura do arquivo de entrada.
+     *
+     * @return HashMap em que o índice "bytes" corresponde ao tamanho do
+     * arquivo, "edges" ao número de arestas lidas, "parseSeconds" ao tempo
+     * de leitura e interpretação do arquivo, "buildSeconds" ao tempo de
+     * montagem da representação, e "bytesPerSec" e "edgesPerSec" às taxas
+     * de leitura (considerando só o tempo de leitura e interpretação).
+     */
+    public HashMap<String, Double> getLoadStats() {
+        HashMap<String, Double> data = new HashMap<String, Double>();
+
+        double parseSeconds = this.parseNanos / 1e9;
+
+        data.put("bytes", (double) this.loadBytes);
+        data.put("edges", (double) this.getNEdges());
+        data.put("parseSeconds", parseSeconds);
+        data.put("buildSeconds", this.buildNanos / 1e9);
+        data.put("bytesPerSec", this.loadBytes / parseSeconds);
+        data.put("edgesPerSec", this.getNEdges() / parseSeconds);
+
+        return data;
+    }
+
+    /**
+     * Retorna o nome do arquivo de texto que deu origem ao grafo.
+     *
+     * @return Nome do arquivo (com caminho absoluto ou a partir da raiz do
+     * diretório de trabalho, conforme tenha sido fornecido).
+     */
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    /**
+     * Retorna os vizinhos de um nó num formato unificado para todas as
+     * representações (matriz, lista e CSR), para possibilitar a composição com outros métodos.
+     * Os vizinhos vêm sempre em ordem crescente: a lista de adjacência é
+     * ordenada na construção, então, na representação de lista, a ordem não
+     * é mais a do arquivo de entrada (no pdf.txt, o nó 5 dá [1, 2, 3, 4], e
+     * não [2, 3, 4, 1]).
+     *
+     * Discutimos sobre potenciais ineficiências introduzidas por essa
+     * abstração, que pode acabar exigindo uma etapa extra de conversão, e
+     * ficamos em dúvida se o uso desse método na BFS e DFS seria
+     * incompatível com o trabalho, já que foi pedido que medíssemos o tempo
+     * separadamente para cada forma de representação. (Por um lado, este
+     * método poderia ter um efeito "uniformizador"; por outro lado, ele
+     * próprio é executado de forma diferente para cada forma de
+     * representação, então pode ser que a diferença se mantivesse.)
+     *
+     * Hoje nem a BFS nem a DFS o usam: as duas percorrem diretamente a
+     * estrutura de cada representação, sem montar um ArrayList por nó.
+     *
+     * @param node Índice do nó.
+     * @return ArrayList de inteiros, com os índices dos vizinhos do nó.
+     */
+    public ArrayList<Integer> getNeighbors(int node) {
+        this.requireAdjacency();
+
+        if (this.internalId == null) {
+            return this.neighborsOf(node);
+        }
+
+        // Grafo renumerado: vizinhos convertidos para os índices originais e
+        // postos de volta em ordem crescente
+        ArrayList<Integer> neighbors = this.neighborsOf(this.internalId[node]);
+        int[] sorted = new int[neighbors.size()];
+
+        for (int i=0; i < sorted.length; i++) {
+            sorted[i] = this.originalId[neighbors.get(i)];
+        }
+
+        Arrays.sort(sorted);
+
+        for (int i=0; i < sorted.length; i++) {
+            neighbors.set(i, sorted[i]);
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * Vizinhos de um nó, nos índices internos (ver getNeighbors()).
+     * @param node Índice interno do nó.
+     * @return ArrayList com os índices internos dos vizinhos.
+     */
+    private ArrayList<Integer> neighborsOf(int node) {
+        ArrayList<Integer> neighbors;
+
+        if (this.repr == CSR) {
+            int start = csrOffsets[node];
+            int end = csrOffsets[node + 1];
+            neighbors = new ArrayList<Integer>(end - start);
+
+            for (int i=start; i < end; i++) {
+                neighbors.add(csrTargets[i]);
+            }
+        } else if (this.repr == COMPRESSED) {
+            int[] buffer = new int[compressed.getMaxDegree()];
+            int degree = compressed.decode(node, buffer);
+            neighbors = new ArrayList<Integer>(degree);
+
+            for (int i=0; i < degree; i++) {
+                neighbors.add(buffer[i]);
+            }
+        } else if (this.repr == OFFHEAP) {
+            int start = offHeap.offset(node);
+            int end = offHeap.offset(node + 1);
+            neighbors = new ArrayList<Integer>(end - start);
+
+            for (int i=start; i < end; i++) {
+                neighbors.add(offHeap.target(i));
+            }
+        } else if (this.repr == MATRIX) {
+            neighbors = new ArrayList<Integer>();
+            long[] mtxRow = adjMatrix[node];
+
+            // Percorre apenas os bits ligados de cada palavra: o menor é
+            // localizado por numberOfTrailingZeros e apagado com word & (word - 1)
+            for (int k=0; k < mtxRow.length; k++) {
+                long word = mtxRow[k];
+
+                while (word != 0) {
+                    neighbors.add((k << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        } else {
+            LinkedList<Integer> ll = adjList.get(node);
+            neighbors = new ArrayList<Integer>(ll);
+            neighbors.remove(0); // o próprio nó
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * Calcula e retorna o grau de um nó, identificado pelo seu índice. O grau é definido
+     * como o número de arestas de que um nó participa, ou, equivalentemente, o número de
+     * nós ligados a ele.
+     *
+     * @param node Índice do nó.
+     * @return Grau do nó.
+     */
+    public int getDegree(int node) {
+        this.requireAdjacency();
+
+        return this.degreeOf(this.internalId == null ? node : this.internalId[node]);
+    }
+
+    /**
+     * Grau de um nó, pelo índice interno (ver getDegree()).
+     * @param node Índice interno do nó.
+     * @return Grau do nó.
+     */
+    private int degreeOf(int node) {
+        if (this.repr == CSR) {
+            return csrOffsets[node + 1] - csrOffsets[node];  // sem cópia
+        }
+
+        if (this.repr == OFFHEAP) {
+            return offHeap.degree(node);
+        }
+
+        if (this.repr == COMPRESSED) {
+            return compressed.degree(node);
+        }
+
+        if (this.repr == MATRIX) {
+            return matrixDegrees[node];
+        }
+
+        return adjList.get(node).size() - 1;  // sem o próprio nó
+    }
+
+    /**
+     * Fornece alguns dados com caráter de "resumo numérico" sobre os valores
+     * dos graus dos nós -- nominalmente, os graus máximo, mínimo, médio e
+     * mediano do grafo.
+     *
+     * Os graus não são ordenados: a mediana sai da distribuição de graus
+     * (ver getDegreeDistribution()), uma contagem por valor de grau, em O(n).
+     *
+     * @return HashMap em que o índice "min" corresponde ao grau mínimo, "max" ao
+     * máximo, "mean" ao grau médio e "med" ao grau mediano.
+     */
+    public HashMap<String, Double> getDegreeOverview() {
+        HashMap<String, Double> data = new HashMap<String, Double>();
+
+        data.put("mean",
+                2.0 * ((double) this.getNEdges()) / ((double) this.getNNodes()));
+
+        int[] distribution = this.degreeCounts();
+        int n = this.getNNodes();
+
+        data.put("max", (double) (distribution.length - 1));
+        data.put("min", (double) kthDegree(distribution, 1));
+
+        if (n % 2 == 0) {
+            data.put("med", (kthDegree(distribution, n/2) +
+                    kthDegree(distribution, n/2 + 1)) / 2.0);
+        } else {
+            data.put("med", (double) kthDegree(distribution, n/2 + 1));
+        }
+
+        return data;
+    }
+
+    /**
+     * Retorna a distribuição dos graus do grafo.
+     * @return Array em que a posição d tem o número de nós de grau d (o
+     *          comprimento é o grau máximo mais 1).
+     */
+    public int[] getDegreeDistribution() {
+        int[] distribution = this.degreeCounts();
+
+        return Arrays.copyOf(distribution, distribution.length);
+    }
+
+    /**
+     * Calcula um percentil dos graus (pelo método do posto mais próximo:
+     * o menor grau d tal que pelo menos p% dos nós têm grau até d).
+     * @param p Percentual, de 0 a 100 (50 dá a mediana "inferior"; 100, o
+     *          grau máximo).
+     * @return Grau correspondente ao percentil.
+     */
+    public int getDegreePercentile(double p) {
+        if (!(p >= 0 && p <= 100)) {
+            throw new IllegalArgumentException("Percentil fora do intervalo " +
+                    "0..100: " + p);
+        }
+
+        int n = this.getNNodes();
+        int k = (int) Math.max(1, Math.ceil(p / 100 * n));
+
+        return kthDegree(this.degreeCounts(), Math.min(k, n));
+    }
+
+    /**
+     * Agrupa os graus em faixas de mesma largura.
+     * @param binWidth Largura das faixas (1 dá a própria distribuição).
+     * @return Array em que a posição i tem o número de nós com grau entre
+     *          i * binWidth e (i + 1) * binWidth - 1.
+     */
+    public int[] getDegreeHistogram(int binWidth) {
+        if (binWidth < 1) {
+            throw new IllegalArgumentException("binWidth deve ser positivo");
+        }
+
+        int[] distribution = this.degreeCounts();
+        int[] histogram = new int[(distribution.length - 1) / binWidth + 1];
+
+        for (int d=0; d < distribution.length; d++) {
+            histogram[d / binWidth] += distribution[d];
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Conta os nós de cada grau (counting sort dos graus), uma única vez.
+     * Pode ser chamado por várias threads: no pior caso, mais de uma
+     * calcula a mesma distribuição, e o campo volátil publica o array já
+     * preenchido.
+     * @return Distribuição dos graus (não deve ser alterada).
+     */
+    private int[] degreeCounts() {
+        int[] distribution = this.degreeDistribution;
+
+        if (distribution == null) {
+            int n = this.getNNodes();
+            int maxDegree = 0;
+
+            for (int i=1; i <= n; i++) {
+                maxDegree = Math.max(maxDegree, this.getDegree(i));
+            }
+
+            distribution = new int[maxDegree + 1];
+
+            for (int i=1; i <= n; i++) {
+                distribution[this.getDegree(i)]++;
+            }
+
+            this.degreeDistribution = distribution;
+        }
+
+        return distribution;
+    }
+
+    /**
+     * @param distribution Distribuição dos graus.
+     * @param k Posição, de 1 ao número de nós.
+     * @return k-ésimo menor grau.
+     */
+    private static int kthDegree(int[] distribution, int k) {
+        int d = 0;
+
+        for (int acc = distribution[0]; acc < k; acc += distribution[d]) {
+            d++;
+        }
+
+        return d;
+    }
+
+    /**
+     * Calcula e retorna a distância entre dois nós, definida como o comprimento do caminho
+     * mais curto entre eles. O comprimento de um caminho é seu número de arestas.
+     *
+     * Usa uma BFS bidirecional (ver meetInTheMiddle()), que em grafos de
+     * diâmetro pequeno costuma visitar uma fração mínima dos nós que a BFS a
+     * partir de node1 visitaria até encontrar node2.
+     * @param node1 Índice de um nó.
+     * @param node2 Índice de um nó.
+     * @return Distância entre node1 e node2; retorna -1 se esta for infinita.
+     */
+    public int calcDistance(int node1, int node2) {
+        TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(this.getNNodes());
+        long meeting = this.meetInTheMiddle(this.toInternal(node1),
+                this.toInternal(node2), workspace);
+
+        if (meeting < 0) {
+            return -1;  // não conectados (distância seria infinita)
+        }
+
+        int[] level = workspace.getResult().levelArray();
+
+        // níveis de lados opostos têm sinais opostos (ver meetInTheMiddle())
+        return Math.abs(level[(int) (meeting >>> 32)] - level[(int) meeting]);
+    }
+
+    /**
+     * Calcula de uma vez as distâncias de vários pares de nós,
+     * compartilhando as buscas entre os pares que têm um nó em comum.
+     *
+     * Como o grafo é não direcionado, cada par é atribuído à ponta que
+     * aparece em mais pares (a sua "raiz"), e os pares são agrupados pela
+     * raiz. Os pares de cada grupo são resolvidos com a BFS bidirecional de
+     * calcDistance() enquanto o total de arcos percorridos por elas não
+     * passa do número de arcos do grafo (o custo de uma BFS completa); a
+     * partir daí, os que restam saem de uma única BFS a partir da raiz,
+     * interrompida assim que todos eles são encontrados. Em grafos de
+     * diâmetro pequeno, as buscas bidirecionais costumam percorrer tão
+     * poucos arcos que a BFS compartilhada nem chega a ser feita; em grafos de
+     * diâmetro grande (malhas, estradas), a troca acontece logo, e o grupo
+     * custa no máximo umas duas BFS completas. Os grupos são divididos entre
+     * as threads.
+     * @param sources Primeiro nó de cada par.
+     * @param targets Segundo nó de cada par (do mesmo tamanho que sources).
+     * @param nThreads Número de threads (se menor que 1, usa o número de
+     *                 processadores disponíveis).
+     * @return Distância de cada par, na ordem da entrada (-1 para os pares
+     *          não conectados).
+     */
+    public int[] calcDistances(int[] sources, int[] targets, int nThreads) {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("sources e targets devem ter " +
+                    "o mesmo tamanho (" + sources.length + " e " +
+                    targets.length + ")");
+        }
+
+        int n = this.getNNodes();
+        int nPairs = sources.length;
+
+        for (int i=0; i < nPairs; i++) {
+            if (sources[i] < 1 || sources[i] > n || targets[i] < 1 || targets[i] > n) {
+                throw new IndexOutOfBoundsException("Par (" + sources[i] + ", " +
+                        targets[i] + ") fora do grafo (nos de 1 a " + n + ")");
+            }
+        }
+
+        // Número de pares em que cada nó aparece, por busca binária nas
+        // pontas distintas ordenadas (sem array do tamanho do grafo)
+        int[] ends = new int[2 * nPairs];
+
+        for (int i=0; i < nPairs; i++) {
+            ends[2 * i] = sources[i];
+            ends[2 * i + 1] = targets[i];
+        }
+
+        Arrays.sort(ends);
+
+        // Pontas distintas e o tamanho da sequência de cada uma, numa
+        // passada (ends é reaproveitado para as pontas distintas)
+        int[] runLengths = new int[ends.length];
+        int nDistinct = 0;
+
+        for (int j=0; j < ends.length; j++) {
+            if (j == 0 || ends[j] != ends[j - 1]) {
+                ends[nDistinct++] = ends[j];
+            }
+
+            runLengths[nDistinct - 1]++;
+        }
+
+        // Pares ordenados pela raiz, como (raiz << 32) | posição na entrada
+        long[] byRoot = new long[nPairs];
+
+        for (int i=0; i < nPairs; i++) {
+            int a = sources[i];
+            int b = targets[i];
+            int countA = runLengths[Arrays.binarySearch(ends, 0, nDistinct, a)];
+            int countB = runLengths[Arrays.binarySearch(ends, 0, nDistinct, b)];
+            int root = countA > countB || (countA == countB && a <= b) ? a : b;
+
+            byRoot[i] = (long) root << 32 | i;
+        }
+
+        Arrays.sort(byRoot);
+
+        // Início de cada grupo em byRoot
+        int[] groupStarts = new int[nPairs + 1];
+        int nGroups = 0;
+
+        for (int i=0; i < nPairs; i++) {
+            if (i == 0 || byRoot[i] >>> 32 != byRoot[i - 1] >>> 32) {
+                groupStarts[nGroups++] = i;
+            }
+        }
+
+        groupStarts[nGroups] = nPairs;
+
+        int[] distances = new int[nPairs];
+        int nWorkers = Math.min(Parallel.resolveThreads(nThreads), Math.max(nGroups, 1));
+        final int nGroupsF = nGroups;
+
+        // Grau máximo calculado antes de as threads começarem (também deixa
+        // pronta a distribuição dos graus usada por meetInTheMiddle())
+        int maxDegree = this.degreeCounts().length - 1;
+
+        // Grupos intercalados entre as threads (os grupos vêm em ordem de
+        // raiz, sem relação com o custo de cada um)
+        Parallel.run(nWorkers, w -> {
+            TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(n);
+
+            for (int g=w; g < nGroupsF; g += nWorkers) {
+                this.solveGroup(byRoot, groupStarts[g], groupStarts[g + 1],
+                        sources, targets, distances, maxDegree, workspace);
+            }
+        });
+
+        return distances;
+    }
+
+    /**
+     * Versão sequencial de calcDistances().
+     * @param sources Primeiro nó de cada par.
+     * @param targets Segundo nó de cada par.
+     * @return Distância de cada par, na ordem da entrada (-1 para os pares
+     *          não conectados).
+     */
+    public int[] calcDistances(int[] sources, int[] targets) {
+        return this.calcDistances(sources, targets, 1);
+    }
+
+    /**
+     * Resolve um grupo de pares de calcDistances() com a mesma raiz.
+     * @param byRoot Pares ordenados pela raiz.
+     * @param from Início do grupo em byRoot (inclusive).
+     * @param to Fim do grupo em byRoot (exclusive).
+     * @param maxDegree Grau máximo do grafo (tamanho do buffer de vizinhos).
+     */
+    private void solveGroup(long[] byRoot, int from, int to, int[] sources,
+                            int[] targets, int[] distances, int maxDegree,
+                            TraversalWorkspace workspace) {
+        int root = (int) (byRoot[from] >>> 32);
+        long scanned = 0;
+        long budget = 2L * this.getNEdges();
+
+        for (; from < to && scanned <= budget; from++) {
+            int i = (int) byRoot[from];
+            int other = sources[i] == root ? targets[i] : sources[i];
+            long meeting = this.meetInTheMiddle(this.toInternal(root),
+                    this.toInternal(other), workspace);
+            int[] level = workspace.getResult().levelArray();
+
+            distances[i] = meeting < 0 ? -1 : Math.abs(
+                    level[(int) (meeting >>> 32)] - level[(int) meeting]);
+            scanned += workspace.getNScanned();
+        }
+
+        if (from == to) {
+            return;
+        }
+
+        // BFS da raiz para os pares restantes, nível a nível; depois de cada
+        // nível, o cursor avança pelos alvos já marcados, e a busca para
+        // quando passa do último
+        int origin = this.toInternal(root);
+        TraversalResult result = this.prepareResult(workspace, origin);
+
+        int[] parent = result.parentArray();
+        int[] level = result.levelArray();
+        int[] queue = result.orderArray();
+        int[] stamp = result.stampArray();
+        int epoch = result.epoch();
+        int[] neighbors = workspace.neighborBuffer(maxDegree);
+
+        stamp[origin] = epoch;
+        parent[origin] = 0;
+        level[origin] = 0;
+        queue[0] = origin;
+        int head = 0;
+        int tail = 1;
+        int cursor = from;
+
+        while (true) {
+            while (cursor < to) {
+                int i = (int) byRoot[cursor];
+                int other = sources[i] == root ? targets[i] : sources[i];
+
+                if (stamp[this.toInternal(other)] != epoch) {
+                    break;
+                }
+
+                cursor++;
+            }
+
+            if (cursor == to || head == tail) {
+                break;
+            }
+
+            for (int end = tail; head < end; head++) {
+                int v = queue[head];
+                int degree = this.neighborsInto(v, neighbors);
+
+                for (int j=0; j < degree; j++) {
+                    int w = neighbors[j];
+
+                    if (stamp[w] != epoch) {
+                        stamp[w] = epoch;
+                        parent[w] = v;
+                        level[w] = level[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        result.setNReached(tail);
+
+        for (int k=from; k < to; k++) {
+            int i = (int) byRoot[k];
+            int other = this.toInternal(sources[i] == root ? targets[i] : sources[i]);
+
+            distances[i] = stamp[other] == epoch ? level[other] : -1;
+        }
+    }
+
+    /**
+     * Encontra um caminho mais curto entre dois nós, com a mesma BFS
+     * bidirecional de calcDistance().
+     * @param node1 Índice do nó de partida.
+     * @param node2 Índice do nó de chegada.
+     * @return Nós do caminho, de node1 a node2 (inclusive); vazio se não
+     *          houver caminho entre eles.
+     */
+    public ArrayList<Integer> findShortestPath(int node1, int node2) {
+        TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(this.getNNodes());
+        long meeting = this.meetInTheMiddle(this.toInternal(node1),
+                this.toInternal(node2), workspace);
+        ArrayList<Integer> path = new ArrayList<Integer>();
+
+        if (meeting < 0) {
+            return path;
+        }
+
+        int[] parent = workspace.getResult().parentArray();
+
+        // Da aresta de encontro até node1 (de trás para frente) e depois até
+        // node2; as raízes dos dois lados têm pai 0
+        for (int v = (int) (meeting >>> 32); v != 0; v = parent[v]) {
+            path.add(this.originalId == null ? v : this.originalId[v]);
+        }
+
+        Collections.reverse(path);
+
+        for (int v = (int) meeting; v != 0 && v != (int) (meeting >>> 32); v = parent[v]) {
+            path.add(this.originalId == null ? v : this.originalId[v]);
+        }
+
+        return path;
+    }
+
+    /**
+     * @return Se o grafo tem pesos nas arestas (lidos do arquivo de entrada
+     *          e guardados na representação CSR).
+     */
+    public boolean isWeighted() {
+        return this.csrWeights != null;
+    }
+
+    /**
+     * Implementa o algoritmo de Dijkstra a partir do vértice de origem
+     * especificado, calculando a distância (soma dos pesos do caminho
+     * mínimo) de cada nó até ela e a árvore de caminhos mínimos.
+     * Interrompe a busca quando a distância do vértice-alvo fica definitiva,
+     * caso ele exista e esteja ligado à origem por algum caminho.
+     *
+     * A fila de prioridade guarda só índices e distâncias primitivos: com
+     * pesos inteiros, é um radix heap (ver RadixHeap), que aproveita o fato
+     * de as distâncias retiradas nunca diminuírem; com pesos reais, um heap
+     * indexado de aridade 4 (ver DaryHeap), com diminuição de chave no
+     * lugar.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param goal Índice do vértice buscado (-1 para calcular as distâncias
+     *             a toda a componente da origem).
+     * @param result Resultado a ser preenchido, que pode ser reaproveitado de
+     *               uma busca anterior. Se for null, um novo é criado.
+     * @return O próprio result (ou o novo resultado, se result for null).
+     * @throws UnsupportedOperationException Se o grafo não tem pesos (ou não
+     *          está na representação CSR).
+     * @throws IllegalStateException Se algum peso é negativo (o Dijkstra
+     *          exige pesos não negativos).
+     */
+    public ShortestPaths dijkstra(int origin, int goal, ShortestPaths result) {
+        this.requireWeights(true);
+
+        if (result == null) {
+            result = new ShortestPaths(this.getNNodes());
+        } else if (result.capacity() < this.getNNodes()) {
+            throw new IllegalArgumentException("ShortestPaths com " +
+                    "capacidade para " + result.capacity() + " nos; o grafo " +
+                    "tem " + this.getNNodes());
+        }
+
+        result.setLabels(this.internalId, this.originalId);
+        this.dijkstraInternal(this.toInternal(origin), this.toInternal(goal), result);
+
+        return result;
+    }
+
+    /**
+     * Versão de dijkstra() que cria um novo resultado.
+     * @param origin Índice do vértice de origem.
+     * @param goal Índice do vértice buscado (-1 para nenhum).
+     * @return Distâncias e árvore de caminhos mínimos.
+     */
+    public ShortestPaths dijkstra(int origin, int goal) {
+        return this.dijkstra(origin, goal, null);
+    }
+
+    /**
+     * Versão de dijkstra() sem vértice-alvo.
+     * @param origin Índice do vértice de origem.
+     * @return Distâncias de toda a componente da origem e árvore de caminhos
+     *          mínimos.
+     */
+    public ShortestPaths dijkstra(int origin) {
+        return this.dijkstra(origin, -1, null);
+    }
+
+    /**
+     * Calcula a árvore de caminhos mínimos a partir do vértice de origem,
+     * como dijkstra(int), e a imprime para o arquivo de saída fornecido, no
+     * formato de BFS(int, String), com a distância no lugar do nível.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param outfile Nome do arquivo de saída, com extensão e caminho.
+     * @return Distâncias e árvore de caminhos mínimos.
+     */
+    public ShortestPaths dijkstra(int origin, String outfile) throws IOException {
+        ShortestPaths tree = this.dijkstra(origin);
+
+        BufferedWriter bw = new BufferedWriter(new FileWriter(outfile, false));
+
+        bw.write("Arvore de caminhos minimos (Dijkstra) no grafo " +
+                this.getInputFile());
+        bw.write(" com origem no vertice " + origin + "\n");
+        bw.write("\nNumero de nos: " + tree.getNReached());
+        bw.write("\n\nFormato das linhas seguintes: <vértice> <pai> <distância>\n");
+
+        for (int i=0; i < tree.getNReached(); i++) {
+            int node = tree.getNodeAt(i);
+
+            bw.write(node + " " + tree.getParent(node) + " " +
+                    tree.getDistance(node) + "\n");
+        }
+
+        bw.close();
+
+        return tree;
+    }
+
+    /**
+     * Versão de calcDistance() para grafos com pesos: a soma dos pesos do
+     * caminho mínimo entre dois nós, pelo algoritmo de Dijkstra.
+     * @param node1 Índice de um nó.
+     * @param node2 Índice de um nó.
+     * @return Distância entre node1 e node2; retorna -1 se esta for infinita.
+     * @throws UnsupportedOperationException Se o grafo não tem pesos (ou não
+     *          está na representação CSR).
+     * @throws IllegalStateException Se algum peso é negativo.
+     */
+    public double calcWeightedDistance(int node1, int node2) {
+        this.requireWeights(true);
+
+        ShortestPaths result = ShortestPaths.forCurrentThread(this.getNNodes());
+        result.setLabels(this.internalId, this.originalId);
+        this.dijkstraInternal(this.toInternal(node1), this.toInternal(node2), result);
+
+        return result.getDistance(node2);
+    }
+
+    /**
+     * Versão de calcDiameter(int) para grafos com pesos: a maior distância
+     * (soma dos pesos) entre dois nós conectados.
+     * @param nMax Se o número n de nós for maior do que nMax, é feita uma
+     *             aproximação (limite inferior) com as distâncias a partir de
+     *             log_2(n) nós sorteados; senão (ou se nMax for -1), o valor
+     *             exato, com um Dijkstra a partir de cada nó.
+     * @return Diâmetro do grafo; se o grafo for desconexo, o maior diâmetro
+     *          dentre as suas componentes.
+     * @throws UnsupportedOperationException Se o grafo não tem pesos (ou não
+     *          está na representação CSR).
+     * @throws IllegalStateException Se algum peso é negativo.
+     */
+    public double calcWeightedDiameter(int nMax) {
+        this.requireWeights(true);
+
+        int n = this.getNNodes();
+        int[] sources;
+
+        if (nMax == -1 || n <= nMax) {
+            sources = new int[n];
+
+            for (int i=0; i < n; i++) {
+                sources[i] = i + 1;
+            }
+        } else {
+            // Sorteio sem repetição dos log_2(n) nós de origem
+            int nIndices = (int) Math.floor(Math.log(n) / Math.log(2));
+            SplittableRandom random = new SplittableRandom();
+            int[] indices = new int[n];
+
+            for (int i=0; i < n; i++) {
+                indices[i] = i + 1;
+            }
+
+            for (int i=0; i < nIndices; i++) {
+                int j = i + random.nextInt(n - i);
+                int tmp = indices[i];
+                indices[i] = indices[j];
+                indices[j] = tmp;
+            }
+
+            sources = Arrays.copyOf(indices, nIndices);
+        }
+
+        ShortestPaths result = ShortestPaths.forCurrentThread(n);
+        result.setLabels(null, null);  // (só as distâncias interessam)
+        double maxDist = 0;
+
+        for (int source : sources) {
+            this.dijkstraInternal(source, -1, result);
+            maxDist = Math.max(maxDist, result.getMaxDistance());
+        }
+
+        return maxDist;
+    }
+
+    /**
+     * Versão de calcDiameter() para grafos com pesos (valor exato).
+     * @return Diâmetro do grafo.
+     */
+    public double calcWeightedDiameter() {
+        return this.calcWeightedDiameter(-1);
+    }
+
+    /**
+     * Calcula a floresta geradora mínima do grafo (uma árvore geradora
+     * mínima por componente conexa), com o algoritmo de Kruskal.
+     * @return Arestas da floresta e o peso total.
+     * @throws UnsupportedOperationException Se o grafo não tem pesos (ou não
+     *          está na representação CSR).
+     */
+    public SpanningForest minimumSpanningForest() {
+        return this.minimumSpanningForest(1);
+    }
+
+    /**
+     * Versão de minimumSpanningForest() com várias threads: o algoritmo de
+     * Borůvka, em que a cada rodada cada componente escolhe em paralelo a
+     * aresta mais leve que sai dela, e as componentes são unidas por essas
+     * arestas (ver SpanningForestBuilder). Com uma thread só, usa Kruskal.
+     * Pesos negativos são aceitos.
+     * @param nThreads Número de threads (se menor que 1, usa o número de
+     *                 processadores disponíveis).
+     * @return Arestas da floresta e o peso total (as mesmas arestas da
+     *          versão sequencial).
+     * @throws UnsupportedOperationException Se o grafo não tem pesos (ou não
+     *          está na representação CSR).
+     */
+    public SpanningForest minimumSpanningForest(int nThreads) {
+        this.requireWeights(false);
+
+        int nWorkers = Parallel.resolveThreads(nThreads);
+        SpanningForestBuilder builder = new SpanningForestBuilder(this.csrOffsets,
+                this.csrTargets, this.csrWeights, this.getNNodes());
+
+        if (nWorkers == 1) {
+            return builder.kruskal(this.originalId);
+        }
+
+        return builder.boruvka(nWorkers, this.originalId);
+    }
+
+    /**
+     * Calcula a floresta geradora mínima, como minimumSpanningForest(int), e
+     * a imprime para o arquivo de saída fornecido, no estilo de
+     * BFS(int, String), com uma aresta por linha.
+     * @param nThreads Número de threads.
+     * @param outfile Nome do arquivo de saída, com extensão e caminho.
+     * @return Arestas da floresta e o peso total.
+     */
+    public SpanningForest minimumSpanningForest(int nThreads, String outfile)
+            throws IOException {
+        SpanningForest forest = this.minimumSpanningForest(nThreads);
+
+        BufferedWriter bw = new BufferedWriter(new FileWriter(outfile, false));
+
+        bw.write("Floresta geradora minima do grafo " + this.getInputFile() + "\n");
+        bw.write("\nNumero de arestas: " + forest.getNEdges());
+        bw.write("\nNumero de arvores: " + forest.getNTrees());
+        bw.write("\nPeso total: " + forest.getTotalWeight());
+        bw.write("\n\nFormato das linhas seguintes: <vértice> <vértice> <peso>\n");
+
+        for (int i=0; i < forest.getNEdges(); i++) {
+            bw.write(forest.getSource(i) + " " + forest.getTarget(i) + " " +
+                    forest.getWeight(i) + "\n");
+        }
+
+        bw.close();
+
+        return forest;
+    }
+
+    /**
+     * Garante que o grafo tem pesos guardados.
+     * @param nonNegative Se também é preciso que nenhum peso seja negativo.
+     */
+    private void requireWeights(boolean nonNegative) {
+        if (this.csrWeights == null) {
+            throw new UnsupportedOperationException("Grafo sem pesos; " +
+                    "carregue um arquivo com pesos na representacao CSR");
+        }
+
+        if (nonNegative && this.negativeWeights) {
+            throw new IllegalStateException("O algoritmo de Dijkstra exige " +
+                    "pesos nao negativos; o grafo " + this.getInputFile() +
+                    " tem arestas com peso negativo");
+        }
+    }
+
+    /**
+     * dijkstra() nos índices internos.
+     * @param origin Índice interno da origem.
+     * @param goal Índice interno do alvo (ou -1).
+     * @param result Resultado a ser preenchido (com a renumeração já
+     *               definida).
+     */
+    private void dijkstraInternal(int origin, int goal, ShortestPaths result) {
+        result.reset(origin);
+
+        double[] dist = result.distanceArray();
+        int[] parent = result.parentArray();
+        int[] stamp = result.stampArray();
+        int[] order = result.orderArray();
+        int epoch = result.epoch();
+        // (stamp[w] == epoch: distância definitiva; -epoch: provisória)
+
+        int[] offsets = this.csrOffsets;
+        int[] targets = this.csrTargets;
+        double[] weights = this.csrWeights;
+        int nReached = 0;
+
+        dist[origin] = 0;
+        parent[origin] = 0;
+        stamp[origin] = -epoch;
+
+        if (this.integerWeights) {
+            // Entradas repetidas em vez de diminuir a chave: uma entrada é
+            // velha se o nó já saiu da fila ou se a distância dele diminuiu
+            RadixHeap queue = result.radixHeap();
+            queue.push(0, origin);
+
+            while (!queue.isEmpty()) {
+                int v = queue.pop();
+
+                if (stamp[v] == epoch || queue.lastKey() != (long) dist[v]) {
+                    continue;
+                }
+
+                stamp[v] = epoch;
+                order[nReached++] = v;
+
+                if (v == goal) {
+                    break;
+                }
+
+                for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+                    double d = dist[v] + weights[i];
+
+                    if (stamp[w] != epoch && (stamp[w] != -epoch || d < dist[w])) {
+                        stamp[w] = -epoch;
+                        dist[w] = d;
+                        parent[w] = v;
+                        queue.push((long) d, w);
+                    }
+                }
+            }
+        } else {
+            DaryHeap queue = result.daryHeap();
+            queue.update(origin, dist);
+
+            while (!queue.isEmpty()) {
+                int v = queue.pop(dist);
+
+                stamp[v] = epoch;
+                order[nReached++] = v;
+
+                if (v == goal) {
+                    break;
+                }
+
+                for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+                    double d = dist[v] + weights[i];
+
+                    if (stamp[w] != epoch && (stamp[w] != -epoch || d < dist[w])) {
+                        stamp[w] = -epoch;
+                        dist[w] = d;
+                        parent[w] = v;
+                        queue.update(w, dist);
+                    }
+                }
+            }
+        }
+
+        result.setNReached(nReached);
+    }
+
+    /**
+     * BFS bidirecional entre dois nós (índices internos): uma busca parte de
+     * cada um deles e, a cada passo, a de menor fronteira avança um nível
+     * inteiro, até que alguma aresta ligue nós das duas buscas. O nível em
+     * que isso acontece é terminado, e fica a aresta de encontro que dá o
+     * menor caminho.
+     *
+     * As duas buscas usam o resultado da área de trabalho: o lado de origin
+     * guarda níveis 0, 1, 2... e o de goal -1, -2, -3... (distância até goal
+     * mais 1, com o sinal trocado), de forma que o sinal diz a que lado um
+     * nó marcado pertence; os pais são os de cada árvore geradora. A fila do
+     * lado de origin cresce do início do array de ordem e a de goal, do fim
+     * (cada nó entra em no máximo uma delas, então elas não se encontram).
+     * @param origin Índice interno de um nó.
+     * @param goal Índice interno de um nó.
+     * @param workspace Área de trabalho.
+     * @return Aresta de encontro, com o nó do lado de origin nos 32 bits mais
+     *          altos e o do lado de goal nos mais baixos; -1 se os nós não
+     *          estão conectados. Se origin == goal, a "aresta" é (origin,
+     *          origin).
+     */
+    private long meetInTheMiddle(int origin, int goal, TraversalWorkspace workspace) {
+        return this.meetInTheMiddle(origin, goal, workspace, Integer.MAX_VALUE);
+    }
+
+    /**
+     * meetInTheMiddle() que só procura caminhos mais curtos que maxDist:
+     * para assim que os níveis já explorados pelos dois lados garantem que
+     * não há nenhum (o que costuma poupar a expansão do último nível, a mais
+     * cara).
+     * @param origin Índice interno de um nó.
+     * @param goal Índice interno de um nó.
+     * @param workspace Área de trabalho.
+     * @param maxDist Comprimento máximo (exclusive) dos caminhos procurados.
+     * @return Aresta de encontro (como em meetInTheMiddle()), ou -1 se não
+     *          houver caminho mais curto que maxDist.
+     */
+    private long meetInTheMiddle(int origin, int goal, TraversalWorkspace workspace,
+                                 int maxDist) {
+        TraversalResult result = this.prepareResult(workspace, origin);
+
+        if (origin == goal) {
+            result.parentArray()[origin] = 0;
+            result.levelArray()[origin] = 0;
+            workspace.setNScanned(0);
+            return (long) origin << 32 | origin;  // caminho só com o próprio nó
+        }
+
+        int[] parent = result.parentArray();
+        int[] level = result.levelArray();
+        int[] queue = result.orderArray();
+        int[] stamp = result.stampArray();
+        int epoch = result.epoch();
+        int[] neighbors = workspace.neighborBuffer(this.degreeCounts().length - 1);
+
+        stamp[origin] = epoch;
+        parent[origin] = 0;
+        level[origin] = 0;
+        queue[0] = origin;
+        int fHead = 0;
+        int fTail = 1;
+
+        stamp[goal] = epoch;
+        parent[goal] = 0;
+        level[goal] = -1;
+        queue[queue.length - 1] = goal;
+        int bHead = queue.length - 1;
+        int bTail = queue.length - 2;
+
+        int best = Integer.MAX_VALUE;
+        long meeting = -1;
+        long scanned = 0;
+
+        while (fHead != fTail && bHead != bTail && meeting < 0) {
+            // Um caminho que ainda não foi encontrado liga as duas fronteiras
+            // (ou passa por nós mais distantes)
+            if (level[queue[fHead]] - level[queue[bHead]] >= maxDist) {
+                break;
+            }
+
+            // O lado de origin anda para frente na fila e soma 1 aos níveis;
+            // o de goal anda para trás e subtrai 1
+            boolean forward = fTail - fHead <= bHead - bTail;
+            int step = forward ? 1 : -1;
+            int head = forward ? fHead : bHead;
+            int end = forward ? fTail : bTail;
+            int tail = end;
+
+            for (; head != end; head += step) {
+                int v = queue[head];
+                int wLvl = level[v] + step;
+                int degree = this.neighborsInto(v, neighbors);
+                scanned += degree;
+
+                for (int j=0; j < degree; j++) {
+                    int w = neighbors[j];
+
+                    if (stamp[w] != epoch) {
+                        stamp[w] = epoch;
+                        level[w] = wLvl;
+                        parent[w] = v;
+                        queue[tail] = w;
+                        tail += step;
+                    } else if ((level[w] < 0) == forward) {  // do outro lado
+                        int dist = Math.abs(level[v] - level[w]);
+
+                        if (dist < best) {
+                            best = dist;
+                            meeting = forward ? (long) v << 32 | w : (long) w << 32 | v;
+                        }
+                    }
+                }
+            }
+
+            if (forward) {
+                fHead = end;
+                fTail = tail;
+            } else {
+                bHead = end;
+                bTail = tail;
+            }
+        }
+
+        workspace.setNScanned(scanned);
+
+        return meeting;
+    }
+
+    /**
+     * Distância entre dois nós (índices internos) de que já se conhece um
+     * limite superior, para DistanceOracle.distance().
+     * @param origin Índice interno de um nó.
+     * @param goal Índice interno de um nó.
+     * @param upper Comprimento de algum caminho entre os dois, ou
+     *              Integer.MAX_VALUE se não se sabe se eles estão conectados.
+     * @return Distância entre origin e goal; -1 se esta for infinita.
+     */
+    int boundedDistance(int origin, int goal, int upper) {
+        TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(this.getNNodes());
+        long meeting = this.meetInTheMiddle(origin, goal, workspace, upper);
+
+        if (meeting < 0) {
+            return upper == Integer.MAX_VALUE ? -1 : upper;
+        }
+
+        int[] level = workspace.getResult().levelArray();
+
+        return Math.min(upper, Math.abs(level[(int) (meeting >>> 32)] - level[(int) meeting]));
+    }
+
+    /**
+     * Monta um oráculo de distâncias por marcos (ver DistanceOracle), com
+     * uma BFS a partir de cada marco. Depois disso, as consultas de
+     * distância feitas pelo oráculo custam O(nLandmarks) quando os limites
+     * dos marcos coincidem, e uma BFS bidirecional limitada quando não.
+     * @param nLandmarks Número de marcos (o índice ocupa 2 * nLandmarks
+     *                   bytes por nó).
+     * @param selection Critério de escolha dos marcos:
+     *                  DistanceOracle.BY_DEGREE, RANDOM ou FARTHEST.
+     * @param nThreads Número de threads para as BFS (se menor que 1, usa o
+     *                 número de processadores). Com FARTHEST, as BFS são
+     *                 feitas em sequência, pois cada marco depende das
+     *                 distâncias aos anteriores.
+     * @return O oráculo.
+     */
+    public DistanceOracle buildDistanceOracle(int nLandmarks, int selection,
+                                              int nThreads) {
+        this.requireAdjacency();
+
+        int n = this.getNNodes();
+
+        if (nLandmarks < 1 || nLandmarks > n) {
+            throw new IllegalArgumentException("Numero de marcos deve estar " +
+                    "entre 1 e o numero de nos: " + nLandmarks);
+        }
+
+        if ((long) (n + 1) * nLandmarks > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Marcos demais para um grafo " +
+                    "de " + n + " nos: " + nLandmarks);
+        }
+
+        if (selection != DistanceOracle.BY_DEGREE &&
+                selection != DistanceOracle.RANDOM &&
+                selection != DistanceOracle.FARTHEST) {
+            throw new IllegalArgumentException("Criterio de escolha dos " +
+                    "marcos invalido: " + selection);
+        }
+
+        long start = System.nanoTime();
+        DistanceOracle oracle = new DistanceOracle(this, nLandmarks);
+
+        if (selection == DistanceOracle.FARTHEST) {
+            TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(n);
+            int[] minDist = new int[n + 1];
+            Arrays.fill(minDist, Integer.MAX_VALUE);
+            int next = this.highestDegreeNodes(1)[0];
+
+            for (int l=0; l < nLandmarks; l++) {
+                TraversalResult tree = this.bfs(next, -1, workspace);
+                int[] order = tree.orderArray();
+                int[] level = tree.levelArray();
+
+                oracle.setLandmark(l, next, tree);
+
+                for (int i=0; i < tree.getNReached(); i++) {
+                    minDist[order[i]] = Math.min(minDist[order[i]], level[order[i]]);
+                }
+
+                // (os marcos ficam com 0, então nunca são escolhidos de novo)
+                next = 1;
+
+                for (int v=2; v <= n; v++) {
+                    if (minDist[v] > minDist[next]) {
+                        next = v;
+                    }
+                }
+            }
+        } else {
+            int[] landmarks;
+
+            if (selection == DistanceOracle.BY_DEGREE) {
+                landmarks = this.highestDegreeNodes(nLandmarks);
+            } else {
+                SplittableRandom random = new SplittableRandom(DistanceOracle.RANDOM_SEED);
+                boolean[] chosen = new boolean[n + 1];
+                landmarks = new int[nLandmarks];
+
+                for (int l=0; l < nLandmarks; l++) {
+                    int v;
+
+                    do {
+                        v = 1 + random.nextInt(n);
+                    } while (chosen[v]);
+
+                    chosen[v] = true;
+                    landmarks[l] = v;
+                }
+            }
+
+            int nWorkers = Math.min(Parallel.resolveThreads(nThreads), nLandmarks);
+
+            Parallel.run(nWorkers, w -> {
+                TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(n);
+
+                for (int l=w; l < nLandmarks; l += nWorkers) {
+                    oracle.setLandmark(l, landmarks[l], this.bfs(landmarks[l], -1, workspace));
+                }
+            });
+        }
+
+        oracle.setBuildNanos(System.nanoTime() - start);
+
+        return oracle;
+    }
+
+    /**
+     * Versão de buildDistanceOracle() com os marcos de maior grau, usando
+     * todos os processadores.
+     * @param nLandmarks Número de marcos.
+     * @return O oráculo.
+     */
+    public DistanceOracle buildDistanceOracle(int nLandmarks) {
+        return this.buildDistanceOracle(nLandmarks, DistanceOracle.BY_DEGREE, 0);
+    }
+
+    /**
+     * Reabre um oráculo de distâncias deste grafo salvo com
+     * DistanceOracle.save().
+     * @param filepath Caminho do arquivo.
+     * @return O oráculo.
+     * @throws IOException Se o arquivo não puder ser lido, estiver truncado
+     *          ou tiver sido montado para outro grafo.
+     */
+    public DistanceOracle loadDistanceOracle(String filepath) throws IOException {
+        this.requireAdjacency();
+
+        return DistanceOracle.read(this, filepath);
+    }
+
+    /**
+     * @param count Quantidade de nós, de 1 ao número de nós.
+     * @return Índices internos dos count nós de maior grau (entre os de
+     *          mesmo grau, os de menor índice), em ordem decrescente de
+     *          grau.
+     */
+    private int[] highestDegreeNodes(int count) {
+        int[] distribution = this.degreeCounts();
+        int n = this.getNNodes();
+
+        // Menor grau que ainda entra: os nós de grau maior que ele são
+        // menos que count
+        int minDegree = distribution.length - 1;
+
+        for (int acc = distribution[minDegree]; acc < count; acc += distribution[minDegree]) {
+            minDegree--;
+        }
+
+        // Counting sort dos nós escolhidos, do maior grau para o menor
+        int[] start = new int[distribution.length + 1];
+
+        for (int d = distribution.length - 1; d >= minDegree; d--) {
+            start[d] = start[d + 1] + distribution[d];
+        }
+
+        int[] nodes = new int[start[minDegree]];
+
+        for (int v=1; v <= n; v++) {
+            int d = this.degreeOf(v);
+
+            if (d >= minDegree) {
+                nodes[start[d + 1]++] = v;
+            }
+        }
+
+        return Arrays.copyOf(nodes, count);
+    }
+
+    /**
+     * Copia os vizinhos de um nó para um buffer, em qualquer representação.
+     * @param node Índice interno do nó.
+     * @param buffer Onde escrever os vizinhos (com pelo menos o grau máximo
+     *               de posições).
+     * @return Grau do nó (número de posições escritas).
+     */
+    private int neighborsInto(int node, int[] buffer) {
+        if (this.repr == CSR) {
+            int degree = csrOffsets[node + 1] - csrOffsets[node];
+            System.arraycopy(csrTargets, csrOffsets[node], buffer, 0, degree);
+            return degree;
+        }
+
+        if (this.repr == COMPRESSED) {
+            return compressed.decode(node, buffer);
+        }
+
+        int degree = 0;
+
+        if (this.repr == OFFHEAP) {
+            int end = offHeap.offset(node + 1);
+
+            for (int i=offHeap.offset(node); i < end; i++) {
+                buffer[degree++] = offHeap.target(i);
+            }
+        } else if (this.repr == MATRIX) {
+            long[] mtxRow = adjMatrix[node];
+
+            for (int k=0; k < mtxRow.length; k++) {
+                for (long word = mtxRow[k]; word != 0; word &= word - 1) {
+                    buffer[degree++] = (k << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+        } else {
+            Iterator<Integer> it = adjList.get(node).iterator();
+            it.next();  // o próprio nó
+
+            while (it.hasNext()) {
+                buffer[degree++] = it.next();
+            }
+        }
+
+        return degree;
+    }
+
+    /**
+     * Calcula e retorna o diâmetro do grafo, definido como a maior distância entre dois
+     * vértices. Implementa um algoritmo aproximativo pseudoaleatório para
+     * grafos maiores do que um threshold de tamanho definido pelo usuário.
+     *
+     * @param nMax Se o número n de nós for maior do que nMax, é feita uma
+     *             aproximação comparando apenas as distâncias calculadas a
+     *             partir de log_2(n) vértices, escolhidos ao acoso. (Se nMax
+     *             for -1, então o algoritmo aproximativo não será usado para
+     *             nenhum tamanho de grafo. Entretanto, é mais simples chamar o
+     *             método calcDiameter sem nenhum parâmetro para isso.) Caso
+     *             contrário, o valor exato é calculado com
+     *             calcExactDiameters().
+     * @return Diâmetro do grafo; se o grafo for desconexo, retorna o maior
+     *             diâmetro dentre as suas componentes.
+     */
+    public int calcDiameter(int nMax) {
+        int n = this.getNNodes();
+        int maxDist = 0;
+
+        if (nMax == -1 || n <= nMax) {
+            // Exato: bem menos BFS do que uma a partir de cada nó
+            for (HashMap<String, Integer> component : this.calcExactDiameters()) {
+                maxDist = Math.max(maxDist, component.get("diameter"));
+            }
+
+            return maxDist;
+        }
+
+        // Aproximado (limite inferior): usa log_2(n) índices, cf. sugestão
+        // do professor
+        int nIndices = (int) Math.floor(Math.log(n) / Math.log(2));
+
+        ArrayList<Integer> indices = new ArrayList<Integer>();
+
+        for (int i=0; i<n; i++) {
+            indices.add(i + 1);
+        }
+
+        // (tentei usar o IntStream.rangeClosed, mas List (que ele retorna) não
+        // implementa um método set, aí o shuffle não funciona. Achei mais
+        // rápido fazer esse loop primitivo rapidão do que estender a classe
+        // implementando esse método :P)
+
+        Collections.shuffle(indices);  // p/ randomizar sem repetição
+
+        TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(n);
+        TraversalResult bfsTree = workspace.getResult();
+        // reaproveitados em todas as BFS, sem nenhuma alocação por busca
+
+        for (int i=0; i < nIndices; i++) {
+            int idx = indices.get(i);
+            this.directionOptimizingBFS(idx, workspace);
+            // (só os níveis interessam, e eles são os mesmos da BFS usual)
+
+            // A maior distância a partir de idx é o maior nível da árvore da
+            // BFS (os nós fora da componente de idx simplesmente não estão
+            // nela). Não precisamos mais pular os índices já verificados,
+            // como fazíamos com o HashMap, já que não há mais consulta nó a nó.
+            int ecc = bfsTree.getMaxLevel();
+
+            if (ecc > maxDist) {
+                maxDist = ecc;
+            }
+        }
+        return maxDist;
+    }
+
+    /**
+     * Calcula e retorna o diâmetro do grafo, definido como a maior distância entre dois
+     * vértices.
+     * @return Diâmetro do grafo; se o grafo for desconexo, retorna o maior diâmetro dentre
+     * as suas componentes.
+     */
+    public int calcDiameter() {
+        return calcDiameter(-1);
+    }
+
+    /**
+     * Calcula o diâmetro exato de cada componente conexa com o algoritmo
+     * iFUB ("iterative fringe upper bound", Crescenzi et al.), que em grafos
+     * reais costuma precisar de poucas BFS, em vez de uma a partir de cada
+     * nó:
+     * 1. uma "varredura dupla" (BFS a partir de um nó qualquer e depois a
+     *    partir do nó mais distante encontrado) dá um limite inferior para o
+     *    diâmetro e um caminho longo, cujo nó do meio, u, é escolhido como
+     *    centro;
+     * 2. os nós são então examinados por camadas da BFS a partir de u, da
+     *    mais distante para a mais próxima: depois de calcular a
+     *    excentricidade de todos os nós da camada i, qualquer par de nós
+     *    restante está a no máximo 2(i - 1) de distância (passando por u), e
+     *    a busca termina assim que o limite inferior alcança esse valor.
+     * @return ArrayList com um HashMap por componente conexa, da maior para a
+     *          menor, com as chaves "node" (menor índice da componente),
+     *          "size" (número de nós), "diameter" (diâmetro exato) e
+     *          "bfsCalls" (número de BFS usadas para calculá-lo, incluindo a
+     *          que encontra a componente).
+     */
+    public ArrayList<HashMap<String, Integer>> calcExactDiameters() {
+        int n = this.getNNodes();
+
+        // Duas áreas de trabalho: a BFS a partir do centro u precisa ser
+        // mantida enquanto as BFS a partir dos nós de cada camada são feitas
+        TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(n);
+        TraversalWorkspace centerWorkspace = new TraversalWorkspace(n);
+
+        boolean[] done = new boolean[n + 1];
+        ArrayList<HashMap<String, Integer>> components =
+                new ArrayList<HashMap<String, Integer>>();
+
+        for (int s=1; s <= n; s++) {
+            if (done[s]) {
+                continue;
+            }
+
+            // A BFS que encontra a componente é também a primeira da
+            // varredura dupla. Como a ordem de visita da BFS é por níveis, o
+            // último nó visitado é um dos mais distantes da origem, e o seu
+            // nível é a excentricidade dela
+            TraversalResult tree = this.directionOptimizingBFS(s, workspace);
+            int size = tree.getNReached();
+            int bfsCalls = 1;
+            int lowerBound;
+
+            for (int i=0; i < size; i++) {
+                done[tree.getNodeAt(i)] = true;
+            }
+
+            if (size <= 2) {
+                lowerBound = size - 1;
+            } else {
+                int a = tree.getNodeAt(size - 1);
+
+                tree = this.directionOptimizingBFS(a, workspace);
+                bfsCalls++;
+
+                int b = tree.getNodeAt(size - 1);
+                lowerBound = tree.getLevel(b);
+
+                // Centro: o nó do meio do caminho de a até b
+                int u = b;
+
+                for (int k=0; k < lowerBound / 2; k++) {
+                    u = tree.getParent(u);
+                }
+
+                TraversalResult centerTree =
+                        this.directionOptimizingBFS(u, centerWorkspace);
+                bfsCalls++;
+
+                int i = centerTree.getLevel(centerTree.getNodeAt(size - 1));
+                int upperBound = 2 * i;
+                int fringeEnd = size;
+
+                lowerBound = Math.max(lowerBound, i);
+
+                while (upperBound > lowerBound) {
+                    // Camada i: trecho final da ordem de visita a partir de u
+                    int fringeStart = fringeEnd;
+
+                    while (fringeStart > 0 && centerTree.getLevel(
+                            centerTree.getNodeAt(fringeStart - 1)) == i) {
+                        fringeStart--;
+                    }
+
+                    int fringeMax = 0;
+
+                    for (int j=fringeStart; j < fringeEnd; j++) {
+                        tree = this.directionOptimizingBFS(
+                                centerTree.getNodeAt(j), workspace);
+                        bfsCalls++;
+
+                        fringeMax = Math.max(fringeMax,
+                                tree.getLevel(tree.getNodeAt(size - 1)));
+                    }
+
+                    lowerBound = Math.max(lowerBound, fringeMax);
+
+                    if (lowerBound > 2 * (i - 1)) {
+                        break;  // nenhum par mais interno pode superar isso
+                    }
+
+                    upperBound = 2 * (i - 1);
+                    fringeEnd = fringeStart;
+                    i--;
+                }
+            }
+
+            HashMap<String, Integer> data = new HashMap<String, Integer>();
+            data.put("node", s);
+            data.put("size", size);
+            data.put("diameter", lowerBound);
+            data.put("bfsCalls", bfsCalls);
+
+            components.add(data);
+        }
+
+        Comparator<HashMap<String, Integer>> onSize =
+                new Comparator<HashMap<String, Integer>>() {
+            @Override
+            public int compare(HashMap<String, Integer> c1, HashMap<String, Integer> c2) {
+                return c2.get("size") - c1.get("size");  // decrescente
+            }
+        };
+
+        Collections.sort(components, onSize);
+
+        return components;
+    }
+
+    /**
+     * Implementa a busca em largura a partir do vértice de origem
+     * especificado, retornando sua árvore geradora. Interrompe a BFS ao
+     * chegar ao vértice-alvo fornecido, caso este exista e esteja ligado
+     * à origem por algum caminho.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param goal Índice do vértice buscado.
+     * @return HashMap cujas chaves são os índices dos nós presentes na
+     *          árvore geradora da BFS interrompida ao chegar ao nó-alvo
+     *          (caso chegue). Suas chaves são os índices dos nós (incluindo a
+     *          própria raiz e o alvo) e seus valores são arrays de inteiros
+     *          cuja primeira posição indica o pai de cada nó na árvore
+     *          geradora e cuja segunda posição indica o nível desse nó.
+     */
+    public HashMap<Integer, Integer[]> BFS(int origin, int goal) {
+        return this.BFS(origin, goal,
+                TraversalWorkspace.forCurrentThread(this.getNNodes())).toMap();
+    }
+
+    /**
+     * Implementa a busca em largura a partir do vértice de origem
+     * especificado, guardando sua árvore geradora num TraversalResult (em
+     * arrays primitivos, sem criar um objeto por nó). Interrompe a BFS ao
+     * chegar ao vértice-alvo fornecido, caso este exista e esteja ligado
+     * à origem por algum caminho.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param goal Índice do vértice buscado (-1 para percorrer toda a
+     *             componente da origem).
+     * @param result Resultado a ser preenchido, que pode ser reaproveitado de
+     *               uma busca anterior (o conteúdo anterior é descartado). Se
+     *               for null, um novo é criado.
+     * @return O próprio result (ou o novo resultado, se result for null).
+     */
+    public TraversalResult BFS(int origin, int goal, TraversalResult result) {
+        return this.BFS(origin, goal, this.wrapResult(result));
+    }
+
+    /**
+     * Implementa a busca em largura a partir do vértice de origem
+     * especificado, usando uma área de trabalho reaproveitável: buscas
+     * repetidas com a mesma área de trabalho não alocam memória nenhuma.
+     * Interrompe a BFS ao chegar ao vértice-alvo fornecido, caso este exista
+     * e esteja ligado à origem por algum caminho.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param goal Índice do vértice buscado (-1 para percorrer toda a
+     *             componente da origem).
+     * @param workspace Área de trabalho (o resultado anterior nela é
+     *                  descartado).
+     * @return O resultado da área de trabalho, com a árvore geradora.
+     */
+    public TraversalResult BFS(int origin, int goal, TraversalWorkspace workspace) {
+        return this.bfs(this.toInternal(origin), this.toInternal(goal), workspace);
+    }
+
+    /**
+     * BFS(int, int, TraversalWorkspace) nos índices internos.
+     */
+    private TraversalResult bfs(int origin, int goal, TraversalWorkspace workspace) {
+        TraversalResult result = this.prepareResult(workspace, origin);
+
+        int[] parent = result.parentArray();
+        int[] level = result.levelArray();
+        int[] queue = result.orderArray();
+        // a ordem de visita da BFS é exatamente a ordem da fila, então o
+        // próprio array de ordem serve de fila
+        int[] stamp = result.stampArray();
+        int epoch = result.epoch();
+        // (um nó está marcado se stamp[w] == epoch)
+
+        int head = 0;
+        int tail = 0;
+
+        //Marcamos o vertice origem e o adicionamos na fila
+        queue[tail++] = origin;
+        stamp[origin] = epoch;
+        parent[origin] = 0;
+        level[origin] = 0;
+
+        if (origin == goal) {
+            result.setNReached(tail);
+            return result;
+        }
+
+        // Continua havendo um trecho por representação, para que cada uma
+        // percorra os vizinhos da forma mais direta possível
+        search:
+        if (this.repr == CSR) {
+            while (head < tail) {
+                int v = queue[head++];
+                int wLvl = level[v] + 1;
+
+                for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                    int w = csrTargets[i];
+
+                    if (stamp[w] != epoch) {
+                        stamp[w] = epoch;
+                        level[w] = wLvl;
+                        parent[w] = v;
+                        queue[tail++] = w;
+
+                        if (w == goal) {
+                            break search;
+                        }
+                    }
+                }
+            }
+        } else if (this.repr == COMPRESSED) {
+            // Os vizinhos de cada nó são decodificados de uma vez num buffer
+            // reaproveitado da área de trabalho
+            CompressedAdjacency adj = this.compressed;
+            int[] neighbors = workspace.neighborBuffer(adj.getMaxDegree());
+
+            while (head < tail) {
+                int v = queue[head++];
+                int wLvl = level[v] + 1;
+                int degree = adj.decode(v, neighbors);
+
+                for (int j=0; j < degree; j++) {
+                    int w = neighbors[j];
+
+                    if (stamp[w] != epoch) {
+                        stamp[w] = epoch;
+                        level[w] = wLvl;
+                        parent[w] = v;
+                        queue[tail++] = w;
+
+                        if (w == goal) {
+                            break search;
+                        }
+                    }
+                }
+            }
+        } else if (this.repr == OFFHEAP) {
+            OffHeapAdjacency adj = this.offHeap;
+
+            while (head < tail) {
+                int v = queue[head++];
+                int wLvl = level[v] + 1;
+                int end = adj.offset(v + 1);
+
+                for (int i=adj.offset(v); i < end; i++) {
+                    int w = adj.target(i);
+
+                    if (stamp[w] != epoch) {
+                        stamp[w] = epoch;
+                        level[w] = wLvl;
+                        parent[w] = v;
+                        queue[tail++] = w;
+
+                        if (w == goal) {
+                            break search;
+                        }
+                    }
+                }
+            }
+        } else if (this.repr == LIST) {
+            while (head < tail) {
+                int v = queue[head++];
+                int wLvl = level[v] + 1;
+
+                for (int w : adjList.get(v)) {
+                    // (o primeiro elemento da lista é o próprio v, que já
+                    // está marcado)
+                    if (stamp[w] != epoch) {
+                        stamp[w] = epoch;
+                        level[w] = wLvl;
+                        parent[w] = v;
+                        queue[tail++] = w;
+
+                        if (w == goal) {
+                            break search;
+                        }
+                    }
+                }
+            }
+        } else {  // repr por matriz
+            // Marcação dos vértices também como bits, alinhada às linhas da
+            // matriz: os vizinhos ainda não conhecidos de v, 64 por vez, são
+            // row[k] & ~knownBits[k]
+            long[] knownBits = workspace.knownBits(matrixWords(this.getNNodes()));
+            knownBits[origin >>> 6] |= 1L << origin;
+
+            while (head < tail) {
+                int v = queue[head++];
+                int wLvl = level[v] + 1;
+
+                long[] mtxVertexRow = adjMatrix[v];
+
+                for (int k=0; k < mtxVertexRow.length; k++) {
+                    long fresh = mtxVertexRow[k] & ~knownBits[k];
+
+                    if (fresh == 0) {
+                        continue;  // nada de novo nessas 64 colunas
+                    }
+
+                    knownBits[k] |= fresh;
+
+                    while (fresh != 0) {
+                        int w = (k << 6) + Long.numberOfTrailingZeros(fresh);
+                        fresh &= fresh - 1;
+
+                        stamp[w] = epoch;
+                        level[w] = wLvl;
+                        parent[w] = v;
+                        queue[tail++] = w;
+
+                        if (w == goal) {
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (this.repr == MATRIX) {
+            workspace.clearKnownBits(queue, tail);  // para a próxima busca
+        }
+
+        result.setNReached(tail);
+
+        return result;
+    }
+
+    /**
+     * Busca em largura que alterna, nível a nível, entre o passo usual "de
+     * cima para baixo" (cada nó da fronteira procura vizinhos não visitados)
+     * e o passo "de baixo para cima" (cada nó não visitado procura um vizinho
+     * na fronteira, parando no primeiro que encontrar). Nos níveis do meio de
+     * grafos de diâmetro pequeno, em que a fronteira tem boa parte das
+     * arestas do grafo, o segundo passo evita examinar de novo quase todas
+     * elas só para encontrar nós já visitados.
+     *
+     * Os níveis são exatamente os da BFS(); os pais podem ser outros (também
+     * no nível anterior), pois no passo de baixo para cima cada nó fica com o
+     * seu menor vizinho na fronteira. Só a representação CSR tem o passo de
+     * baixo para cima; nas outras, é feita a BFS() usual.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param workspace Área de trabalho (o resultado anterior nela é
+     *                  descartado).
+     * @param alpha Passa para o passo de baixo para cima quando o número de
+     *              arestas saindo da fronteira for maior que o das arestas
+     *              dos nós não visitados dividido por alpha.
+     * @param beta Volta para o passo de cima para baixo quando a fronteira
+     *             estiver diminuindo e tiver menos que nNodes / beta nós.
+     * @return O resultado da área de trabalho, com a árvore geradora de toda
+     *          a componente da origem.
+     */
+    public TraversalResult directionOptimizingBFS(int origin,
+            TraversalWorkspace workspace, int alpha, int beta) {
+        if (alpha < 1 || beta < 1) {
+            throw new IllegalArgumentException("Limiares alpha e beta " +
+                    "devem ser positivos");
+        }
+
+        origin = this.toInternal(origin);
+
+        if (this.repr != CSR) {
+            return this.bfs(origin, -1, workspace);
+        }
+
+        TraversalResult result = this.prepareResult(workspace, origin);
+
+        int n = this.getNNodes();
+        int[] parent = result.parentArray();
+        int[] level = result.levelArray();
+        int[] queue = result.orderArray();
+        int[] stamp = result.stampArray();
+        int epoch = result.epoch();
+
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = origin;
+        stamp[origin] = epoch;
+        parent[origin] = 0;
+        level[origin] = 0;
+
+        // Arestas saindo da fronteira e arestas dos nós ainda não visitados
+        // (contadas pelos graus, como na CSR cada aresta aparece duas vezes)
+        long frontierEdges = csrOffsets[origin + 1] - csrOffsets[origin];
+        long unvisitedEdges = (long) csrOffsets[n + 1] - frontierEdges;
+
+        boolean bottomUp = false;
+        int lastFrontierSize = 0;
+        int wLvl = 1;
+
+        while (head < tail) {
+            // A fronteira (nível wLvl - 1) é o trecho [head, frontierEnd) da
+            // fila; os nós do nível seguinte vão sendo inseridos depois dele
+            int frontierEnd = tail;
+            int frontierSize = frontierEnd - head;
+
+            if (!bottomUp) {
+                bottomUp = frontierEdges > unvisitedEdges / alpha;
+            } else if (frontierSize < lastFrontierSize && frontierSize < n / beta) {
+                bottomUp = false;
+            }
+
+            long nextEdges = 0;
+
+            if (bottomUp) {
+                long[] frontierBits = workspace.frontierBits(matrixWords(n));
+
+                for (int i=head; i < frontierEnd; i++) {
+                    frontierBits[queue[i] >>> 6] |= 1L << queue[i];
+                }
+
+                for (int v=1; v <= n; v++) {
+                    if (stamp[v] == epoch) {
+                        continue;
+                    }
+
+                    for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                        int u = csrTargets[i];
+
+                        if ((frontierBits[u >>> 6] & (1L << u)) != 0) {
+                            stamp[v] = epoch;
+                            level[v] = wLvl;
+                            parent[v] = u;
+                            queue[tail++] = v;
+                            nextEdges += csrOffsets[v + 1] - csrOffsets[v];
+                            break;
+                        }
+                    }
+                }
+
+                for (int i=head; i < frontierEnd; i++) {
+                    frontierBits[queue[i] >>> 6] = 0;  // para o próximo nível
+                }
+            } else {
+                for (int j=head; j < frontierEnd; j++) {
+                    int v = queue[j];
+
+                    for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                        int w = csrTargets[i];
+
+                        if (stamp[w] != epoch) {
+                            stamp[w] = epoch;
+                            level[w] = wLvl;
+                            parent[w] = v;
+                            queue[tail++] = w;
+                            nextEdges += csrOffsets[w + 1] - csrOffsets[w];
+                        }
+                    }
+                }
+            }
+
+            frontierEdges = nextEdges;
+            unvisitedEdges -= nextEdges;
+            lastFrontierSize = frontierSize;
+            head = frontierEnd;
+            wLvl++;
         }
 
-        return data;
+        result.setNReached(tail);
+
+        return result;
     }
 
     /**
-     * Calcula e retorna a distância entre dois nós, definida como o comprimento do caminho
-     * mais curto entre eles. O comprimento de um caminho é seu número de arestas.
-     * @param node1 Índice de um nó.
-     * @param node2 Índice de um nó.
-     * @return Distância entre node1 e node2; retorna -1 se esta for infinita.
+     * Versão de directionOptimizingBFS() com os limiares padrão
+     * (DO_BFS_ALPHA e DO_BFS_BETA).
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param workspace Área de trabalho (o resultado anterior nela é
+     *                  descartado).
+     * @return O resultado da área de trabalho, com a árvore geradora de toda
+     *          a componente da origem.
      */
-    public int calcDistance(int node1, int node2) {
-        HashMap<Integer, Integer[]> spanningTree = this.BFS(node1, node2);
-        Integer[] node2Value = spanningTree.get(node2);
-
-        if (node2Value == null) {
-            return -1;  // não conectado; distância seria infinita
-        }
-
-        return node2Value[1];  // nível na árvore geradora
+    public TraversalResult directionOptimizingBFS(int origin,
+            TraversalWorkspace workspace) {
+        return this.directionOptimizingBFS(origin, workspace, DO_BFS_ALPHA,
+                DO_BFS_BETA);
     }
 
     /**
-     * Calcula e retorna o diâmetro do grafo, definido como a maior distância entre dois
-     * vértices. Implementa um algoritmo aproximativo pseudoaleatório para
-     * grafos maiores do que um threshold de tamanho definido pelo usuário.
+     * Busca em largura em que cada nível é processado por várias threads (num
+     * ForkJoinPool), para grafos grandes em que uma BFS numa única thread
+     * demora demais. Os níveis com fronteira pequena, como os primeiros e os
+     * últimos, continuam sendo processados sequencialmente.
      *
-     * @param nMax Se o número n de nós for maior do que nMax, é feita uma
-     *             aproximação comparando apenas as distâncias calculadas a
-     *             partir de log_2(n) vértices, escolhidos ao acoso. (Se nMax
-     *             for -1, então o algoritmo aproximativo não será usado para
-     *             nenhum tamanho de grafo. Entretanto, é mais simples chamar o
-     *             método calcDiameter sem nenhum parâmetro para isso.)
-     * @return Diâmetro do grafo; se o grafo for desconexo, retorna o maior
-     *             diâmetro dentre as suas componentes.
+     * Os níveis são exatamente os da BFS(); os pais podem ser outros (também
+     * no nível anterior), pois cada nó fica com o vizinho cuja thread o
+     * encontrou primeiro. Só a representação CSR tem a versão paralela; nas
+     * outras, é feita a BFS() usual.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param workspace Área de trabalho (o resultado anterior nela é
+     *                  descartado).
+     * @param nThreads Número de threads (se menor que 1, usa o número de
+     *                 processadores disponíveis).
+     * @param minParallelFrontier Número mínimo de nós na fronteira para que
+     *                            um nível seja processado em paralelo.
+     * @return O resultado da área de trabalho, com a árvore geradora de toda
+     *          a componente da origem.
      */
-    public int calcDiameter(int nMax) {
-        int n = this.getNNodes();
-        int maxDist = 0;
+    public TraversalResult parallelBFS(int origin, TraversalWorkspace workspace,
+            int nThreads, int minParallelFrontier) {
+        nThreads = Parallel.resolveThreads(nThreads);
+        origin = this.toInternal(origin);
 
-        if (nMax == -1) {
-            nMax = n + 1;
-            // parâmetro opcional (fizemos overload do método); garantindo
-            // que nenhum valor de n vá atender ao critério para uso do
-            // algoritmo aproximativo
+        if (this.repr != CSR || nThreads == 1) {
+            return this.bfs(origin, -1, workspace);
         }
 
-        int nIndices;
+        TraversalResult result = this.prepareResult(workspace, origin);
 
-        if (n > nMax) {
-            nIndices = (int) Math.floor(Math.log(n) / Math.log(2));
-            // usa log_2(n) índices, cf. sugestão do professor
-        } else {
-            nIndices = n;
-        }
+        workspace.parallelBFS(nThreads).run(csrOffsets, csrTargets,
+                Math.max(1, minParallelFrontier), result, origin);
 
-        ArrayList<Integer> indices = new ArrayList<Integer>();
+        return result;
+    }
 
-        for (int i=0; i<n; i++) {
-            indices.add(i + 1);
+    /**
+     * Versão de parallelBFS() com o tamanho mínimo de fronteira padrão
+     * (PARALLEL_BFS_MIN_FRONTIER).
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param workspace Área de trabalho (o resultado anterior nela é
+     *                  descartado).
+     * @param nThreads Número de threads (se menor que 1, usa o número de
+     *                 processadores disponíveis).
+     * @return O resultado da área de trabalho, com a árvore geradora de toda
+     *          a componente da origem.
+     */
+    public TraversalResult parallelBFS(int origin, TraversalWorkspace workspace,
+            int nThreads) {
+        return this.parallelBFS(origin, workspace, nThreads,
+                PARALLEL_BFS_MIN_FRONTIER);
+    }
+
+    /**
+     * BFS a partir de várias origens ao mesmo tempo, para medidas que
+     * envolvem as distâncias de muitos pares de nós (excentricidades,
+     * histograma de distâncias, diâmetro exato). Na representação CSR, as
+     * origens são processadas em lotes de 64 * nWords, com um bit por origem
+     * em cada nó, e cada nível de um lote inteiro custa uma única passada
+     * pelas arestas; nas outras, é feita uma BFS por origem.
+     * @param sources Nós de origem.
+     * @param nWords Palavras de 64 bits por nó (memória extra: 24 * nWords
+     *               bytes por nó).
+     * @return Excentricidade de cada origem e histograma das distâncias a
+     *          partir delas.
+     */
+    public DistanceProfile multiSourceBFS(int[] sources, int nWords) {
+        if (nWords < 1) {
+            throw new IllegalArgumentException("nWords deve ser positivo");
         }
 
-        // (tentei usar o IntStream.rangeClosed, mas List (que ele retorna) não
-        // implementa um método set, aí o shuffle não funciona. Achei mais
-        // rápido fazer esse loop primitivo rapidão do que estender a classe
-        // implementando esse método :P)
+        int n = this.getNNodes();
 
-        Collections.shuffle(indices);  // p/ randomizar sem repetição
+        if (this.repr == CSR) {
+            nWords = Math.max(1, Math.min(nWords, (sources.length + 63) / 64));
+            // (sem palavras sobrando quando há poucas origens)
 
-        for (int i=0; i < nIndices; i++) {
-            int idx = indices.get(i);
-            HashMap<Integer, Integer[]> bfsTree = this.BFS(idx);
+            if (this.internalId == null) {
+                return new MultiSourceBFS(csrOffsets, csrTargets, n, nWords).run(sources);
+            }
 
-            int j;
+            int[] internalSources = new int[sources.length];
 
-            if (n <= nMax) {
-                j = idx + 1;
-                // se j = i, a dist é 0 mesmo, então pode pular
-                // se j < i, já verificou em iteração anterior
-                // (análogo a estar considerando apenas as entradas acima da
-                // diag principal numa matriz de distâncias entre nós)
-            } else {
-                j = 1;
-                // no caso do algoritmo aproximativo, não vamos pular nenhum
-                // índice, porque já estamos considerando apenas um subset
-                // dos nós como origem
+            for (int i=0; i < sources.length; i++) {
+                internalSources[i] = this.toInternal(sources[i]);
             }
 
-            while (j <= n) {
-                Integer[] jTuple = bfsTree.get(j);
+            return new MultiSourceBFS(csrOffsets, csrTargets, n, nWords)
+                    .run(internalSources).withSources(sources);
+        }
 
-                //Se a componente conexa do vértice então analisado não contém
-                //o vértice até o qual estamos tentando calcular o menor caminho,
-                //pulamos para o próximo.
+        TraversalWorkspace workspace = TraversalWorkspace.forCurrentThread(n);
+        int[] eccentricity = new int[sources.length];
+        long[] histogram = new long[n];  // distâncias vão de 0 a n - 1
+        int maxDist = 0;
 
-                if (jTuple == null) {
-                    j++;
-                } else {
+        for (int i=0; i < sources.length; i++) {
+            TraversalResult tree = this.BFS(sources[i], -1, workspace);
 
-                    if (jTuple[1] > maxDist) {
-                        maxDist = jTuple[1];
-                    }
-                }
-                j++;
+            for (int j=0; j < tree.getNReached(); j++) {
+                histogram[tree.getLevel(tree.getNodeAt(j))]++;
             }
+
+            eccentricity[i] = tree.getLevel(tree.getNodeAt(tree.getNReached() - 1));
+            maxDist = Math.max(maxDist, eccentricity[i]);
         }
-        return maxDist;
+
+        return new DistanceProfile(sources, eccentricity,
+                Arrays.copyOf(histogram, maxDist + 1));
     }
 
     /**
-     * Calcula e retorna o diâmetro do grafo, definido como a maior distância entre dois
-     * vértices.
-     * @return Diâmetro do grafo; se o grafo for desconexo, retorna o maior diâmetro dentre
-     * as suas componentes.
+     * Versão de multiSourceBFS() com o número padrão de palavras por nó
+     * (MSBFS_WORDS).
+     * @param sources Nós de origem.
+     * @return Excentricidade de cada origem e histograma das distâncias a
+     *          partir delas.
      */
-    public int calcDiameter() {
-        return calcDiameter(-1);
+    public DistanceProfile multiSourceBFS(int[] sources) {
+        return this.multiSourceBFS(sources, MSBFS_WORDS);
     }
 
     /**
-     * Implementa a busca em largura a partir do vértice de origem
-     * especificado, retornando sua árvore geradora. Interrompe a BFS ao
-     * chegar ao vértice-alvo fornecido, caso este exista e esteja ligado
-     * à origem por algum caminho.
-     * @param origin Índice do vértice a ser usado como origem da busca.
-     * @param goal Índice do vértice buscado.
-     * @return HashMap cujas chaves são os índices dos nós presentes na
-     *          árvore geradora da BFS interrompida ao chegar ao nó-alvo
-     *          (caso chegue). Suas chaves são os índices dos nós (incluindo a
-     *          própria raiz e o alvo) e seus valores são arrays de inteiros
-     *          cuja primeira posição indica o pai de cada nó na árvore
-     *          geradora e cuja segunda posição indica o nível desse nó.
+     * BFS a partir de todos os nós (ver multiSourceBFS(int[], int)): dá a
+     * excentricidade de cada nó, o histograma das distâncias entre todos os
+     * pares de nós conectados (cada par contado nos dois sentidos) e o
+     * diâmetro exato (getMaxEccentricity()).
+     * @return Excentricidades (a i-ésima origem é o nó i + 1) e histograma.
      */
-    public HashMap<Integer, Integer[]> BFS(int origin, int goal) {
-        //Array booleano com a marcacao dos vertices
-        //Todos os vertices sao desmarcados a principio
-        Boolean known[] = new Boolean[this.getNNodes() + 1];
-        //nNodes + 1 p/ pular o índice 0, já
-        // que eles indexam a partir do 1 (consistente com alguns outros
-        // métodos)
+    public DistanceProfile multiSourceBFS() {
+        int[] sources = new int[this.getNNodes()];
 
-        Arrays.fill(known, false);
+        for (int i=0; i < sources.length; i++) {
+            sources[i] = i + 1;
+        }
 
-        LinkedList<Integer> queue = new LinkedList<Integer>();
-        HashMap<Integer, Integer[]> connectedToOrigin = new HashMap<Integer,
-        Integer[]>();
+        return this.multiSourceBFS(sources);
+    }
 
-        //Marcamos o vertice origem e o adicionamos na fila
-        queue.add(origin);        
-        known[origin] = true;   
-        connectedToOrigin.put(origin, new Integer[]{0, 0});
+    /**
+     * Cria uma área de trabalho (temporária) em torno de um resultado
+     * fornecido pelo usuário, para as versões de BFS() e DFS() que recebem
+     * um TraversalResult.
+     * @param result Resultado fornecido pelo usuário (ou null).
+     * @return Área de trabalho que preenche result, ou um novo resultado se
+     *          result for null.
+     */
+    private TraversalWorkspace wrapResult(TraversalResult result) {
+        if (result == null) {
+            return new TraversalWorkspace(this.getNNodes());
+        }
 
-        // Tentei agrupar os aspectos comuns a ambas as representações para
-        // o código ficar mais enxuto/limpo, mas os testes passaram a falhar;
-        // acho que estou esbarrando em problemas de escopo na hora de alterar os
-        // valores (mesmo tendo tentado definir tudo fora dos blocos), e algumas
-        // outras coisas também. Como a versão "mais feia"/com duplicações
-        // funciona, optamos por deixar assim a versao final.
+        return new TraversalWorkspace(result);
+    }
 
-        if (this.adjMatrix == null) {  // repr por lista
-            while (queue.size() != 0) {
-                int v = queue.remove();
-                int vLvl = connectedToOrigin.get(v)[1];
+    /**
+     * Garante que o grafo tem alguma representação das arestas (ou seja, que
+     * não foi carregado só com o resumo, SUMMARY).
+     */
+    private void requireAdjacency() {
+        if (this.repr == SUMMARY) {
+            throw new UnsupportedOperationException("Grafo carregado so com " +
+                    "o resumo das componentes; escolha MATRIX, LIST ou CSR " +
+                    "para percorrer as arestas");
+        }
+    }
 
-                Iterator<Integer> iter = adjList.get(v).listIterator();
+    /**
+     * Prepara uma área de trabalho para uma nova busca neste grafo.
+     * @param workspace Área de trabalho.
+     * @param origin Raiz da busca.
+     * @return Resultado da área de trabalho, já limpo.
+     */
+    private TraversalResult prepareResult(TraversalWorkspace workspace, int origin) {
+        this.requireAdjacency();
 
-                while (iter.hasNext()) {
-                    int w = iter.next();
+        TraversalResult result = workspace.getResult();
 
-                    if (!known[w]) {
-                        known[w] = true;
-                        connectedToOrigin.put(w, new Integer[]{v,
-                                vLvl + 1});
+        if (result.capacity() < this.getNNodes()) {
+            throw new IllegalArgumentException("TraversalResult com " +
+                    "capacidade para " + result.capacity() + " nos; o grafo " +
+                    "tem " + this.getNNodes());
+        }
 
-                        queue.add(w);
+        result.reset(origin);
+        result.setLabels(this.internalId, this.originalId);
 
-                        if (w == goal) {
-                            return connectedToOrigin;
-                        }
-                    }
-                }
-            }
-        } else {  // repr por matriz
-            while (queue.size() != 0) {
-                int v = queue.remove();
-                int vLvl = connectedToOrigin.get(v)[1];
+        return result;
+    }
 
-                ArrayList<Boolean> mtxVertexRow = adjMatrix.get(v);
+    /**
+     * @param node Índice original de um nó.
+     * @return Índice interno do nó (o próprio, se o grafo não foi renumerado
+     *          ou se o índice não existe no grafo, como o -1 das buscas sem
+     *          alvo).
+     */
+    int toInternal(int node) {
+        if (this.internalId == null || node < 1 || node > this.nNodes) {
+            return node;
+        }
 
-                Iterator<Boolean> iter = mtxVertexRow.iterator();
+        return this.internalId[node];
+    }
 
-                int colCounter = 0;
+    /**
+     * @param node Índice interno de um nó.
+     * @return Índice original do nó.
+     */
+    int toOriginal(int node) {
+        return this.originalId == null ? node : this.originalId[node];
+    }
 
-                while (iter.hasNext()) {
-                    Boolean w = iter.next();
+    /**
+     * Define a renumeração do grafo a partir dos índices originais dos nós.
+     * @param labels Índice original de cada índice interno (ou null, se o
+     *               grafo não foi renumerado).
+     */
+    private void setLabels(int[] labels) {
+        this.originalId = labels;
+        this.internalId = null;
 
-                    if (w) {
-                        if (!known[colCounter]) {
-                            known[colCounter] = true;
-                            connectedToOrigin.put(colCounter, new Integer[]{v,
-                                    vLvl + 1});
-                            queue.add(colCounter);
+        if (labels != null) {
+            this.internalId = new int[labels.length];
 
-                            if (colCounter == goal) {
-                                return connectedToOrigin;
-                            }
-                        }
-                    }
-                    colCounter++;
-                }
+            for (int u=1; u < labels.length; u++) {
+                this.internalId[labels[u]] = u;
             }
         }
-        return connectedToOrigin;
     }
 
     /**
@@ -489,7 +3342,8 @@ public class Graph {
      *          posição indica o nível desse nó.
      */
     public HashMap<Integer, Integer[]> BFS(int origin, String outfile) throws IOException {
-        HashMap<Integer, Integer[]> bfsTree = this.BFS(origin, -1);
+        TraversalResult bfsTree = this.BFS(origin, -1,
+                TraversalWorkspace.forCurrentThread(this.getNNodes()));
 
         BufferedWriter bw =
                 new BufferedWriter(new FileWriter(outfile, false));
@@ -499,21 +3353,31 @@ public class Graph {
         bw.write("Arvore geradora da BFS no grafo " + this.getInputFile());
         bw.write(" com origem no vertice " + origin + "\n");
 
-        bw.write("\nNumero de nos: " + bfsTree.size());
+        writeTree(bw, bfsTree);
 
-        bw.write("\n\nFormato das linhas seguintes: <vértice> <pai> <nível>\n");
+        bw.close();
 
-        for (Map.Entry<Integer, Integer[]> pair : bfsTree.entrySet()) {
-            Integer node = pair.getKey();
-            Integer parent = pair.getValue()[0];
-            Integer level = pair.getValue()[1];
+        return bfsTree.toMap();
+    }
 
-            bw.write(node + " " + parent + " " + level + "\n");
-        }
+    /**
+     * Escreve os nós de uma árvore geradora, na ordem de visita, no formato
+     * usado por BFS(int, String) e DFS(int, String).
+     * @param bw Arquivo de saída, já aberto.
+     * @param tree Resultado da busca.
+     */
+    private static void writeTree(BufferedWriter bw, TraversalResult tree)
+            throws IOException {
+        bw.write("\nNumero de nos: " + tree.getNReached());
 
-        bw.close();
+        bw.write("\n\nFormato das linhas seguintes: <vértice> <pai> <nível>\n");
 
-        return bfsTree;
+        for (int i=0; i < tree.getNReached(); i++) {
+            int node = tree.getNodeAt(i);
+
+            bw.write(node + " " + tree.getParent(node) + " " +
+                    tree.getLevel(node) + "\n");
+        }
     }
 
     /**
@@ -531,49 +3395,326 @@ public class Graph {
      *          geradora e cuja segunda posição indica o nível desse nó.
      */
     public HashMap<Integer, Integer[]> DFS(int origin, int goal) {
-        //Array booleano com a marcacao dos vertices
-        //Todos os vertices sao desmarcados a principio
-        Boolean explored[] = new Boolean[this.getNNodes() + 1];
-
-        //No caso da DFS, a marcacao significa que um vertice foi explorado
-
-        //A principio, desmarcamos todos os vertices do grafo menos o de origem.
-        Arrays.fill(explored, false);
-
-        //Criamos uma pilha com apenas vertice de origem e instanciamos o HashMap de
-        //relacoes pai/filho/nivel
-        Stack<Integer> stack = new Stack<Integer>();
-        stack.push(origin);
-
-        HashMap<Integer, Integer[]> connectedToOrigin = new HashMap<Integer, Integer[]>();
-        connectedToOrigin.put(origin, new Integer[]{0, 0});
-        //vertex, [parent, level]
-
-        while (stack.size() > 0) {
-            int v = stack.pop();
-            int vLvl = connectedToOrigin.get(v)[1];
-            explored[v] = true;
-
-            //Fiz uma cópia da lista de adjacencia de v para por os vertices adjacentes
-            //em ordem decrescente sem modificar a lista original.
-            ArrayList<Integer> adjCopia = this.getNeighbors(v);
-            Collections.sort(adjCopia);
-            Collections.reverse(adjCopia);
-
-            //Percorrendo os vertices adjacentes de v em ordem decrescente.
-            //O de menor indice fica no topo da pilha e é analisado primeiro.
-            for (int w : adjCopia) {
-                if (!explored[w]) {
-                    stack.push(w);
-                    connectedToOrigin.put(w, new Integer[]{v, vLvl + 1});
-                    if (w == goal) {
-                        return connectedToOrigin;
+        return this.DFS(origin, goal,
+                TraversalWorkspace.forCurrentThread(this.getNNodes())).toMap();
+    }
+
+    /**
+     * Implementa a busca em profundidade a partir do vértice de origem
+     * especificado, guardando sua árvore geradora num TraversalResult (em
+     * arrays primitivos, sem criar um objeto por nó). Interrompe a DFS ao
+     * chegar ao vértice-alvo fornecido, caso este exista e esteja ligado
+     * à origem por algum caminho.
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param goal Índice do vértice buscado (-1 para percorrer toda a
+     *             componente da origem).
+     * @param result Resultado a ser preenchido, que pode ser reaproveitado de
+     *               uma busca anterior (o conteúdo anterior é descartado). Se
+     *               for null, um novo é criado.
+     * @return O próprio result (ou o novo resultado, se result for null).
+     */
+    public TraversalResult DFS(int origin, int goal, TraversalResult result) {
+        return this.DFS(origin, goal, this.wrapResult(result));
+    }
+
+    /**
+     * Implementa a busca em profundidade a partir do vértice de origem
+     * especificado, usando uma área de trabalho reaproveitável: buscas
+     * repetidas com a mesma área de trabalho não alocam memória nenhuma.
+     * Interrompe a DFS ao chegar ao vértice-alvo fornecido, caso este exista
+     * e esteja ligado à origem por algum caminho.
+     *
+     * Os vizinhos de cada nó são examinados em ordem crescente (a CSR e a
+     * matriz já são ordenadas, e a lista é ordenada ao carregar o grafo), e
+     * o resultado inclui os tempos de descoberta e de término de cada nó
+     * (TraversalResult.getDiscoveryTime() e getFinishTime()).
+     * @param origin Índice do vértice a ser usado como origem da busca.
+     * @param goal Índice do vértice buscado (-1 para percorrer toda a
+     *             componente da origem).
+     * @param workspace Área de trabalho (o resultado anterior nela é
+     *                  descartado).
+     * @return O resultado da área de trabalho, com a árvore geradora.
+     */
+    public TraversalResult DFS(int origin, int goal, TraversalWorkspace workspace) {
+        return this.dfs(this.toInternal(origin), this.toInternal(goal), workspace);
+    }
+
+    /**
+     * DFS(int, int, TraversalWorkspace) nos índices internos.
+     */
+    private TraversalResult dfs(int origin, int goal, TraversalWorkspace workspace) {
+        TraversalResult result = this.prepareResult(workspace, origin);
+
+        int[] parent = result.parentArray();
+        int[] level = result.levelArray();
+        int[] order = result.orderArray();
+        int[] stamp = result.stampArray();
+        int epoch = result.epoch();
+        int[] discovery = result.discoveryArray();
+        int[] finish = result.finishArray();
+
+        // Pilha explícita de quadros (vértice, próximo vizinho a examinar),
+        // cada um em duas posições, em vez de empilhar todos os vizinhos de
+        // uma vez: como cada nó entra na pilha uma única vez, 2 * nNodes
+        // posições bastam (3 * nNodes na lista comprimida, cujos quadros
+        // guardam também o último vizinho decodificado)
+        int[] stack = workspace.stack(
+                (this.repr == COMPRESSED ? 3 : 2) * this.getNNodes());
+        int top = 0;
+        int nReached = 0;
+        int clock = 0;
+
+        order[nReached++] = origin;
+        stamp[origin] = epoch;
+        parent[origin] = 0;
+        level[origin] = 0;
+        discovery[origin] = ++clock;
+        finish[origin] = -1;
+
+        if (origin == goal) {
+            result.setNReached(nReached);
+            return result;
+        }
+
+        search:
+        if (this.repr == CSR) {
+            // O próximo vizinho é uma posição em csrTargets
+            stack[top++] = origin;
+            stack[top++] = csrOffsets[origin];
+
+            while (top > 0) {
+                int v = stack[top - 2];
+                int i = stack[top - 1];
+                int end = csrOffsets[v + 1];
+
+                while (i < end && stamp[csrTargets[i]] == epoch) {
+                    i++;
+                }
+
+                if (i == end) {  // nenhum vizinho novo: v terminou
+                    finish[v] = ++clock;
+                    top -= 2;
+                    continue;
+                }
+
+                int w = csrTargets[i];
+                stack[top - 1] = i + 1;
+
+                order[nReached++] = w;
+                stamp[w] = epoch;
+                parent[w] = v;
+                level[w] = level[v] + 1;
+                discovery[w] = ++clock;
+                finish[w] = -1;
+
+                if (w == goal) {
+                    break search;
+                }
+
+                stack[top++] = w;
+                stack[top++] = csrOffsets[w];
+            }
+        } else if (this.repr == COMPRESSED) {
+            // Quadros (vértice, posição do próximo vizinho nos bytes, último
+            // vizinho decodificado), já que cada diferença depende do
+            // vizinho anterior
+            CompressedAdjacency adj = this.compressed;
+
+            stack[top++] = origin;
+            stack[top++] = adj.start(origin);
+            stack[top++] = origin;
+
+            while (top > 0) {
+                int v = stack[top - 3];
+                int p = stack[top - 2];
+                int previous = stack[top - 1];
+                int end = adj.end(v);
+                int w = -1;
+
+                while (p < end) {
+                    long next = adj.next(v, p, previous);
+                    previous = (int) (next >>> 32);
+                    p = (int) next;
+
+                    if (stamp[previous] != epoch) {
+                        w = previous;
+                        break;
+                    }
+                }
+
+                if (w == -1) {
+                    finish[v] = ++clock;
+                    top -= 3;
+                    continue;
+                }
+
+                stack[top - 2] = p;
+                stack[top - 1] = previous;
+
+                order[nReached++] = w;
+                stamp[w] = epoch;
+                parent[w] = v;
+                level[w] = level[v] + 1;
+                discovery[w] = ++clock;
+                finish[w] = -1;
+
+                if (w == goal) {
+                    break search;
+                }
+
+                stack[top++] = w;
+                stack[top++] = adj.start(w);
+                stack[top++] = w;
+            }
+        } else if (this.repr == OFFHEAP) {
+            // Como na CSR, com o próximo vizinho dado por uma posição nos
+            // vizinhos fora da heap
+            OffHeapAdjacency adj = this.offHeap;
+
+            stack[top++] = origin;
+            stack[top++] = adj.offset(origin);
+
+            while (top > 0) {
+                int v = stack[top - 2];
+                int i = stack[top - 1];
+                int end = adj.offset(v + 1);
+
+                while (i < end && stamp[adj.target(i)] == epoch) {
+                    i++;
+                }
+
+                if (i == end) {
+                    finish[v] = ++clock;
+                    top -= 2;
+                    continue;
+                }
+
+                int w = adj.target(i);
+                stack[top - 1] = i + 1;
+
+                order[nReached++] = w;
+                stamp[w] = epoch;
+                parent[w] = v;
+                level[w] = level[v] + 1;
+                discovery[w] = ++clock;
+                finish[w] = -1;
+
+                if (w == goal) {
+                    break search;
+                }
+
+                stack[top++] = w;
+                stack[top++] = adj.offset(w);
+            }
+        } else if (this.repr == MATRIX) {
+            // O próximo vizinho é uma coluna da matriz; os já visitados são
+            // descartados 64 por vez com os bits de knownBits, como na BFS
+            long[] knownBits = workspace.knownBits(matrixWords(this.getNNodes()));
+            knownBits[origin >>> 6] |= 1L << origin;
+
+            stack[top++] = origin;
+            stack[top++] = 0;
+
+            while (top > 0) {
+                int v = stack[top - 2];
+                int col = stack[top - 1];
+                long[] mtxRow = adjMatrix[v];
+                int w = -1;
+
+                for (int k = col >>> 6; k < mtxRow.length; k++) {
+                    long fresh = mtxRow[k] & ~knownBits[k];
+
+                    if (k == col >>> 6) {
+                        fresh &= -1L << col;  // só as colunas a partir de col
+                    }
+
+                    if (fresh != 0) {
+                        w = (k << 6) + Long.numberOfTrailingZeros(fresh);
+                        break;
+                    }
+                }
+
+                if (w == -1) {
+                    finish[v] = ++clock;
+                    top -= 2;
+                    continue;
+                }
+
+                stack[top - 1] = w + 1;
+                knownBits[w >>> 6] |= 1L << w;
+
+                order[nReached++] = w;
+                stamp[w] = epoch;
+                parent[w] = v;
+                level[w] = level[v] + 1;
+                discovery[w] = ++clock;
+                finish[w] = -1;
+
+                if (w == goal) {
+                    break search;
+                }
+
+                stack[top++] = w;
+                stack[top++] = 0;
+            }
+        } else {
+            // Na lista, o "próximo vizinho" é um iterador sobre a LinkedList
+            // (acesso por índice custaria O(grau)); a pilha de inteiros
+            // guarda só os vértices
+            ArrayList<Iterator<Integer>> iterators = workspace.iteratorStack();
+
+            Iterator<Integer> it = adjList.get(origin).iterator();
+            it.next();  // o primeiro elemento da lista é o próprio nó
+            iterators.add(it);
+            stack[top++] = origin;
+
+            while (top > 0) {
+                int v = stack[top - 1];
+                it = iterators.get(top - 1);
+                int w = -1;
+
+                while (it.hasNext()) {
+                    int x = it.next();
+
+                    if (stamp[x] != epoch) {
+                        w = x;
+                        break;
                     }
                 }
+
+                if (w == -1) {
+                    finish[v] = ++clock;
+                    iterators.remove(--top);
+                    continue;
+                }
+
+                order[nReached++] = w;
+                stamp[w] = epoch;
+                parent[w] = v;
+                level[w] = level[v] + 1;
+                discovery[w] = ++clock;
+                finish[w] = -1;
+
+                if (w == goal) {
+                    break search;
+                }
+
+                it = adjList.get(w).iterator();
+                it.next();
+                iterators.add(it);
+                stack[top++] = w;
             }
+
+            iterators.clear();
         }
 
-        return connectedToOrigin;
+        if (this.repr == MATRIX) {
+            workspace.clearKnownBits(order, nReached);  // para a próxima busca
+        }
+
+        result.setNReached(nReached);
+
+        return result;
     }
 
     /**
@@ -606,7 +3747,8 @@ public class Graph {
      *          posição indica o nível desse nó.
      */
     public HashMap<Integer, Integer[]> DFS(int origin, String outfile) throws IOException {
-        HashMap<Integer, Integer[]> dfsTree = this.DFS(origin, -1);
+        TraversalResult dfsTree = this.DFS(origin, -1,
+                TraversalWorkspace.forCurrentThread(this.getNNodes()));
 
         BufferedWriter bw =
                 new BufferedWriter(new FileWriter(outfile, false));
@@ -616,21 +3758,11 @@ public class Graph {
         bw.write("Arvore geradora da DFS no grafo " + this.getInputFile());
         bw.write(" com origem no vertice " + origin + "\n");
 
-        bw.write("\nNumero de nos: " + dfsTree.size());
-
-        bw.write("\n\nFormato das linhas seguintes: <vértice> <pai> <nível>\n");
-
-        for (Map.Entry<Integer, Integer[]> pair : dfsTree.entrySet()) {
-            Integer node = pair.getKey();
-            Integer parent = pair.getValue()[0];
-            Integer level = pair.getValue()[1];
-
-            bw.write(node + " " + parent + " " + level + "\n");
-        }
+        writeTree(bw, dfsTree);
 
         bw.close();
 
-        return dfsTree;
+        return dfsTree.toMap();
     }
 
     /**
@@ -639,11 +3771,33 @@ public class Graph {
      * @return ArrayList ordenada com os índices dos nós da componente.
      */
     public ArrayList<Integer> findConnectedComponent(int node) {
-        Set<Integer> elements = this.BFS(node).keySet();
-        ArrayList<Integer> sorted = new ArrayList<Integer>();
+        if (this.loadComponents != null) {
+            int c = this.loadComponents.getComponentId(node);
+            ArrayList<Integer> members =
+                    new ArrayList<Integer>(this.loadComponents.getSize(c));
+
+            for (int i=0; i < this.loadComponents.getSize(c); i++) {
+                members.add(this.loadComponents.getNode(c, i));
+            }
+
+            return members;
+        }
+
+        TraversalResult bfsTree = this.BFS(node, -1,
+                TraversalWorkspace.forCurrentThread(this.getNNodes()));
+        int[] elements = new int[bfsTree.getNReached()];
+
+        for (int i=0; i < elements.length; i++) {
+            elements[i] = bfsTree.getNodeAt(i);
+        }
+
+        Arrays.sort(elements);
 
-        sorted.addAll(elements);
-        Collections.sort(sorted);
+        ArrayList<Integer> sorted = new ArrayList<Integer>(elements.length);
+
+        for (int element : elements) {
+            sorted.add(element);
+        }
 
         return sorted;
     }
@@ -655,23 +3809,24 @@ public class Graph {
      *          crescente, conforme saída da função findConnectedComponent().
      */
     public ArrayList<ArrayList<Integer>> findConnectedComponents() {
-        ArrayList<ArrayList<Integer>> components =
-                new ArrayList<ArrayList<Integer>>();
-
-        int n = this.getNNodes();
-        int found[] = new int[n + 1];
+        ConnectedComponents found = this.findComponents();
 
-        Arrays.fill(found, 0);
+        // Componentes na ordem do seu menor nó, como antes, para que a
+        // ordenação abaixo desempate do mesmo jeito
+        ArrayList<ArrayList<Integer>> components =
+                new ArrayList<ArrayList<Integer>>(found.getNComponents());
+        int[] position = new int[found.getNComponents()];  // em components
+        Arrays.fill(position, -1);
 
-        for (int i=1; i <= n; i++) {
-            if (found[i] == 0) {
-                ArrayList<Integer> component = this.findConnectedComponent(i);
-                components.add(component);
+        for (int v=1; v <= this.getNNodes(); v++) {
+            int c = found.getComponentId(v);
 
-                for (int node : component) {
-                    found[node] = 1;
-                }  // senão, pula
+            if (position[c] == -1) {
+                position[c] = components.size();
+                components.add(new ArrayList<Integer>(found.getSize(c)));
             }
+
+            components.get(position[c]).add(v);
         }
 
         // Para ordenar ArrayLists de inteiros de acordo com seu comprimento:
@@ -688,6 +3843,111 @@ public class Graph {
         return components;
     }
 
+    /**
+     * Determina as componentes conexas do grafo com uma única passada pelas
+     * arestas, unindo as pontas de cada uma numa floresta de conjuntos
+     * disjuntos (union-find), sem BFS e sem criar objetos por nó.
+     *
+     * Se o grafo foi carregado mantendo as componentes durante a leitura
+     * (ver o construtor com trackComponents), retorna as que já estão
+     * prontas, sem passada nenhuma.
+     * @return Componentes conexas, com o número da componente de cada nó e
+     *          consultas de tamanho e de "mesma componente" em O(1).
+     */
+    public ConnectedComponents findComponents() {
+        return this.findComponents(1);
+    }
+
+    /**
+     * Versão de findComponents() em que, na representação CSR, as arestas
+     * são divididas entre várias threads, que unem os conjuntos ao mesmo
+     * tempo (ver UnionFind.unionConcurrent()). Nas outras representações, a
+     * passada é sequencial.
+     * @param nThreads Número de threads (se menor que 1, usa o número de
+     *                 processadores disponíveis).
+     * @return Componentes conexas (as mesmas da versão sequencial).
+     */
+    public ConnectedComponents findComponents(int nThreads) {
+        if (this.loadComponents != null) {
+            return this.loadComponents;  // imutáveis, podem ser compartilhadas
+        }
+
+        int n = this.getNNodes();
+        int nWorkers = Parallel.resolveThreads(nThreads);
+        UnionFind sets = new UnionFind(n);
+
+        if (this.repr == CSR && nWorkers > 1) {
+            Parallel.run(nWorkers, w -> {
+                int from = 1 + Parallel.blockStart(w, nWorkers, n);
+                int to = 1 + Parallel.blockStart(w + 1, nWorkers, n);
+
+                for (int v=from; v < to; v++) {
+                    for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                        if (csrTargets[i] > v) {  // cada aresta uma vez só
+                            sets.unionConcurrent(v, csrTargets[i]);
+                        }
+                    }
+                }
+            });
+        } else if (this.repr == CSR) {
+            for (int v=1; v <= n; v++) {
+                for (int i=csrOffsets[v]; i < csrOffsets[v + 1]; i++) {
+                    if (csrTargets[i] > v) {
+                        sets.union(v, csrTargets[i]);
+                    }
+                }
+            }
+        } else if (this.repr == COMPRESSED) {
+            int[] neighbors = new int[compressed.getMaxDegree()];
+
+            for (int v=1; v <= n; v++) {
+                int degree = compressed.decode(v, neighbors);
+
+                for (int j=0; j < degree; j++) {
+                    if (neighbors[j] > v) {
+                        sets.union(v, neighbors[j]);
+                    }
+                }
+            }
+        } else if (this.repr == OFFHEAP) {
+            for (int v=1; v <= n; v++) {
+                for (int i=offHeap.offset(v); i < offHeap.offset(v + 1); i++) {
+                    if (offHeap.target(i) > v) {
+                        sets.union(v, offHeap.target(i));
+                    }
+                }
+            }
+        } else if (this.repr == MATRIX) {
+            for (int v=1; v <= n; v++) {
+                long[] mtxRow = adjMatrix[v];
+
+                // só as colunas depois de v (a matriz é simétrica)
+                for (int k = (v + 1) >>> 6; k < mtxRow.length; k++) {
+                    long word = mtxRow[k];
+
+                    if (k == (v + 1) >>> 6) {
+                        word &= -1L << (v + 1);
+                    }
+
+                    while (word != 0) {
+                        sets.union(v, (k << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        } else {
+            for (int v=1; v <= n; v++) {
+                for (int w : adjList.get(v)) {
+                    if (w > v) {
+                        sets.union(v, w);
+                    }
+                }
+            }
+        }
+
+        return new ConnectedComponents(sets, n, this.internalId);
+    }
+
     /**
      * Imprime um relatório sobre o grafo num arquivo de texto.
      * @param outfile Arquivo de saída, incluindo caminho absoluto ou a
@@ -703,23 +3963,36 @@ public class Graph {
         bw.write("Relatorio sobre o grafo " + this.getInputFile());
         bw.write("\n(Representacao interna: ");
 
-        if (this.adjMatrix == null) {
-            bw.write("lista ");
+        if (this.repr == SUMMARY) {
+            bw.write("nenhuma, so o resumo das componentes)");
+        } else if (this.repr == CSR) {
+            bw.write("lista compactada (CSR) de adjacências)");
+        } else if (this.repr == OFFHEAP) {
+            bw.write("lista compactada (CSR) de adjacências fora da heap)");
+        } else if (this.repr == COMPRESSED) {
+            bw.write("lista de adjacências comprimida com varints)");
+        } else if (this.repr == LIST) {
+            bw.write("lista de adjacências)");
         } else {
-            bw.write("matriz ");
+            bw.write("matriz de adjacências)");
         }
 
-        bw.write("de adjacências)");
+        if (this.originalId != null) {
+            bw.write("\n(Nos renumerados internamente; os indices abaixo sao " +
+                    "os originais)");
+        }
 
         bw.write("\n\nNumero de nos: " + this.getNNodes());
         bw.write("\nNumero de arestas: " + this.getNEdges());
 
-        HashMap<String, Double> data = this.getDegreeOverview();
+        if (this.repr != SUMMARY) {  // graus exigem as arestas
+            HashMap<String, Double> data = this.getDegreeOverview();
 
-        bw.write("\nGrau maximo: " + data.get("max"));
-        bw.write("\nGrau minimo: " + data.get("min"));
-        bw.write("\nGrau medio: " + data.get("mean"));
-        bw.write("\nMediana de grau: " + data.get("med"));
+            bw.write("\nGrau maximo: " + data.get("max"));
+            bw.write("\nGrau minimo: " + data.get("min"));
+            bw.write("\nGrau medio: " + data.get("mean"));
+            bw.write("\nMediana de grau: " + data.get("med"));
+        }
 
         bw.write("\n\nComponentes conexas");
 
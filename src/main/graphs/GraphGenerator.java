@@ -0,0 +1,467 @@
+package graphs;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+/**
+ * Gerador de grafos sintéticos de tamanho configurável, para estudar como
+ * Graph escala (e para os benchmarks e testes de estresse). Os modelos são
+ * criados pelos métodos estáticos (erdosRenyi(), barabasiAlbert(), rmat(),
+ * grid(), path() e star()), e cada grafo pode ser:
+ * - salvo no formato de texto de entrada (write()), em fluxo, sem guardar
+ *   as arestas na memória, de modo que saídas com bilhões de arestas só
+ *   dependem do disco;
+ * - carregado direto num Graph, sem arquivo intermediário (ver o construtor
+ *   Graph(GraphGenerator, int)).
+ *
+ * Os modelos aleatórios usam uma semente fixa: o mesmo gerador produz
+ * sempre as mesmas arestas, na mesma ordem, o que também permite percorrê-lo
+ * duas vezes (como a representação fora da heap faz com os arquivos).
+ */
+public abstract class GraphGenerator {
+    /**
+     * Parâmetros padrão do R-MAT (os do benchmark Graph500).
+     */
+    public static final double RMAT_A = 0.57;
+    public static final double RMAT_B = 0.19;
+    public static final double RMAT_C = 0.19;
+
+    /**
+     * Tamanho do buffer de escrita do arquivo de texto.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String name;
+    private final int nNodes;
+
+    GraphGenerator(String name, int nNodes) {
+        if (nNodes < 1) {
+            throw new IllegalArgumentException("Numero de nos deve ser " +
+                    "positivo: " + nNodes);
+        }
+
+        this.name = name;
+        this.nNodes = nNodes;
+    }
+
+    /**
+     * Grafo aleatório G(n, p) de Erdős–Rényi: cada um dos n(n - 1)/2 pares
+     * de nós é uma aresta com probabilidade p, independentemente. As
+     * arestas são geradas pulando diretamente de uma para a seguinte
+     * (Batagelj e Brandes), em tempo proporcional a n + m, e não a n².
+     * @param nNodes Número de nós.
+     * @param p Probabilidade de cada aresta (o grau médio é p(n - 1)).
+     * @param seed Semente.
+     */
+    public static GraphGenerator erdosRenyi(int nNodes, double p, long seed) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Probabilidade fora do " +
+                    "intervalo 0..1: " + p);
+        }
+
+        return new GraphGenerator("er_n" + nNodes + "_p" + p + "_s" + seed, nNodes) {
+            @Override
+            long expectedEdges() {
+                return (long) (p * nNodes * (nNodes - 1.0) / 2);
+            }
+
+            @Override
+            void emit(EdgeList sink) {
+                if (p == 0) {
+                    return;
+                }
+
+                SplittableRandom random = new SplittableRandom(seed);
+                double logQ = Math.log1p(-p);  // -infinito se p == 1
+                long v = 1;
+                long w = -1;
+
+                // Pares (v, w) com w < v, em ordem; o salto até a próxima
+                // aresta tem distribuição geométrica
+                while (v < nNodes) {
+                    w += 1 + (long) Math.floor(Math.log1p(-random.nextDouble()) / logQ);
+
+                    while (w >= v && v < nNodes) {
+                        w -= v;
+                        v++;
+                    }
+
+                    if (v < nNodes) {
+                        sink.add((int) v + 1, (int) w + 1);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Grafo de Barabási–Albert (ligação preferencial): cada novo nó se liga
+     * a edgesPerNode nós distintos já existentes (ou a todos, enquanto
+     * houver menos que isso), escolhidos com probabilidade proporcional ao
+     * grau. A distribuição de graus segue uma lei de potência, como nas
+     * redes reais. (O sorteio proporcional ao grau guarda as pontas de
+     * todas as arestas, 8 bytes por aresta.)
+     * @param nNodes Número de nós.
+     * @param edgesPerNode Arestas de cada novo nó.
+     * @param seed Semente.
+     */
+    public static GraphGenerator barabasiAlbert(int nNodes, int edgesPerNode,
+                                                long seed) {
+        if (edgesPerNode < 1) {
+            throw new IllegalArgumentException("edgesPerNode deve ser positivo");
+        }
+
+        if (2L * nNodes * edgesPerNode > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Arestas demais para o " +
+                    "sorteio proporcional ao grau");
+        }
+
+        return new GraphGenerator("ba_n" + nNodes + "_k" + edgesPerNode + "_s" +
+                seed, nNodes) {
+            @Override
+            long expectedEdges() {
+                return (long) nNodes * edgesPerNode;
+            }
+
+            @Override
+            void emit(EdgeList sink) {
+                SplittableRandom random = new SplittableRandom(seed);
+                int[] ends = new int[2 * nNodes * edgesPerNode];
+                int nEnds = 0;
+                int[] chosen = new int[edgesPerNode];
+
+                for (int v=2; v <= nNodes; v++) {
+                    int k = Math.min(edgesPerNode, v - 1);
+
+                    for (int j=0; j < k; j++) {
+                        int w;
+
+                        if (v - 1 <= edgesPerNode) {
+                            w = j + 1;  // ainda poucos nós: liga a todos
+                        } else {
+                            do {  // (sem arestas repetidas)
+                                w = ends[random.nextInt(nEnds)];
+                            } while (contains(chosen, j, w));
+                        }
+
+                        chosen[j] = w;
+                    }
+
+                    for (int j=0; j < k; j++) {
+                        sink.add(v, chosen[j]);
+                        ends[nEnds++] = v;
+                        ends[nEnds++] = chosen[j];
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Grafo R-MAT (Chakrabarti et al.), o caso particular de grafo de
+     * Kronecker usado pelo Graph500: cada aresta escolhe, em scale passos,
+     * um dos quatro quadrantes da matriz de adjacências com probabilidades
+     * a, b, c e 1 - a - b - c. Dá graus com cauda pesada e comunidades
+     * aninhadas. Como no Graph500, laços e arestas repetidas são mantidos.
+     * @param scale log2 do número de nós (de 1 a 30).
+     * @param nEdges Número de arestas.
+     * @param a Probabilidade do quadrante superior esquerdo.
+     * @param b Probabilidade do quadrante superior direito.
+     * @param c Probabilidade do quadrante inferior esquerdo.
+     * @param seed Semente.
+     */
+    public static GraphGenerator rmat(int scale, long nEdges, double a,
+                                      double b, double c, long seed) {
+        if (scale < 1 || scale > 30) {
+            throw new IllegalArgumentException("scale fora do intervalo " +
+                    "1..30: " + scale);
+        }
+
+        if (nEdges < 0 || a < 0 || b < 0 || c < 0 || a + b + c > 1) {
+            throw new IllegalArgumentException("Parametros invalidos do R-MAT");
+        }
+
+        return new GraphGenerator("rmat_s" + scale + "_m" + nEdges + "_s" + seed,
+                1 << scale) {
+            @Override
+            long expectedEdges() {
+                return nEdges;
+            }
+
+            @Override
+            void emit(EdgeList sink) {
+                SplittableRandom random = new SplittableRandom(seed);
+                double ab = a + b;
+                double abc = a + b + c;
+
+                for (long e=0; e < nEdges; e++) {
+                    int u = 0;
+                    int v = 0;
+
+                    for (int bit = scale - 1; bit >= 0; bit--) {
+                        double r = random.nextDouble();
+
+                        if (r >= abc) {
+                            u |= 1 << bit;
+                            v |= 1 << bit;
+                        } else if (r >= ab) {
+                            u |= 1 << bit;
+                        } else if (r >= a) {
+                            v |= 1 << bit;
+                        }
+                    }
+
+                    sink.add(u + 1, v + 1);
+                }
+            }
+        };
+    }
+
+    /**
+     * Versão de rmat() com os parâmetros do Graph500 (RMAT_A, RMAT_B e
+     * RMAT_C).
+     */
+    public static GraphGenerator rmat(int scale, long nEdges, long seed) {
+        return rmat(scale, nEdges, RMAT_A, RMAT_B, RMAT_C, seed);
+    }
+
+    /**
+     * Grade de rows x cols nós, cada um ligado aos vizinhos de cima, de
+     * baixo e dos lados (o nó da linha r e coluna c, a partir de 0, é
+     * r * cols + c + 1). Tem diâmetro grande, ao contrário dos outros
+     * modelos.
+     */
+    public static GraphGenerator grid(int rows, int cols) {
+        if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Dimensoes invalidas: " + rows +
+                    " x " + cols);
+        }
+
+        return new GraphGenerator("grid_" + rows + "x" + cols, rows * cols) {
+            @Override
+            long expectedEdges() {
+                return 2L * rows * cols - rows - cols;
+            }
+
+            @Override
+            void emit(EdgeList sink) {
+                for (int r=0; r < rows; r++) {
+                    for (int c=0; c < cols; c++) {
+                        int v = r * cols + c + 1;
+
+                        if (c + 1 < cols) {
+                            sink.add(v, v + 1);
+                        }
+
+                        if (r + 1 < rows) {
+                            sink.add(v, v + cols);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Caminho 1 - 2 - ... - nNodes (diâmetro nNodes - 1).
+     */
+    public static GraphGenerator path(int nNodes) {
+        return new GraphGenerator("path_n" + nNodes, nNodes) {
+            @Override
+            long expectedEdges() {
+                return nNodes - 1;
+            }
+
+            @Override
+            void emit(EdgeList sink) {
+                for (int v=1; v < nNodes; v++) {
+                    sink.add(v, v + 1);
+                }
+            }
+        };
+    }
+
+    /**
+     * Estrela: o nó 1 ligado a todos os outros (um nó de grau nNodes - 1).
+     */
+    public static GraphGenerator star(int nNodes) {
+        return new GraphGenerator("star_n" + nNodes, nNodes) {
+            @Override
+            long expectedEdges() {
+                return nNodes - 1;
+            }
+
+            @Override
+            void emit(EdgeList sink) {
+                for (int v=2; v <= nNodes; v++) {
+                    sink.add(1, v);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Nome do grafo, com o modelo e os parâmetros (usado como
+     *          Graph.getInputFile() do grafo gerado).
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Número de nós.
+     */
+    public int getNNodes() {
+        return nNodes;
+    }
+
+    /**
+     * @return Número de arestas (esperado, no caso do modelo de
+     *          Erdős–Rényi).
+     */
+    abstract long expectedEdges();
+
+    /**
+     * Gera as arestas, uma por vez.
+     * @param sink Onde inserir as arestas.
+     */
+    abstract void emit(EdgeList sink);
+
+    /**
+     * Gera o grafo para um buffer de arestas, como a leitura de um arquivo
+     * (ver EdgeSource).
+     * @param edges Buffer vazio.
+     * @param trackComponents Se as componentes conexas devem ser mantidas.
+     * @return O próprio buffer, com o número de nós.
+     */
+    EdgeList generate(EdgeList edges, boolean trackComponents) {
+        edges.setNNodes(nNodes);
+
+        if (trackComponents) {
+            UnionFind components = new UnionFind(nNodes);
+            edges.setComponents(components);
+            this.emit(new Tracker(edges, components));
+        } else {
+            this.emit(edges);
+        }
+
+        return edges;
+    }
+
+    /**
+     * Salva o grafo no formato de texto de entrada (número de nós na
+     * primeira linha e uma aresta "u v" por linha), em fluxo.
+     * @param outfile Arquivo de saída (será sobrescrito caso já exista).
+     */
+    public void write(String outfile) throws IOException {
+        try (TextSink sink = new TextSink(outfile)) {
+            sink.writeLine(nNodes, -1);
+            this.emit(sink);
+        } catch (UncheckedIOException exc) {
+            throw exc.getCause();
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i=0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Repassa as arestas para outro buffer, unindo as pontas de cada uma nas
+     * componentes (como faz EdgeListReader).
+     */
+    private static class Tracker extends EdgeList {
+        private final EdgeList target;
+        private final UnionFind components;
+
+        Tracker(EdgeList target, UnionFind components) {
+            this.target = target;
+            this.components = components;
+        }
+
+        @Override
+        void add(int node1, int node2) {
+            target.add(node1, node2);
+            components.union(node1, node2);
+        }
+    }
+
+    /**
+     * Escreve as arestas como texto, com os dígitos formatados direto num
+     * buffer de bytes (sem criar uma String por número).
+     */
+    private static class TextSink extends EdgeList implements AutoCloseable {
+        private final FileOutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int length;
+
+        TextSink(String outfile) throws IOException {
+            this.out = new FileOutputStream(outfile, false);
+        }
+
+        @Override
+        void add(int node1, int node2) {
+            writeLine(node1, node2);
+        }
+
+        /**
+         * Escreve uma linha com um ou dois números.
+         * @param second Segundo número, ou -1 para nenhum.
+         */
+        void writeLine(int first, int second) {
+            if (length + 24 > buffer.length) {
+                flush();
+            }
+
+            writeInt(first);
+
+            if (second != -1) {
+                buffer[length++] = ' ';
+                writeInt(second);
+            }
+
+            buffer[length++] = '\n';
+        }
+
+        private void writeInt(int value) {
+            int end = length + 1;
+
+            for (int rest = value; rest >= 10; rest /= 10) {
+                end++;
+            }
+
+            for (int i = end - 1; i >= length; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+
+            length = end;
+        }
+
+        private void flush() {
+            try {
+                out.write(buffer, 0, length);
+                length = 0;
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package graphs;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato binário em que um Graph pode ser salvo (Graph.saveSnapshot()) e
+ * reaberto pelo construtor sem interpretar texto nenhum: os arrays da
+ * representação CSR vão direto para o arquivo, em little-endian.
+ *
+ * Layout:
+ * - cabeçalho de HEADER_SIZE bytes: MAGIC (8 bytes), versão, flags, número
+ *   de nós e de arestas (int), tamanho em bytes da seção de vizinhos (long)
+ *   e o CRC32C de tudo o que vem depois do cabeçalho (long);
+ * - offsets da CSR: nNodes + 2 ints;
+ * - com a flag PERMUTED, o índice original de cada nó de um grafo
+ *   renumerado (Graph.relabel()): nNodes + 1 ints, sendo o primeiro 0;
+ * - vizinhos da CSR: 2 * nEdges ints ou, com a flag COMPRESSED, os vizinhos
+ *   de cada nó (em ordem crescente) como varints: o primeiro é a diferença
+ *   para o próprio nó (em zigzag, já que pode ser negativa), e os seguintes,
+ *   a diferença para o anterior.
+ *
+ * A leitura mapeia o arquivo em memória (FileChannel.map), em janelas, e
+ * copia os arrays em blocos, conferindo o checksum no caminho. Para a
+ * representação fora da heap (Graph.OFFHEAP), os arrays de um snapshot sem
+ * compressão são usados diretamente do mapeamento, sem cópia (map()).
+ */
+class GraphSnapshot {
+    /**
+     * Primeiros bytes de todo snapshot; como o formato de texto começa por
+     * um número, servem para distinguir os dois.
+     */
+    private static final byte[] MAGIC = {'G', 'R', 'A', 'F', 'O', 'S', 'N', 'P'};
+
+    private static final int VERSION = 1;
+
+    /**
+     * Flag dos vizinhos comprimidos com varints.
+     */
+    static final int COMPRESSED = 1;
+
+    /**
+     * Flag da seção com a renumeração dos nós.
+     */
+    static final int PERMUTED = 2;
+
+    private static final int HEADER_SIZE = 40;
+
+    /**
+     * Tamanho máximo de cada janela mapeada (múltiplo de 4, para que nenhum
+     * int fique dividido entre duas janelas).
+     */
+    private static final long WINDOW_SIZE = 1L << 28;  // 256 MB
+
+    /**
+     * Tamanho do buffer usado na escrita.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;  // 1 MB
+
+    final int nNodes;
+    final int nEdges;
+    final int[] offsets;
+    final int[] targets;
+
+    /**
+     * Índice original de cada nó, se o grafo foi salvo renumerado; senão,
+     * null.
+     */
+    final int[] labels;
+
+    /**
+     * Tamanho do arquivo lido, em bytes.
+     */
+    final long bytes;
+
+    private GraphSnapshot(int nNodes, int nEdges, int[] offsets, int[] targets,
+                          int[] labels, long bytes) {
+        this.nNodes = nNodes;
+        this.nEdges = nEdges;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.labels = labels;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param filepath Caminho de um arquivo.
+     * @return Se o arquivo começa com MAGIC (ou seja, se é um snapshot e não
+     *          um arquivo de texto).
+     */
+    static boolean isSnapshot(String filepath) throws IOException {
+        try (FileInputStream stream = new FileInputStream(filepath)) {
+            byte[] start = stream.readNBytes(MAGIC.length);
+
+            return Arrays.equals(start, MAGIC);
+        }
+    }
+
+    /**
+     * Salva um grafo na representação CSR.
+     * @param filepath Arquivo de saída (sobrescrito caso já exista).
+     * @param nNodes Número de nós.
+     * @param nEdges Número de arestas.
+     * @param offsets Offsets da CSR (nNodes + 2 posições).
+     * @param targets Vizinhos da CSR, em ordem crescente para cada nó.
+     * @param labels Índice original de cada nó, se o grafo foi renumerado
+     *               (gravado com a flag PERMUTED); senão, null.
+     * @param flags 0 ou COMPRESSED.
+     */
+    static void write(String filepath, int nNodes, int nEdges, int[] offsets,
+                      int[] targets, int[] labels, int flags) throws IOException {
+        if (labels != null) {
+            flags |= PERMUTED;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(filepath, "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+
+            Writer writer = new Writer(channel, HEADER_SIZE);
+
+            writer.putInts(offsets, 0, nNodes + 2);
+
+            if (labels != null) {
+                writer.putInts(labels, 0, nNodes + 1);
+            }
+
+            long targetsStart = writer.position();
+
+            if ((flags & COMPRESSED) != 0) {
+                for (int v=1; v <= nNodes; v++) {
+                    int previous = v;
+
+                    for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                        int delta = targets[i] - previous;
+
+                        if (i == offsets[v]) {
+                            delta = (delta << 1) ^ (delta >> 31);  // zigzag
+                        }
+
+                        writer.putVarint(delta);
+                        previous = targets[i];
+                    }
+                }
+            } else {
+                writer.putInts(targets, 0, offsets[nNodes + 1]);
+            }
+
+            writer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(flags);
+            header.putInt(nNodes);
+            header.putInt(nEdges);
+            header.putLong(writer.position() - targetsStart);
+            header.putLong(writer.checksum());
+            header.flip();
+
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * Lê um snapshot inteiro, conferindo o checksum.
+     * @param filepath Caminho do arquivo.
+     * @return Número de nós e de arestas e os arrays da CSR.
+     * @throws IOException Se o arquivo não puder ser lido, não for um
+     *          snapshot desta versão ou estiver corrompido.
+     */
+    static GraphSnapshot read(String filepath) throws IOException {
+        try (FileInputStream stream = new FileInputStream(filepath);
+             FileChannel channel = stream.getChannel()) {
+            long size = channel.size();
+            Header header = new Header(channel);
+            int flags = header.flags;
+            int nNodes = header.nNodes;
+            int nEdges = header.nEdges;
+            long targetsBytes = header.targetsBytes;
+            long checksum = header.checksum;
+
+            Reader reader = new Reader(channel, HEADER_SIZE, size);
+            int[] offsets = new int[nNodes + 2];
+            reader.getInts(offsets, nNodes + 2);
+
+            // (o número de vizinhos pode ser menor que 2 * nEdges num grafo
+            // salvo a partir da matriz, que não guarda arestas repetidas)
+            for (int v=0; v <= nNodes; v++) {
+                if (offsets[v] < 0 || offsets[v] > offsets[v + 1]) {
+                    throw new IOException("Snapshot com offsets invalidos");
+                }
+            }
+
+            int[] labels = null;
+
+            if ((flags & PERMUTED) != 0) {
+                labels = new int[nNodes + 1];
+                reader.getInts(labels, nNodes + 1);
+                checkLabels(labels);
+            }
+
+            int nTargets = offsets[nNodes + 1];
+
+            if ((flags & COMPRESSED) == 0 && 4L * nTargets != targetsBytes) {
+                throw new IOException("Snapshot com offsets invalidos");
+            }
+
+            int[] targets = new int[nTargets];
+
+            if ((flags & COMPRESSED) != 0) {
+                for (int v=1; v <= nNodes; v++) {
+                    int previous = v;
+
+                    for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                        int delta = reader.getVarint();
+
+                        if (i == offsets[v]) {
+                            delta = (delta >>> 1) ^ -(delta & 1);  // zigzag
+                        }
+
+                        targets[i] = previous + delta;
+                        previous = targets[i];
+                    }
+                }
+            } else {
+                reader.getInts(targets, nTargets);
+            }
+
+            if (reader.position() != size) {
+                throw new IOException("Snapshot com bytes sobrando no final");
+            }
+
+            if (reader.checksum() != checksum) {
+                throw new IOException("Snapshot corrompido (checksum nao confere)");
+            }
+
+            return new GraphSnapshot(nNodes, nEdges, offsets, targets, labels,
+                    size);
+        }
+    }
+
+    /**
+     * Mapeia os arrays de um snapshot sem compressão diretamente como lista
+     * de adjacências fora da heap, sem copiá-los: só o cabeçalho e os
+     * offsets são lidos na hora, e as páginas dos vizinhos são carregadas do
+     * disco conforme forem acessadas. (Por isso, o checksum não é conferido
+     * nesse caso; só a estrutura do arquivo.)
+     * @param filepath Caminho do arquivo.
+     * @return Lista de adjacências mapeada, ou null se o snapshot for
+     *          comprimido (aí é preciso usar read()).
+     * @throws IOException Se o arquivo não puder ser lido ou não for um
+     *          snapshot válido desta versão.
+     */
+    static OffHeapAdjacency map(String filepath) throws IOException {
+        try (FileInputStream stream = new FileInputStream(filepath);
+             FileChannel channel = stream.getChannel()) {
+            Header header = new Header(channel);
+
+            if ((header.flags & COMPRESSED) != 0) {
+                return null;
+            }
+
+            IntBuffer[] offsets = OffHeapAdjacency.map(channel, HEADER_SIZE,
+                    header.nNodes + 2L);
+            long targetsStart = HEADER_SIZE + 4L * (header.nNodes + 2);
+            int[] labels = null;
+
+            if ((header.flags & PERMUTED) != 0) {
+                // (na heap: é consultada a cada acesso por índice original)
+                labels = new int[header.nNodes + 1];
+                channel.map(FileChannel.MapMode.READ_ONLY, targetsStart,
+                        4L * labels.length).order(ByteOrder.LITTLE_ENDIAN)
+                        .asIntBuffer().get(labels);
+                checkLabels(labels);
+                targetsStart += 4L * labels.length;
+            }
+
+            IntBuffer[] targets = OffHeapAdjacency.map(channel, targetsStart,
+                    header.targetsBytes / 4);
+
+            OffHeapAdjacency adjacency = new OffHeapAdjacency(header.nNodes,
+                    header.nEdges, offsets, targets);
+            int nTargets = (int) (header.targetsBytes / 4);
+
+            for (int v=0; v <= header.nNodes; v++) {
+                if (adjacency.offset(v) < 0 ||
+                        adjacency.offset(v) > adjacency.offset(v + 1)) {
+                    throw new IOException("Snapshot com offsets invalidos");
+                }
+            }
+
+            if (header.targetsBytes % 4 != 0 ||
+                    adjacency.offset(header.nNodes + 1) != nTargets) {
+                throw new IOException("Snapshot com offsets invalidos");
+            }
+
+            adjacency.setBytesRead(channel.size());
+            adjacency.setLabels(labels);
+
+            return adjacency;
+        }
+    }
+
+    /**
+     * Confere se a seção de renumeração é uma permutação dos nós.
+     * @param labels Índice original de cada nó (a posição 0 deve ser 0).
+     * @throws IOException Se não for.
+     */
+    private static void checkLabels(int[] labels) throws IOException {
+        boolean[] seen = new boolean[labels.length];
+
+        for (int v=1; v < labels.length; v++) {
+            int label = labels[v];
+
+            if (label < 1 || label >= labels.length || seen[label]) {
+                throw new IOException("Snapshot com renumeracao invalida");
+            }
+
+            seen[label] = true;
+        }
+
+        if (labels[0] != 0) {
+            throw new IOException("Snapshot com renumeracao invalida");
+        }
+    }
+
+    /**
+     * Converte a CSR lida em um buffer de arestas (cada aresta uma vez, com a
+     * menor ponta primeiro), para montar as outras representações.
+     * @return Buffer com o número de nós e as arestas.
+     */
+    EdgeList toEdgeList() {
+        EdgeList edges = new EdgeList(nEdges);
+        edges.setNNodes(nNodes);
+
+        for (int v=1; v <= nNodes; v++) {
+            boolean loopTwin = false;  // um laço aparece duas vezes em v
+
+            for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+
+                if (w > v) {
+                    edges.add(v, w);
+                } else if (w == v) {
+                    if (!loopTwin) {
+                        edges.add(v, w);
+                    }
+
+                    loopTwin = !loopTwin;
+                }
+            }
+        }
+
+        edges.setBytesRead(bytes);
+
+        return edges;
+    }
+
+    /**
+     * Cabeçalho de um snapshot, já validado contra o tamanho do arquivo.
+     */
+    private static class Header {
+        final int flags;
+        final int nNodes;
+        final int nEdges;
+        final long targetsBytes;
+        final long checksum;
+
+        Header(FileChannel channel) throws IOException {
+            long size = channel.size();
+
+            if (size < HEADER_SIZE) {
+                throw new IOException("Snapshot truncado (cabecalho incompleto)");
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Arquivo nao e um snapshot de grafo");
+            }
+
+            int version = header.getInt();
+
+            if (version != VERSION) {
+                throw new IOException("Versao de snapshot nao suportada: " + version);
+            }
+
+            this.flags = header.getInt();
+            this.nNodes = header.getInt();
+            this.nEdges = header.getInt();
+            this.targetsBytes = header.getLong();
+            this.checksum = header.getLong();
+
+            if (nNodes < 0 || nEdges < 0 || 2L * nEdges > Integer.MAX_VALUE ||
+                    targetsBytes < 0 || size != HEADER_SIZE + 4L * (nNodes + 2) +
+                    ((flags & PERMUTED) != 0 ? 4L * (nNodes + 1) : 0) + targetsBytes) {
+                throw new IOException("Snapshot truncado ou com cabecalho " +
+                        "invalido");
+            }
+        }
+    }
+
+    /**
+     * Escrita bufferizada a partir de uma posição do arquivo, calculando o
+     * CRC32C dos bytes escritos.
+     */
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32C crc = new CRC32C();
+        private long position;
+
+        Writer(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void putInts(int[] values, int from, int count) throws IOException {
+            while (count > 0) {
+                if (buffer.remaining() < 4) {
+                    flush();
+                }
+
+                int len = Math.min(count, buffer.remaining() / 4);
+                IntBuffer view = buffer.asIntBuffer();
+
+                view.put(values, from, len);
+                buffer.position(buffer.position() + 4 * len);
+                from += len;
+                count -= len;
+            }
+        }
+
+        void putVarint(int value) throws IOException {
+            if (buffer.remaining() < 5) {
+                flush();
+            }
+
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+
+            buffer.put((byte) value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+
+            buffer.clear();
+        }
+
+        /**
+         * @return Posição no arquivo do próximo byte (incluindo os que ainda
+         *          estão no buffer).
+         */
+        long position() {
+            return position + buffer.position();
+        }
+
+        long checksum() {
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * Leitura sequencial do arquivo mapeado em janelas, calculando o CRC32C
+     * dos bytes lidos.
+     */
+    private static class Reader {
+        private final FileChannel channel;
+        private final long size;
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Reader(FileChannel channel, long position, long size) throws IOException {
+            this.channel = channel;
+            this.size = size;
+            this.map(position);
+        }
+
+        private void map(long position) throws IOException {
+            if (window != null) {
+                crc.update(window.flip());
+            }
+
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, size - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void getInts(int[] dst, int count) throws IOException {
+            int from = 0;
+
+            while (count > 0) {
+                if (!window.hasRemaining()) {
+                    this.map(this.position());
+                }
+
+                int len = Math.min(count, window.remaining() / 4);
+
+                window.asIntBuffer().get(dst, from, len);
+                window.position(window.position() + 4 * len);
+                from += len;
+                count -= len;
+            }
+        }
+
+        int getVarint() throws IOException {
+            int value = 0;
+
+            for (int shift=0; shift < 35; shift += 7) {
+                if (!window.hasRemaining()) {
+                    if (this.position() == size) {
+                        throw new IOException("Snapshot truncado (varint incompleto)");
+                    }
+
+                    this.map(this.position());
+                }
+
+                byte b = window.get();
+                value |= (b & 0x7F) << shift;
+
+                if (b >= 0) {
+                    return value;
+                }
+            }
+
+            throw new IOException("Snapshot com varint invalido");
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        long checksum() {
+            crc.update(window.duplicate().flip());
+
+            return crc.getValue();
+        }
+    }
+}
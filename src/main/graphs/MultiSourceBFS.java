@@ -0,0 +1,185 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * BFS a partir de várias origens ao mesmo tempo sobre a representação CSR,
+ * no estilo do MS-BFS de Then et al.: cada origem de um lote ocupa um bit, e
+ * cada nó guarda, em nWords palavras long, o conjunto de origens que já o
+ * alcançaram (seen) e o das que o alcançaram no último nível (visit). Um
+ * nível inteiro do lote é calculado numa única passada pelos arrays da CSR:
+ * cada nó junta (OR) o visit dos vizinhos e fica só com as origens que ainda
+ * não tinha visto. Com 64 * nWords origens por lote, o número de passadas
+ * pelas arestas cai na mesma proporção em relação a uma BFS por origem.
+ */
+class MultiSourceBFS {
+    private final int[] offsets;
+    private final int[] targets;
+    private final int nNodes;
+    private final int nWords;
+
+    // Conjuntos de origens de cada nó: as palavras do nó v ficam nas
+    // posições [v * nWords, (v + 1) * nWords)
+    private final long[] seen;
+    private long[] visit;
+    private long[] visitNext;
+
+    /**
+     * @param offsets Offsets da CSR do grafo.
+     * @param targets Vizinhos da CSR do grafo.
+     * @param nNodes Número de nós do grafo.
+     * @param nWords Palavras de 64 bits por nó (o lote tem 64 * nWords
+     *               origens).
+     */
+    MultiSourceBFS(int[] offsets, int[] targets, int nNodes, int nWords) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.nNodes = nNodes;
+        this.nWords = nWords;
+
+        int length = (nNodes + 1) * nWords;
+
+        this.seen = new long[length];
+        this.visit = new long[length];
+        this.visitNext = new long[length];
+    }
+
+    /**
+     * Faz a BFS a partir de todas as origens, em lotes de 64 * nWords.
+     * @param sources Nós de origem.
+     * @return Excentricidades e histograma de distâncias.
+     */
+    DistanceProfile run(int[] sources) {
+        int[] eccentricity = new int[sources.length];
+        long[] histogram = new long[16];
+        int batchSize = 64 * nWords;
+
+        for (int first=0; first < sources.length; first += batchSize) {
+            int count = Math.min(batchSize, sources.length - first);
+
+            histogram = this.runBatch(sources, first, count, eccentricity, histogram);
+        }
+
+        int maxDist = 0;
+
+        for (int d=0; d < histogram.length; d++) {
+            if (histogram[d] != 0) {
+                maxDist = d;
+            }
+        }
+
+        return new DistanceProfile(sources, eccentricity,
+                Arrays.copyOf(histogram, maxDist + 1));
+    }
+
+    /**
+     * Faz a BFS de um lote de origens.
+     * @param sources Todas as origens.
+     * @param first Posição da primeira origem do lote.
+     * @param count Número de origens do lote.
+     * @param eccentricity Onde escrever a excentricidade de cada origem.
+     * @param histogram Histograma a ser acumulado.
+     * @return O histograma (realocado, se precisou crescer).
+     */
+    private long[] runBatch(int[] sources, int first, int count,
+                            int[] eccentricity, long[] histogram) {
+        Arrays.fill(seen, 0);
+        Arrays.fill(visit, 0);
+
+        // Máscara das origens válidas do lote (o último pode estar
+        // incompleto), para saber quando um nó já foi visto por todas
+        long[] full = new long[nWords];
+
+        for (int b=0; b < count; b++) {
+            full[b >>> 6] |= 1L << b;
+
+            int pos = sources[first + b] * nWords + (b >>> 6);
+            seen[pos] |= 1L << b;
+            visit[pos] |= 1L << b;
+        }
+
+        histogram[0] += count;
+
+        long[] gathered = new long[nWords];
+        long[] levelBits = new long[nWords];
+        boolean active = true;
+
+        for (int d=1; active; d++) {
+            active = false;
+            Arrays.fill(levelBits, 0);
+
+            long found = 0;
+
+            for (int w=1; w <= nNodes; w++) {
+                int base = w * nWords;
+                boolean complete = true;
+
+                for (int j=0; j < nWords; j++) {
+                    if (seen[base + j] != full[j]) {
+                        complete = false;
+                        break;
+                    }
+                }
+
+                if (complete) {  // nada de novo pode chegar a w
+                    for (int j=0; j < nWords; j++) {
+                        visitNext[base + j] = 0;
+                    }
+
+                    continue;
+                }
+
+                Arrays.fill(gathered, 0);
+
+                for (int i=offsets[w]; i < offsets[w + 1]; i++) {
+                    int vBase = targets[i] * nWords;
+
+                    for (int j=0; j < nWords; j++) {
+                        gathered[j] |= visit[vBase + j];
+                    }
+                }
+
+                for (int j=0; j < nWords; j++) {
+                    long fresh = gathered[j] & ~seen[base + j];
+
+                    visitNext[base + j] = fresh;
+
+                    if (fresh != 0) {
+                        seen[base + j] |= fresh;
+                        levelBits[j] |= fresh;
+                        found += Long.bitCount(fresh);
+                    }
+                }
+            }
+
+            if (found > 0) {
+                active = true;
+
+                if (d >= histogram.length) {
+                    histogram = Arrays.copyOf(histogram, 2 * histogram.length);
+                }
+
+                histogram[d] += found;
+
+                // As origens que chegaram a algum nó neste nível têm
+                // excentricidade pelo menos d
+                for (int j=0; j < nWords; j++) {
+                    long bits = levelBits[j];
+
+                    while (bits != 0) {
+                        int b = (j << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+
+                        eccentricity[first + b] = d;
+                    }
+                }
+            }
+
+            long[] swap = visit;
+            visit = visitNext;
+            visitNext = swap;
+        }
+
+        return histogram;
+    }
+}
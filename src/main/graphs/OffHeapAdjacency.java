@@ -0,0 +1,323 @@
+package graphs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Lista de adjacências no formato CSR (offsets e vizinhos, como na
+ * representação CSR do Graph) guardada fora da heap, em ByteBuffers diretos
+ * ou mapeados de um arquivo. A heap fica só com os objetos dos buffers,
+ * então o coletor de lixo nunca percorre as arestas, e o tamanho do grafo é
+ * limitado pela memória do sistema (e, para os buffers diretos, por
+ * -XX:MaxDirectMemorySize), não pelo -Xmx.
+ *
+ * Cada array é dividido em segmentos de até 2^SEGMENT_SHIFT inteiros (1 GB),
+ * já que um ByteBuffer não passa de 2 GB.
+ */
+class OffHeapAdjacency {
+    /**
+     * log2 do número de inteiros por segmento.
+     */
+    static final int SEGMENT_SHIFT = 28;
+
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final int nNodes;
+
+    /**
+     * nNodes + 2 posições, como Graph.csrOffsets.
+     */
+    private final IntBuffer[] offsets;
+
+    /**
+     * Vizinhos de todos os nós, como Graph.csrTargets.
+     */
+    private final IntBuffer[] targets;
+
+    /**
+     * Os offsets e os vizinhos, se couberem num único segmento (o caso
+     * comum), para que offset() e target() não precisem escolher o
+     * segmento; senão, null.
+     */
+    private final IntBuffer singleOffsets;
+    private final IntBuffer singleTargets;
+
+    /**
+     * Número de arestas lidas.
+     */
+    private final int nEdges;
+
+    /**
+     * Tamanho do arquivo de origem, em bytes.
+     */
+    private long bytesRead;
+
+    /**
+     * Componentes mantidas durante a leitura do arquivo de texto (null se
+     * não foram pedidas ou se o grafo veio de um snapshot).
+     */
+    private UnionFind components;
+
+    /**
+     * Índice original de cada nó, se o snapshot mapeado foi salvo de um
+     * grafo renumerado (ver Graph.relabel()); senão, null.
+     */
+    private int[] labels;
+
+    OffHeapAdjacency(int nNodes, int nEdges, IntBuffer[] offsets, IntBuffer[] targets) {
+        this.nNodes = nNodes;
+        this.nEdges = nEdges;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.singleOffsets = offsets.length == 1 ? offsets[0] : null;
+        this.singleTargets = targets.length == 1 ? targets[0] : null;
+    }
+
+    /**
+     * Monta a lista de adjacências com duas passadas pela origem das arestas
+     * (um arquivo de texto ou um GraphGenerator), sem guardar as arestas na
+     * heap: a primeira conta os graus (e, opcionalmente, mantém as
+     * componentes conexas); a segunda escreve cada aresta direto na posição
+     * do seu nó. No fim, os vizinhos de cada nó são ordenados.
+     * @param source Origem das arestas.
+     * @param trackComponents Se as componentes conexas devem ser mantidas
+     *                        durante a primeira passada.
+     * @return Lista de adjacências fora da heap.
+     * @throws IOException Se o arquivo não puder ser lido ou estiver fora do
+     *          formato.
+     */
+    static OffHeapAdjacency build(EdgeSource source, boolean trackComponents)
+            throws IOException {
+        DegreeCounter counter = new DegreeCounter();
+        source.readInto(counter, trackComponents);
+
+        int n = counter.getNNodes();
+        int[] degree = counter.degree;
+
+        if (2L * counter.size() > Integer.MAX_VALUE) {
+            throw new IOException("Arestas demais (" + counter.size() + ")");
+        }
+
+        IntBuffer[] offsets = allocate(n + 2L);
+        int[] cursor = new int[n + 2];  // próxima posição livre de cada nó
+
+        for (int v=1; v <= n + 1; v++) {
+            cursor[v] = cursor[v - 1] + degree[v - 1];
+            set(offsets, v, cursor[v]);
+        }
+
+        IntBuffer[] targets = allocate(2L * counter.size());
+        source.readInto(new Scatter(targets, cursor), false);
+
+        // Vizinhos em ordem crescente, como na CSR; cada lista é ordenada
+        // numa cópia na heap, do tamanho do maior grau
+        int maxDegree = 0;
+
+        for (int v=1; v <= n; v++) {
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+
+        int[] scratch = new int[maxDegree];
+
+        for (int v=1; v <= n; v++) {
+            int start = get(offsets, v);
+            int len = degree[v];
+
+            for (int j=0; j < len; j++) {
+                scratch[j] = get(targets, start + j);
+            }
+
+            Arrays.sort(scratch, 0, len);
+
+            for (int j=0; j < len; j++) {
+                set(targets, start + j, scratch[j]);
+            }
+        }
+
+        OffHeapAdjacency adjacency =
+                new OffHeapAdjacency(n, counter.size(), offsets, targets);
+        adjacency.bytesRead = counter.getBytesRead();
+        adjacency.components = counter.getComponents();
+
+        return adjacency;
+    }
+
+    /**
+     * Copia a lista de adjacências de arrays da heap (por exemplo, os de um
+     * snapshot comprimido) para fora dela.
+     */
+    static OffHeapAdjacency copyOf(int nNodes, int nEdges, int[] offsets,
+                                   int[] targets) {
+        IntBuffer[] offHeapOffsets = allocate(offsets.length);
+        IntBuffer[] offHeapTargets = allocate(targets.length);
+
+        copy(offsets, offHeapOffsets);
+        copy(targets, offHeapTargets);
+
+        return new OffHeapAdjacency(nNodes, nEdges, offHeapOffsets, offHeapTargets);
+    }
+
+    /**
+     * Aloca um array de inteiros fora da heap, zerado.
+     * @param length Número de inteiros.
+     * @return Segmentos do array.
+     */
+    static IntBuffer[] allocate(long length) {
+        int nSegments = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        IntBuffer[] segments = new IntBuffer[Math.max(nSegments, 1)];
+
+        for (int s=0; s < segments.length; s++) {
+            long segLength = Math.min(length - ((long) s << SEGMENT_SHIFT),
+                    1L << SEGMENT_SHIFT);
+
+            segments[s] = ByteBuffer.allocateDirect((int) (4 * Math.max(segLength, 0)))
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+
+        return segments;
+    }
+
+    /**
+     * Mapeia um array de inteiros little-endian de um arquivo, só para
+     * leitura; as páginas só são lidas do disco quando acessadas, e o cache
+     * de páginas do sistema é compartilhado entre processos.
+     * @param channel Canal do arquivo.
+     * @param position Posição do array no arquivo, em bytes.
+     * @param length Número de inteiros.
+     * @return Segmentos do array.
+     */
+    static IntBuffer[] map(FileChannel channel, long position, long length)
+            throws IOException {
+        int nSegments = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        IntBuffer[] segments = new IntBuffer[Math.max(nSegments, 1)];
+
+        for (int s=0; s < segments.length; s++) {
+            long first = (long) s << SEGMENT_SHIFT;
+            long segLength = Math.max(0, Math.min(length - first, 1L << SEGMENT_SHIFT));
+
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    position + 4 * first, 4 * segLength)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+
+        return segments;
+    }
+
+    private static void copy(int[] src, IntBuffer[] dst) {
+        for (int s=0; s < dst.length; s++) {
+            int first = s << SEGMENT_SHIFT;
+
+            dst[s].put(0, src, first, dst[s].capacity());
+        }
+    }
+
+    private static int get(IntBuffer[] array, int i) {
+        return array[i >>> SEGMENT_SHIFT].get(i & SEGMENT_MASK);
+    }
+
+    private static void set(IntBuffer[] array, int i, int value) {
+        array[i >>> SEGMENT_SHIFT].put(i & SEGMENT_MASK, value);
+    }
+
+    int getNNodes() {
+        return nNodes;
+    }
+
+    int getNEdges() {
+        return nEdges;
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    UnionFind getComponents() {
+        return components;
+    }
+
+    int[] getLabels() {
+        return labels;
+    }
+
+    void setLabels(int[] labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * @param v Índice do nó (de 1 a nNodes + 1).
+     * @return Posição do primeiro vizinho de v (os de v terminam onde começam
+     *          os de v + 1).
+     */
+    int offset(int v) {
+        if (singleOffsets != null) {
+            return singleOffsets.get(v);
+        }
+
+        return get(offsets, v);
+    }
+
+    /**
+     * @param i Posição, de offset(1) a offset(nNodes + 1) - 1.
+     * @return Vizinho nessa posição.
+     */
+    int target(int i) {
+        if (singleTargets != null) {
+            return singleTargets.get(i);
+        }
+
+        return get(targets, i);
+    }
+
+    int degree(int v) {
+        return offset(v + 1) - offset(v);
+    }
+
+    /**
+     * Primeira passada da leitura: só conta os graus.
+     */
+    private static class DegreeCounter extends EdgeList {
+        private int[] degree;
+
+        @Override
+        void setNNodes(int nNodes) {
+            super.setNNodes(nNodes);
+            this.degree = new int[nNodes + 2];
+        }
+
+        @Override
+        void add(int node1, int node2) {
+            super.add(node1, node2);
+            degree[node1]++;
+            degree[node2]++;
+        }
+    }
+
+    /**
+     * Segunda passada da leitura: escreve as duas pontas de cada aresta na
+     * próxima posição livre dos respectivos nós.
+     */
+    private static class Scatter extends EdgeList {
+        private final IntBuffer[] targets;
+        private final int[] cursor;
+
+        Scatter(IntBuffer[] targets, int[] cursor) {
+            this.targets = targets;
+            this.cursor = cursor;
+        }
+
+        @Override
+        void add(int node1, int node2) {
+            super.add(node1, node2);
+            set(targets, cursor[node1]++, node2);
+            set(targets, cursor[node2]++, node1);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package graphs;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Utilitários mínimos para dividir um trabalho entre várias threads, usados
+ * pelas partes paralelas da biblioteca (leitura de arquivos, montagem da
+ * CSR etc.).
+ */
+class Parallel {
+    /**
+     * Número de threads usado quando o usuário não especifica um (ou
+     * especifica um valor menor que 1).
+     * @param nThreads Valor fornecido pelo usuário.
+     * @return nThreads, ou o número de processadores disponíveis se nThreads
+     *          for menor que 1.
+     */
+    static int resolveThreads(int nThreads) {
+        if (nThreads < 1) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return nThreads;
+    }
+
+    /**
+     * Executa task.accept(w) para cada w de 0 a nWorkers - 1, cada uma numa
+     * thread própria (a do trabalhador 0 é a própria thread que chamou), e
+     * espera todas terminarem.
+     * @param nWorkers Número de trabalhadores.
+     * @param task Tarefa de cada trabalhador, que recebe o seu índice.
+     * @throws RuntimeException A primeira exceção lançada por algum dos
+     *          trabalhadores, caso haja (depois de todos terminarem).
+     */
+    static void run(int nWorkers, IntConsumer task) {
+        if (nWorkers == 1) {
+            task.accept(0);
+            return;
+        }
+
+        Thread[] threads = new Thread[nWorkers];
+        Throwable[] errors = new Throwable[nWorkers];
+
+        for (int w=1; w < nWorkers; w++) {
+            final int worker = w;
+
+            threads[w] = new Thread(() -> {
+                try {
+                    task.accept(worker);
+                } catch (Throwable exc) {
+                    errors[worker] = exc;
+                }
+            });
+            threads[w].start();
+        }
+
+        try {
+            task.accept(0);
+        } catch (Throwable exc) {
+            errors[0] = exc;
+        }
+
+        boolean interrupted = false;
+
+        for (int w=1; w < nWorkers; w++) {
+            while (true) {
+                try {
+                    threads[w].join();
+                    break;
+                } catch (InterruptedException exc) {
+                    interrupted = true;  // não dá para abandonar as threads
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Throwable error : errors) {
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new RuntimeException(error);
+            }
+        }
+    }
+
+    /**
+     * Início do bloco de um trabalhador, ao dividir o intervalo [0, n) em
+     * nWorkers blocos contíguos de tamanhos o mais próximos possível (o fim
+     * do bloco w é o início do bloco w + 1).
+     * @param worker Índice do trabalhador (de 0 a nWorkers, inclusive).
+     * @param nWorkers Número de trabalhadores.
+     * @param n Tamanho do intervalo.
+     * @return Posição inicial do bloco.
+     */
+    static int blockStart(int worker, int nWorkers, int n) {
+        return (int) ((long) n * worker / nWorkers);
+    }
+}
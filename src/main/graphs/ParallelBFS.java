@@ -0,0 +1,246 @@
+package graphs;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Busca em largura "sincronizada por nível" sobre a representação CSR, com
+ * cada nível processado em paralelo num ForkJoinPool: a fronteira (um trecho
+ * da fila) é dividida em blocos, que as threads vão pegando umas das outras
+ * (work stealing), e cada nó novo é reivindicado por uma única thread com um
+ * compareAndSet na sua marca de visitado. Cada bloco guarda os nós que
+ * encontrou num buffer próprio, e os buffers são copiados para o fim da fila,
+ * na ordem dos blocos, na barreira entre um nível e o seguinte.
+ *
+ * Níveis com fronteira pequena são processados sequencialmente, sem passar
+ * pelo pool (que só é criado quando aparece a primeira fronteira grande), de
+ * forma que grafos pequenos não pagam pelo paralelismo.
+ *
+ * Uma instância fica guardada na TraversalWorkspace (ver
+ * TraversalWorkspace.parallelBFS()) e é reaproveitada pelas buscas
+ * seguintes, com o mesmo pool e os mesmos buffers: buscas repetidas não
+ * pagam a criação das threads. As threads do pool são daemon e terminam
+ * sozinhas depois de um tempo ociosas, então o pool não precisa ser
+ * fechado.
+ */
+class ParallelBFS {
+    /**
+     * Maior número de nós da fronteira por bloco de trabalho.
+     */
+    private static final int MAX_CHUNK = 1 << 10;
+
+    /**
+     * Acesso atômico às posições de um int[] (as marcas de visitado do
+     * TraversalResult).
+     */
+    private static final VarHandle INT_ARRAY =
+            MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int nThreads;
+
+    /**
+     * Pool das threads, criado na primeira fronteira grande.
+     */
+    private ForkJoinPool pool;
+
+    // Estado da busca corrente, compartilhado pelos blocos
+    private int[] offsets;
+    private int[] targets;
+    private int[] parent;
+    private int[] level;
+    private int[] queue;
+    private int[] stamp;
+    private int epoch;
+
+    /**
+     * Nós encontrados por cada bloco do nível corrente (reaproveitados de um
+     * nível para o outro).
+     */
+    private int[][] chunkOut = new int[0][];
+    private int[] chunkCount = new int[0];
+
+    /**
+     * @param nThreads Número de threads do pool.
+     */
+    ParallelBFS(int nThreads) {
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * @return Número de threads do pool.
+     */
+    int getNThreads() {
+        return nThreads;
+    }
+
+    /**
+     * Faz a busca a partir de origin, preenchendo result.
+     * @param offsets Offsets da CSR do grafo.
+     * @param targets Vizinhos da CSR do grafo.
+     * @param minParallelFrontier Tamanho mínimo da fronteira para que o nível
+     *                            seja processado em paralelo.
+     * @param result Resultado, já preparado (reset()) para esta busca.
+     * @param origin Raiz da busca.
+     */
+    void run(int[] offsets, int[] targets, int minParallelFrontier,
+             TraversalResult result, int origin) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.parent = result.parentArray();
+        this.level = result.levelArray();
+        this.queue = result.orderArray();
+        this.stamp = result.stampArray();
+        this.epoch = result.epoch();
+
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = origin;
+        stamp[origin] = epoch;
+        parent[origin] = 0;
+        level[origin] = 0;
+
+        try {
+            for (int wLvl = 1; head < tail; wLvl++) {
+                int frontierEnd = tail;
+                int frontierSize = frontierEnd - head;
+
+                if (frontierSize < minParallelFrontier) {
+                    for (int j=head; j < frontierEnd; j++) {
+                        int v = queue[j];
+
+                        for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                            int w = targets[i];
+
+                            if (stamp[w] != epoch) {
+                                stamp[w] = epoch;
+                                level[w] = wLvl;
+                                parent[w] = v;
+                                queue[tail++] = w;
+                            }
+                        }
+                    }
+                } else {
+                    if (pool == null) {
+                        pool = new ForkJoinPool(nThreads);
+                    }
+
+                    int chunk = Math.max(1, Math.min(MAX_CHUNK,
+                            frontierSize / (4 * nThreads)));
+                    int nChunks = (frontierSize + chunk - 1) / chunk;
+
+                    if (chunkOut.length < nChunks) {
+                        int oldLength = chunkOut.length;
+
+                        chunkOut = Arrays.copyOf(chunkOut, nChunks);
+                        chunkCount = new int[nChunks];
+
+                        for (int c=oldLength; c < nChunks; c++) {
+                            chunkOut[c] = new int[Math.min(chunk, MAX_CHUNK)];
+                        }
+                    }
+
+                    pool.invoke(new Expand(this, head, frontierEnd, chunk, 0,
+                            nChunks, wLvl));
+
+                    // Barreira: junta os buffers no fim da fila, na ordem dos
+                    // blocos
+                    for (int c=0; c < nChunks; c++) {
+                        System.arraycopy(chunkOut[c], 0, queue, tail, chunkCount[c]);
+                        tail += chunkCount[c];
+                    }
+                }
+
+                head = frontierEnd;
+            }
+        } finally {
+            // Sem referências aos arrays do grafo e do resultado entre uma
+            // busca e outra
+            this.offsets = this.targets = null;
+            this.parent = this.level = this.queue = this.stamp = null;
+        }
+
+        result.setNReached(tail);
+    }
+
+    /**
+     * Expansão de um intervalo de blocos da fronteira, dividido ao meio até
+     * sobrar um bloco só.
+     */
+    private static class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelBFS bfs;
+        private final int frontierStart;
+        private final int frontierEnd;
+        private final int chunk;
+        private final int fromChunk;
+        private final int toChunk;
+        private final int wLvl;
+
+        Expand(ParallelBFS bfs, int frontierStart, int frontierEnd, int chunk,
+               int fromChunk, int toChunk, int wLvl) {
+            this.bfs = bfs;
+            this.frontierStart = frontierStart;
+            this.frontierEnd = frontierEnd;
+            this.chunk = chunk;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.wLvl = wLvl;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+
+                invokeAll(new Expand(bfs, frontierStart, frontierEnd, chunk, fromChunk, mid, wLvl),
+                        new Expand(bfs, frontierStart, frontierEnd, chunk, mid, toChunk, wLvl));
+                return;
+            }
+
+            int[] offsets = bfs.offsets;
+            int[] targets = bfs.targets;
+            int[] queue = bfs.queue;
+            int[] stamp = bfs.stamp;
+            int[] level = bfs.level;
+            int[] parent = bfs.parent;
+            int epoch = bfs.epoch;
+
+            int c = fromChunk;
+            int from = frontierStart + c * chunk;
+            int to = Math.min(from + chunk, frontierEnd);
+
+            int[] out = bfs.chunkOut[c];
+            int count = 0;
+
+            for (int j=from; j < to; j++) {
+                int v = queue[j];
+
+                for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+                    int mark = stamp[w];
+
+                    // a leitura simples descarta a maioria dos já visitados
+                    // sem o custo do compareAndSet
+                    if (mark != epoch && INT_ARRAY.compareAndSet(stamp, w, mark, epoch)) {
+                        level[w] = wLvl;
+                        parent[w] = v;
+
+                        if (count == out.length) {
+                            out = Arrays.copyOf(out, 2 * out.length);
+                        }
+
+                        out[count++] = w;
+                    }
+                }
+            }
+
+            bfs.chunkOut[c] = out;
+            bfs.chunkCount[c] = count;
+        }
+    }
+}
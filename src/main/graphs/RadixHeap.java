@@ -0,0 +1,119 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Fila de prioridade monótona (radix heap) para o Dijkstra com pesos
+ * inteiros: as chaves retiradas nunca diminuem, então cada chave fica num
+ * balde conforme o bit mais alto em que difere da última chave retirada.
+ * O balde 0 tem as chaves iguais a ela, e o balde i, as que diferem dela
+ * no bit i - 1 e não em bits mais altos.
+ *
+ * Quando o balde 0 esvazia, o primeiro balde não vazio é redistribuído a
+ * partir da sua menor chave, e todos os seus elementos descem para baldes
+ * mais baixos. Cada elemento desce no máximo 64 vezes, o que dá
+ * O(log C) amortizado por operação, sem comparações entre elementos. Não
+ * há "diminuir chave": o Dijkstra insere o nó de novo com a chave menor e
+ * descarta as entradas velhas ao retirá-las.
+ */
+class RadixHeap {
+    private static final int N_BUCKETS = 65;
+
+    private final long[][] keys = new long[N_BUCKETS][];
+    private final int[][] nodes = new int[N_BUCKETS][];
+    private final int[] sizes = new int[N_BUCKETS];
+
+    /**
+     * Última chave retirada.
+     */
+    private long last;
+
+    private int size;
+
+    RadixHeap() {
+        for (int b=0; b < N_BUCKETS; b++) {
+            keys[b] = new long[16];
+            nodes[b] = new int[16];
+        }
+    }
+
+    void clear() {
+        Arrays.fill(sizes, 0);
+        last = 0;
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Insere um nó.
+     * @param key Chave (não menor que a última retirada).
+     * @param node Nó.
+     */
+    void push(long key, int node) {
+        this.append(bucket(key), key, node);
+        size++;
+    }
+
+    /**
+     * Retira um nó de menor chave (que passa a ser lastKey()).
+     * @return O nó retirado.
+     */
+    int pop() {
+        if (sizes[0] == 0) {
+            int b = 1;
+
+            while (sizes[b] == 0) {
+                b++;
+            }
+
+            long[] bKeys = keys[b];
+            int[] bNodes = nodes[b];
+            int bSize = sizes[b];
+            long min = Long.MAX_VALUE;
+
+            for (int i=0; i < bSize; i++) {
+                min = Math.min(min, bKeys[i]);
+            }
+
+            last = min;
+            sizes[b] = 0;
+
+            // (todos vão para baldes abaixo de b, então bKeys não é
+            // alterado durante o laço)
+            for (int i=0; i < bSize; i++) {
+                this.append(bucket(bKeys[i]), bKeys[i], bNodes[i]);
+            }
+        }
+
+        size--;
+
+        return nodes[0][--sizes[0]];
+    }
+
+    /**
+     * @return Chave do último nó retirado.
+     */
+    long lastKey() {
+        return last;
+    }
+
+    private int bucket(long key) {
+        return key == last ? 0 : 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void append(int b, long key, int node) {
+        int i = sizes[b];
+
+        if (i == keys[b].length) {
+            keys[b] = Arrays.copyOf(keys[b], 2 * i);
+            nodes[b] = Arrays.copyOf(nodes[b], 2 * i);
+        }
+
+        keys[b][i] = key;
+        nodes[b][i] = node;
+        sizes[b] = i + 1;
+    }
+}
@@ -0,0 +1,280 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Resultado do algoritmo de Dijkstra (Graph.dijkstra()) num grafo com pesos:
+ * a distância de cada nó à origem e a árvore de caminhos mínimos, em arrays
+ * primitivos indexados pelo nó, como em TraversalResult, e com as mesmas
+ * convenções: as marcas usam uma época (descartar o resultado anterior custa
+ * O(1)), o mesmo resultado pode ser passado para outras buscas sem nova
+ * alocação, e os índices de um grafo renumerado são convertidos nos métodos
+ * públicos.
+ *
+ * Um nó só conta como alcançado quando a sua distância é definitiva (ele
+ * saiu da fila de prioridade); numa busca interrompida ao chegar ao alvo,
+ * os nós que ainda estavam na fila não são alcançados.
+ *
+ * Também guarda as filas de prioridade usadas pela busca, criadas na
+ * primeira busca que precisar de cada uma.
+ */
+public class ShortestPaths {
+    /**
+     * Resultado de cada thread (ver forCurrentThread()).
+     */
+    private static final ThreadLocal<ShortestPaths> perThread =
+            new ThreadLocal<ShortestPaths>();
+
+    /**
+     * Distância de cada nó à origem (só é válida para os nós marcados).
+     */
+    private final double[] distance;
+
+    /**
+     * Pai de cada nó na árvore de caminhos mínimos (0 para a raiz).
+     */
+    private final int[] parent;
+
+    /**
+     * stamp[node] == epoch se a distância do nó é definitiva, e
+     * stamp[node] == -epoch se o nó já foi encontrado, mas ainda está na
+     * fila, com uma distância provisória.
+     */
+    private final int[] stamp;
+
+    /**
+     * Época da busca corrente.
+     */
+    private int epoch;
+
+    /**
+     * Nós alcançados, na ordem em que as distâncias ficaram definitivas (ou
+     * seja, em ordem crescente de distância).
+     */
+    private final int[] order;
+
+    /**
+     * Quantidade de nós alcançados (posições válidas de order).
+     */
+    private int nReached;
+
+    /**
+     * Raiz da busca.
+     */
+    private int origin;
+
+    /**
+     * Renumeração do grafo da busca corrente, como em TraversalResult.
+     */
+    private int[] internalId;
+    private int[] originalId;
+
+    private RadixHeap radixHeap;
+    private DaryHeap daryHeap;
+
+    /**
+     * Cria um resultado vazio, com espaço para um grafo de até nNodes nós.
+     * @param nNodes Número de nós do grafo.
+     */
+    public ShortestPaths(int nNodes) {
+        this.distance = new double[nNodes + 1];
+        this.parent = new int[nNodes + 1];
+        this.stamp = new int[nNodes + 1];
+        this.order = new int[nNodes];
+        this.epoch = 1;
+    }
+
+    /**
+     * Resultado exclusivo da thread que chama, como
+     * TraversalWorkspace.forCurrentThread(): é o que Graph usa nos cálculos
+     * de distância e de diâmetro, então só vale até a próxima busca feita na
+     * mesma thread.
+     * @param nNodes Número de nós do grafo.
+     * @return Resultado com capacidade para pelo menos nNodes nós.
+     */
+    static ShortestPaths forCurrentThread(int nNodes) {
+        ShortestPaths result = perThread.get();
+
+        if (result == null || result.capacity() < nNodes) {
+            result = new ShortestPaths(nNodes);
+            perThread.set(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Prepara o resultado para uma nova busca, em tempo constante (exceto
+     * quando a época dá a volta no int).
+     * @param origin Raiz da nova busca.
+     */
+    void reset(int origin) {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+
+        this.epoch++;
+        this.nReached = 0;
+        this.origin = origin;
+    }
+
+    /**
+     * Define a renumeração do grafo em que a busca é feita.
+     */
+    void setLabels(int[] internalId, int[] originalId) {
+        this.internalId = internalId;
+        this.originalId = originalId;
+    }
+
+    double[] distanceArray() {
+        return distance;
+    }
+
+    int[] parentArray() {
+        return parent;
+    }
+
+    int[] stampArray() {
+        return stamp;
+    }
+
+    int[] orderArray() {
+        return order;
+    }
+
+    int epoch() {
+        return epoch;
+    }
+
+    void setNReached(int nReached) {
+        this.nReached = nReached;
+    }
+
+    /**
+     * Fila para pesos inteiros, vazia.
+     */
+    RadixHeap radixHeap() {
+        if (radixHeap == null) {
+            radixHeap = new RadixHeap();
+        }
+
+        radixHeap.clear();
+
+        return radixHeap;
+    }
+
+    /**
+     * Fila para pesos reais, vazia.
+     */
+    DaryHeap daryHeap() {
+        if (daryHeap == null) {
+            daryHeap = new DaryHeap(capacity());
+        }
+
+        daryHeap.clear();
+
+        return daryHeap;
+    }
+
+    /**
+     * @return Capacidade do resultado (o maior número de nós de um grafo em
+     *          que ele pode ser usado).
+     */
+    public int capacity() {
+        return order.length;
+    }
+
+    private int internal(int node) {
+        return internalId == null ? node : internalId[node];
+    }
+
+    private int original(int node) {
+        return originalId == null || node == 0 ? node : originalId[node];
+    }
+
+    /**
+     * @return Raiz da busca.
+     */
+    public int getOrigin() {
+        return original(origin);
+    }
+
+    /**
+     * @return Quantidade de nós alcançados pela busca (incluindo a raiz).
+     */
+    public int getNReached() {
+        return nReached;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Se a distância do nó à origem foi calculada (false também se
+     *          o índice não existir no grafo).
+     */
+    public boolean isReached(int node) {
+        return node >= 0 && node < stamp.length && stamp[internal(node)] == epoch;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Pai do nó na árvore de caminhos mínimos (0 para a raiz), ou -1
+     *          se o nó não foi alcançado.
+     */
+    public int getParent(int node) {
+        return isReached(node) ? original(parent[internal(node)]) : -1;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Distância do nó à origem (soma dos pesos do caminho mínimo),
+     *          ou -1 se o nó não foi alcançado.
+     */
+    public double getDistance(int node) {
+        return isReached(node) ? distance[internal(node)] : -1;
+    }
+
+    /**
+     * @param i Posição, de 0 a getNReached() - 1.
+     * @return i-ésimo nó mais próximo da origem.
+     */
+    public int getNodeAt(int i) {
+        if (i < 0 || i >= nReached) {
+            throw new IndexOutOfBoundsException("Posicao " + i + " fora da " +
+                    "ordem de visita (" + nReached + " nos alcancados)");
+        }
+
+        return original(order[i]);
+    }
+
+    /**
+     * @return Maior distância entre os nós alcançados (numa busca sem alvo,
+     *          a excentricidade da raiz dentro da sua componente).
+     */
+    public double getMaxDistance() {
+        return nReached == 0 ? 0 : distance[order[nReached - 1]];
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Nós do caminho mínimo da origem até node (inclusive); vazio se
+     *          o nó não foi alcançado.
+     */
+    public ArrayList<Integer> getPath(int node) {
+        ArrayList<Integer> path = new ArrayList<Integer>();
+
+        if (!isReached(node)) {
+            return path;
+        }
+
+        for (int v = internal(node); v != 0; v = parent[v]) {
+            path.add(original(v));
+        }
+
+        Collections.reverse(path);
+
+        return path;
+    }
+}
@@ -0,0 +1,130 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Floresta geradora mínima de um grafo com pesos
+ * (Graph.minimumSpanningForest()): uma árvore geradora mínima para cada
+ * componente conexa, guardada só pelas arestas escolhidas, em arrays
+ * primitivos paralelos, sem nenhum objeto por aresta.
+ *
+ * As arestas não estão em nenhuma ordem em particular (na de Kruskal, ficam
+ * em ordem crescente de peso). Empates de peso são desfeitos pelas pontas
+ * da aresta, então Kruskal e Borůvka escolhem exatamente as mesmas arestas.
+ */
+public class SpanningForest {
+    /**
+     * Posição de cada aresta na CSR do grafo (o arco que sai da ponta de
+     * menor índice interno).
+     */
+    private final int[] edges;
+
+    /**
+     * Pontas e peso de cada aresta (nos índices originais).
+     */
+    private final int[] sources;
+    private final int[] targets;
+    private final double[] weights;
+
+    private final double totalWeight;
+    private final int nNodes;
+
+    /**
+     * @param nNodes Número de nós do grafo.
+     * @param arcs Posição de cada aresta escolhida na CSR.
+     * @param arcSources Ponta de origem (índice interno) de cada arco.
+     * @param nEdges Número de arestas escolhidas (posições válidas de arcs e
+     *               de arcSources).
+     * @param csrTargets Vizinhos da CSR do grafo.
+     * @param csrWeights Pesos da CSR do grafo.
+     * @param originalId Índice original de cada índice interno (ou null, se
+     *                   o grafo não foi renumerado).
+     */
+    SpanningForest(int nNodes, int[] arcs, int[] arcSources, int nEdges,
+                   int[] csrTargets, double[] csrWeights, int[] originalId) {
+        this.edges = Arrays.copyOf(arcs, nEdges);
+        this.sources = new int[nEdges];
+        this.targets = new int[nEdges];
+        this.weights = new double[nEdges];
+        this.nNodes = nNodes;
+
+        double total = 0;
+
+        for (int i=0; i < nEdges; i++) {
+            int u = arcSources[i];
+            int v = csrTargets[arcs[i]];
+
+            sources[i] = originalId == null ? u : originalId[u];
+            targets[i] = originalId == null ? v : originalId[v];
+            weights[i] = csrWeights[arcs[i]];
+            total += weights[i];
+        }
+
+        this.totalWeight = total;
+    }
+
+    /**
+     * @return Número de arestas da floresta (n menos o número de
+     *          componentes conexas do grafo).
+     */
+    public int getNEdges() {
+        return edges.length;
+    }
+
+    /**
+     * @return Número de árvores da floresta (o de componentes conexas do
+     *          grafo, contando os nós isolados).
+     */
+    public int getNTrees() {
+        return nNodes - edges.length;
+    }
+
+    /**
+     * @return Soma dos pesos das arestas da floresta.
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @param i Posição da aresta, de 0 a getNEdges() - 1.
+     * @return Uma das pontas da aresta.
+     */
+    public int getSource(int i) {
+        checkIndex(i);
+        return sources[i];
+    }
+
+    /**
+     * @param i Posição da aresta, de 0 a getNEdges() - 1.
+     * @return A outra ponta da aresta.
+     */
+    public int getTarget(int i) {
+        checkIndex(i);
+        return targets[i];
+    }
+
+    /**
+     * @param i Posição da aresta, de 0 a getNEdges() - 1.
+     * @return Peso da aresta.
+     */
+    public double getWeight(int i) {
+        checkIndex(i);
+        return weights[i];
+    }
+
+    /**
+     * @return Cópia do array de arestas: a posição de cada uma na CSR do
+     *          grafo (válida enquanto o grafo não for renumerado).
+     */
+    public int[] getEdgeIndices() {
+        return Arrays.copyOf(edges, edges.length);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= edges.length) {
+            throw new IndexOutOfBoundsException("Aresta " + i + " fora da " +
+                    "floresta (" + edges.length + " arestas)");
+        }
+    }
+}
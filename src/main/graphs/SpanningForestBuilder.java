@@ -0,0 +1,359 @@
+package graphs;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Cálculo da floresta geradora mínima sobre a CSR com pesos, por dois
+ * algoritmos que escolhem as mesmas arestas (os empates de peso são
+ * desfeitos pelo par de pontas da aresta, o que dá uma ordem total):
+ *
+ * - Borůvka paralelo: a cada rodada, cada thread percorre um bloco de nós e
+ *   acha a aresta mais leve que sai da componente de cada um; a mais leve
+ *   de cada componente é escolhida com um compareAndSet num long[] indexado
+ *   pela raiz (arco e ponta de origem empacotados). As arestas escolhidas
+ *   são unidas com UnionFind.unionConcurrent(), que descarta a segunda
+ *   cópia quando duas componentes escolhem a mesma aresta. Componentes sem
+ *   aresta de saída ficam marcadas como prontas e não são mais percorridas.
+ *   São no máximo log_2(n) rodadas.
+ * - Kruskal sequencial: as arestas são ordenadas por peso com um radix sort
+ *   (LSD, um byte por passada) sobre a representação em bits do double,
+ *   carregando só o índice da aresta; as passadas em que todas as chaves
+ *   têm o mesmo byte são puladas (com pesos inteiros pequenos, quase todas).
+ */
+class SpanningForestBuilder {
+    /**
+     * Acesso atômico às posições de um long[].
+     */
+    private static final VarHandle LONG_ARRAY =
+            MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final int nNodes;
+
+    /**
+     * @param offsets Offsets da CSR do grafo.
+     * @param targets Vizinhos da CSR do grafo.
+     * @param weights Pesos da CSR do grafo.
+     * @param nNodes Número de nós.
+     */
+    SpanningForestBuilder(int[] offsets, int[] targets, double[] weights, int nNodes) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nNodes = nNodes;
+    }
+
+    /**
+     * Borůvka com nWorkers threads.
+     * @param nWorkers Número de threads.
+     * @param originalId Renumeração do grafo (ou null).
+     * @return Floresta geradora mínima.
+     */
+    SpanningForest boruvka(int nWorkers, int[] originalId) {
+        int n = this.nNodes;
+        UnionFind sets = new UnionFind(n);
+        int[] component = new int[n + 1];
+        boolean[] finished = new boolean[n + 1];
+
+        // Aresta mais leve de cada componente (na posição da raiz), como
+        // (arco << 32) | origem, ou -1
+        long[] best = new long[n + 1];
+
+        // Arestas unidas na rodada, já com o arco que sai da ponta menor: o
+        // trabalhador w escreve a partir da posição do início do seu bloco
+        // (cada raiz adiciona no máximo uma)
+        long[] added = new long[n + 1];
+        int[] nAdded = new int[nWorkers];
+
+        int[] forestArcs = new int[Math.max(n - 1, 0)];
+        int[] forestSources = new int[forestArcs.length];
+        int nEdges = 0;
+
+        while (true) {
+            // Componente de cada nó (depois das uniões da rodada anterior)
+            Parallel.run(nWorkers, w -> {
+                int from = 1 + Parallel.blockStart(w, nWorkers, n);
+                int to = 1 + Parallel.blockStart(w + 1, nWorkers, n);
+
+                for (int v=from; v < to; v++) {
+                    component[v] = sets.findConcurrent(v);
+                    best[v] = -1;
+                }
+            });
+
+            // Aresta mais leve que sai de cada componente
+            Parallel.run(nWorkers, w -> {
+                int from = 1 + Parallel.blockStart(w, nWorkers, n);
+                int to = 1 + Parallel.blockStart(w + 1, nWorkers, n);
+
+                for (int v=from; v < to; v++) {
+                    int c = component[v];
+
+                    if (finished[c]) {
+                        continue;
+                    }
+
+                    int lightest = -1;
+
+                    for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                        if (component[targets[i]] != c &&
+                                (lightest == -1 || lighter(v, i, v, lightest))) {
+                            lightest = i;
+                        }
+                    }
+
+                    if (lightest != -1) {
+                        this.offer(best, c, ((long) lightest << 32) | v);
+                    }
+                }
+            });
+
+            // União das componentes pelas arestas escolhidas
+            Parallel.run(nWorkers, w -> {
+                int from = 1 + Parallel.blockStart(w, nWorkers, n);
+                int to = 1 + Parallel.blockStart(w + 1, nWorkers, n);
+                int count = 0;
+
+                for (int v=from; v < to; v++) {
+                    if (component[v] != v || finished[v]) {
+                        continue;
+                    }
+
+                    if (best[v] == -1) {
+                        finished[v] = true;  // nada mais sai dela
+                        continue;
+                    }
+
+                    int source = (int) best[v];
+                    int arc = (int) (best[v] >>> 32);
+                    int target = targets[arc];
+
+                    if (sets.unionConcurrent(source, target)) {
+                        if (source > target) {
+                            arc = this.reverseArc(source, arc);
+                            source = target;
+                        }
+
+                        added[from + count++] = ((long) arc << 32) | source;
+                    }
+                }
+
+                nAdded[w] = count;
+            });
+
+            int roundEdges = 0;
+
+            for (int w=0; w < nWorkers; w++) {
+                int from = 1 + Parallel.blockStart(w, nWorkers, n);
+
+                for (int k=0; k < nAdded[w]; k++) {
+                    forestArcs[nEdges] = (int) (added[from + k] >>> 32);
+                    forestSources[nEdges++] = (int) added[from + k];
+                }
+
+                roundEdges += nAdded[w];
+            }
+
+            if (roundEdges == 0) {
+                break;
+            }
+        }
+
+        return new SpanningForest(n, forestArcs, forestSources, nEdges,
+                targets, weights, originalId);
+    }
+
+    /**
+     * Kruskal sequencial.
+     * @param originalId Renumeração do grafo (ou null).
+     * @return Floresta geradora mínima.
+     */
+    SpanningForest kruskal(int[] originalId) {
+        int n = this.nNodes;
+
+        // Cada aresta uma vez só (o arco que sai da ponta menor), em ordem
+        // de (origem, destino), que é o desempate da ordem total
+        int m = 0;
+
+        for (int v=1; v <= n; v++) {
+            for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                if (targets[i] > v) {
+                    m++;
+                }
+            }
+        }
+
+        int[] arcs = new int[m];
+        int[] arcSources = new int[m];
+        long[] keys = new long[m];
+
+        for (int v=1, j=0; v <= n; v++) {
+            for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                if (targets[i] > v) {
+                    arcs[j] = i;
+                    arcSources[j] = v;
+                    keys[j++] = sortKey(weights[i]);
+                }
+            }
+        }
+
+        int[] order = radixSort(keys);
+
+        UnionFind sets = new UnionFind(n);
+        int[] forestArcs = new int[Math.max(n - 1, 0)];
+        int[] forestSources = new int[forestArcs.length];
+        int nEdges = 0;
+
+        for (int k=0; k < m && nEdges < forestArcs.length; k++) {
+            int j = order[k];
+
+            if (sets.union(arcSources[j], targets[arcs[j]])) {
+                forestArcs[nEdges] = arcs[j];
+                forestSources[nEdges++] = arcSources[j];
+            }
+        }
+
+        return new SpanningForest(n, forestArcs, forestSources, nEdges,
+                targets, weights, originalId);
+    }
+
+    /**
+     * Ordem total das arestas: peso e, nos empates, o par (menor ponta,
+     * maior ponta).
+     * @return Se o arco i (que sai de u) é mais leve que o arco j (que sai
+     *          de v).
+     */
+    private boolean lighter(int u, int i, int v, int j) {
+        double wi = weights[i];
+        double wj = weights[j];
+
+        if (wi != wj) {
+            return wi < wj;
+        }
+
+        return edgeKey(u, targets[i]) < edgeKey(v, targets[j]);
+    }
+
+    /**
+     * Arco no sentido contrário ao arco arc, que sai de source (entre
+     * arestas paralelas, o primeiro de mesmo peso, que é o que Kruskal
+     * escolheria).
+     */
+    private int reverseArc(int source, int arc) {
+        int target = targets[arc];
+        int lo = offsets[target];
+        int hi = offsets[target + 1];
+
+        // Primeira posição com vizinho >= source (os vizinhos estão em
+        // ordem crescente)
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (targets[mid] < source) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        while (weights[lo] != weights[arc]) {
+            lo++;
+        }
+
+        return lo;
+    }
+
+    private static long edgeKey(int u, int v) {
+        return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+    }
+
+    /**
+     * Troca best[c] por candidate se a aresta candidata for mais leve, com
+     * compareAndSet (várias threads podem oferecer arestas da mesma
+     * componente ao mesmo tempo).
+     */
+    private void offer(long[] best, int c, long candidate) {
+        int arc = (int) (candidate >>> 32);
+        int source = (int) candidate;
+
+        while (true) {
+            long current = (long) LONG_ARRAY.getVolatile(best, c);
+
+            if (current != -1 && !lighter(source, arc, (int) current,
+                    (int) (current >>> 32))) {
+                return;
+            }
+
+            if (LONG_ARRAY.compareAndSet(best, c, current, candidate)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Chave de 64 bits cuja ordem sem sinal é a ordem dos doubles (-0.0 é
+     * tratado como 0.0, como na comparação de Borůvka).
+     */
+    private static long sortKey(double weight) {
+        long bits = Double.doubleToLongBits(weight + 0.0);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * Ordenação estável (radix sort LSD, por bytes) das chaves sem sinal.
+     * @param keys Chaves (o array é reaproveitado como área de trabalho).
+     * @return Índices das chaves em ordem crescente.
+     */
+    private static int[] radixSort(long[] keys) {
+        int m = keys.length;
+        int[][] counts = new int[8][256];
+
+        for (long key : keys) {
+            for (int b=0; b < 8; b++) {
+                counts[b][(int) (key >>> (8 * b)) & 0xFF]++;
+            }
+        }
+
+        int[] order = new int[m];
+        int[] nextOrder = new int[m];
+        long[] nextKeys = new long[m];
+
+        for (int j=0; j < m; j++) {
+            order[j] = j;
+        }
+
+        for (int b=0; b < 8; b++) {
+            int[] count = counts[b];
+            int shift = 8 * b;
+
+            if (m == 0 || count[(int) (keys[0] >>> shift) & 0xFF] == m) {
+                continue;  // todas as chaves têm este byte igual
+            }
+
+            for (int d=0, acc=0; d < 256; d++) {
+                int c = count[d];
+                count[d] = acc;
+                acc += c;
+            }
+
+            for (int j=0; j < m; j++) {
+                int pos = count[(int) (keys[j] >>> shift) & 0xFF]++;
+                nextKeys[pos] = keys[j];
+                nextOrder[pos] = order[j];
+            }
+
+            long[] tmpKeys = keys;
+            keys = nextKeys;
+            nextKeys = tmpKeys;
+
+            int[] tmpOrder = order;
+            order = nextOrder;
+            nextOrder = tmpOrder;
+        }
+
+        return order;
+    }
+}
@@ -0,0 +1,338 @@
+package graphs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Resultado de uma busca (BFS ou DFS) em um Graph, guardado em arrays de
+ * inteiros indexados pelo nó, em vez de num HashMap com um Integer[] por nó:
+ * uma busca nunca cria objetos proporcionais ao tamanho do grafo, e o mesmo
+ * resultado pode ser passado de novo para outra busca no mesmo grafo (ou em
+ * outro com no máximo o mesmo número de nós), sem nova alocação.
+ *
+ * Os nós alcançados são marcados com o número da busca corrente ("época"),
+ * e não com um booleano: para descartar o resultado anterior basta
+ * incrementar a época, em tempo constante, sem limpar nenhum array.
+ *
+ * Se o grafo foi renumerado (Graph.relabel()), os arrays ficam nos índices
+ * internos, e os métodos públicos convertem os índices na entrada e na
+ * saída, em O(1) por consulta: quem usa o resultado só vê os índices
+ * originais.
+ */
+public class TraversalResult {
+    /**
+     * Pai de cada nó na árvore geradora da busca (0 para a raiz, como no
+     * HashMap retornado por Graph.BFS() e Graph.DFS()).
+     */
+    private final int[] parent;
+
+    /**
+     * Nível (profundidade) de cada nó na árvore geradora (só é válido para os
+     * nós alcançados).
+     */
+    private final int[] level;
+
+    /**
+     * Época da última busca que alcançou cada nó: o nó foi alcançado pela
+     * busca corrente se, e somente se, stamp[node] == epoch.
+     */
+    private final int[] stamp;
+
+    /**
+     * Época da busca corrente.
+     */
+    private int epoch;
+
+    /**
+     * Nós alcançados, na ordem em que entraram na árvore. Na BFS, este array
+     * também serve de fila.
+     */
+    private final int[] order;
+
+    /**
+     * Quantidade de nós alcançados (posições válidas de order).
+     */
+    private int nReached;
+
+    /**
+     * Raiz da busca.
+     */
+    private int origin;
+
+    /**
+     * Tempos de descoberta e de término de cada nó na DFS (alocados na
+     * primeira DFS; o de término é -1 enquanto o nó não termina).
+     */
+    private int[] discovery;
+    private int[] finish;
+
+    /**
+     * Se a busca corrente preencheu os tempos (ou seja, se foi uma DFS).
+     */
+    private boolean hasTimes;
+
+    /**
+     * Renumeração do grafo da busca corrente (índice interno de cada nó
+     * original e vice-versa), ou null se o grafo não foi renumerado.
+     */
+    private int[] internalId;
+    private int[] originalId;
+
+    /**
+     * Cria um resultado vazio, com espaço para um grafo de até nNodes nós.
+     * @param nNodes Número de nós do grafo.
+     */
+    public TraversalResult(int nNodes) {
+        this.parent = new int[nNodes + 1];
+        this.level = new int[nNodes + 1];
+        this.stamp = new int[nNodes + 1];
+        this.order = new int[nNodes];
+        this.epoch = 1;  // nenhum nó marcado (os stamps começam em 0)
+    }
+
+    /**
+     * Prepara o resultado para uma nova busca, em tempo constante (exceto
+     * quando a época dá a volta no int, e aí as marcas são zeradas).
+     * @param origin Raiz da nova busca.
+     */
+    void reset(int origin) {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+
+        this.epoch++;
+        this.nReached = 0;
+        this.origin = origin;
+        this.hasTimes = false;
+    }
+
+    /**
+     * Define a renumeração do grafo em que a busca é feita (ver
+     * Graph.relabel()).
+     * @param internalId Índice interno de cada nó (ou null).
+     * @param originalId Índice original de cada índice interno (ou null).
+     */
+    void setLabels(int[] internalId, int[] originalId) {
+        this.internalId = internalId;
+        this.originalId = originalId;
+    }
+
+    /**
+     * @return Índice interno do nó original (o próprio, fora do grafo).
+     */
+    private int internal(int node) {
+        if (internalId == null || node < 1 || node >= internalId.length) {
+            return node;
+        }
+
+        return internalId[node];
+    }
+
+    /**
+     * @return Índice original do nó interno.
+     */
+    private int original(int node) {
+        return originalId == null || node == 0 ? node : originalId[node];
+    }
+
+    /**
+     * Insere um nó na árvore (ou atualiza o pai e o nível dele, se já
+     * estiver nela).
+     * @param node Índice do nó.
+     * @param nodeParent Pai do nó.
+     * @param nodeLevel Nível do nó.
+     */
+    void reach(int node, int nodeParent, int nodeLevel) {
+        if (stamp[node] != epoch) {
+            stamp[node] = epoch;
+            order[nReached++] = node;
+        }
+
+        parent[node] = nodeParent;
+        level[node] = nodeLevel;
+    }
+
+    /**
+     * Capacidade do resultado (o maior número de nós de um grafo em que ele
+     * pode ser usado).
+     */
+    int capacity() {
+        return order.length;
+    }
+
+    /**
+     * Acesso direto ao array de ordem de visita, para os algoritmos da
+     * biblioteca que o usam como fila.
+     */
+    int[] orderArray() {
+        return order;
+    }
+
+    /**
+     * Acesso direto ao array de marcas, para os algoritmos da biblioteca
+     * (ver epoch()).
+     */
+    int[] stampArray() {
+        return stamp;
+    }
+
+    /**
+     * Época da busca corrente: os nós alcançados são os que têm essa marca.
+     */
+    int epoch() {
+        return epoch;
+    }
+
+    /**
+     * Acesso direto ao array de níveis, para os algoritmos da biblioteca.
+     */
+    int[] levelArray() {
+        return level;
+    }
+
+    /**
+     * Acesso direto ao array de pais, para os algoritmos da biblioteca.
+     */
+    int[] parentArray() {
+        return parent;
+    }
+
+    /**
+     * Acesso direto ao array de tempos de descoberta, para a DFS (que, ao
+     * pedi-lo, indica que a busca corrente tem tempos).
+     */
+    int[] discoveryArray() {
+        if (discovery == null) {
+            discovery = new int[parent.length];
+            finish = new int[parent.length];
+        }
+
+        hasTimes = true;
+
+        return discovery;
+    }
+
+    /**
+     * Acesso direto ao array de tempos de término (chamar depois de
+     * discoveryArray()).
+     */
+    int[] finishArray() {
+        return finish;
+    }
+
+    /**
+     * Atualiza a quantidade de nós alcançados, para os algoritmos que
+     * preenchem os arrays diretamente.
+     */
+    void setNReached(int nReached) {
+        this.nReached = nReached;
+    }
+
+    /**
+     * @return Raiz da busca.
+     */
+    public int getOrigin() {
+        return original(origin);
+    }
+
+    /**
+     * @return Quantidade de nós alcançados pela busca (incluindo a raiz).
+     */
+    public int getNReached() {
+        return nReached;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Se o nó foi alcançado pela busca (false também se o índice não
+     *          existir no grafo).
+     */
+    public boolean isReached(int node) {
+        return node >= 0 && node < stamp.length && stamp[internal(node)] == epoch;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Pai do nó na árvore geradora (0 para a raiz), ou -1 se o nó não
+     *          foi alcançado.
+     */
+    public int getParent(int node) {
+        return isReached(node) ? original(parent[internal(node)]) : -1;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Nível do nó na árvore geradora (0 para a raiz), ou -1 se o nó
+     *          não foi alcançado.
+     */
+    public int getLevel(int node) {
+        return isReached(node) ? level[internal(node)] : -1;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Tempo de descoberta do nó na DFS (os tempos começam em 1 e
+     *          avançam a cada descoberta ou término), ou -1 se o nó não foi
+     *          alcançado ou se a busca não foi uma DFS.
+     */
+    public int getDiscoveryTime(int node) {
+        return hasTimes && isReached(node) ? discovery[internal(node)] : -1;
+    }
+
+    /**
+     * @param node Índice do nó.
+     * @return Tempo de término do nó na DFS (quando todos os seus vizinhos
+     *          já foram visitados), ou -1 se o nó não foi alcançado, se a
+     *          busca foi interrompida antes de ele terminar ou se a busca não
+     *          foi uma DFS.
+     */
+    public int getFinishTime(int node) {
+        return hasTimes && isReached(node) ? finish[internal(node)] : -1;
+    }
+
+    /**
+     * @param i Posição na ordem de visita, de 0 a getNReached() - 1.
+     * @return i-ésimo nó a entrar na árvore geradora.
+     */
+    public int getNodeAt(int i) {
+        if (i < 0 || i >= nReached) {
+            throw new IndexOutOfBoundsException("Posicao " + i + " fora da " +
+                    "ordem de visita (" + nReached + " nos alcancados)");
+        }
+
+        return original(order[i]);
+    }
+
+    /**
+     * @return Maior nível entre os nós alcançados (na BFS, a excentricidade
+     *          da raiz dentro da sua componente).
+     */
+    public int getMaxLevel() {
+        int max = 0;
+
+        for (int i=0; i < nReached; i++) {
+            max = Math.max(max, level[order[i]]);
+        }
+
+        return max;
+    }
+
+    /**
+     * Converte o resultado para o formato de HashMap usado por Graph.BFS() e
+     * Graph.DFS().
+     * @return HashMap cujas chaves são os índices dos nós alcançados e cujos
+     *          valores são arrays com o pai e o nível de cada um.
+     */
+    public HashMap<Integer, Integer[]> toMap() {
+        HashMap<Integer, Integer[]> tree = new HashMap<Integer, Integer[]>();
+
+        for (int i=0; i < nReached; i++) {
+            int node = order[i];
+            tree.put(original(node), new Integer[]{original(parent[node]),
+                    level[node]});
+        }
+
+        return tree;
+    }
+}
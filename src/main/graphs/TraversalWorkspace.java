@@ -0,0 +1,219 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Área de trabalho reaproveitável para as buscas (BFS e DFS) de Graph: além
+ * do TraversalResult onde a árvore geradora é guardada, contém os arrays
+ * auxiliares de cada algoritmo (pilha da DFS, bits de visitados na matriz,
+ * fronteira da BFS que alterna direções), que de outra forma seriam
+ * alocados a cada chamada.
+ *
+ * Com uma mesma área de trabalho, buscas repetidas (como no cálculo do
+ * diâmetro ou nas medições de tempo) não alocam nada depois da primeira: as
+ * marcas de visitado usam a época do TraversalResult, e são descartadas em
+ * tempo constante, e os arrays auxiliares só são criados (ou aumentados) na
+ * primeira busca que precisar deles.
+ *
+ * Uma área de trabalho não pode ser usada por duas buscas ao mesmo tempo.
+ * Para código que roda em várias threads, forCurrentThread() fornece uma
+ * área de trabalho exclusiva de cada thread.
+ */
+public class TraversalWorkspace {
+    /**
+     * Área de trabalho de cada thread (ver forCurrentThread()).
+     */
+    private static final ThreadLocal<TraversalWorkspace> perThread =
+            new ThreadLocal<TraversalWorkspace>();
+
+    /**
+     * Resultado da última busca feita com esta área de trabalho.
+     */
+    private final TraversalResult result;
+
+    /**
+     * Pilha da DFS.
+     */
+    private int[] stack;
+
+    /**
+     * Vizinhos decodificados de um nó, na representação comprimida.
+     */
+    private int[] neighbors;
+
+    /**
+     * Pilha de iteradores da DFS na lista de adjacências (um por vértice
+     * empilhado).
+     */
+    private final ArrayList<Iterator<Integer>> iterators =
+            new ArrayList<Iterator<Integer>>();
+
+    /**
+     * Nós já alcançados pela BFS ou DFS na matriz, como bits alinhados às linhas da
+     * matriz de adjacência. Fica zerado entre uma busca e outra.
+     */
+    private long[] knownBits;
+
+    /**
+     * Fronteira da BFS que alterna direções, como bits (um por nó). Fica
+     * zerada entre um nível e outro.
+     */
+    private long[] frontierBits;
+
+    /**
+     * BFS paralela (com o seu pool de threads), reaproveitada entre as
+     * chamadas de Graph.parallelBFS().
+     */
+    private ParallelBFS parallelBFS;
+
+    /**
+     * Arcos percorridos pela última BFS bidirecional (somando os dois
+     * lados).
+     */
+    private long nScanned;
+
+    /**
+     * Cria uma área de trabalho vazia, com espaço para um grafo de até
+     * nNodes nós.
+     * @param nNodes Número de nós do grafo.
+     */
+    public TraversalWorkspace(int nNodes) {
+        this(new TraversalResult(nNodes));
+    }
+
+    /**
+     * Cria uma área de trabalho em torno de um resultado já existente (para
+     * as versões de Graph.BFS() e Graph.DFS() que recebem só o resultado).
+     * @param result Resultado a ser preenchido pelas buscas.
+     */
+    TraversalWorkspace(TraversalResult result) {
+        this.result = result;
+    }
+
+    /**
+     * Área de trabalho exclusiva da thread que chama, criada na primeira
+     * chamada e substituída por uma maior se o grafo não couber nela. É a que
+     * Graph usa internamente quando o usuário não fornece uma, então o
+     * resultado nela só vale até a próxima busca feita na mesma thread.
+     * @param nNodes Número de nós do grafo.
+     * @return Área de trabalho com capacidade para pelo menos nNodes nós.
+     */
+    public static TraversalWorkspace forCurrentThread(int nNodes) {
+        TraversalWorkspace workspace = perThread.get();
+
+        if (workspace == null || workspace.capacity() < nNodes) {
+            workspace = new TraversalWorkspace(nNodes);
+            perThread.set(workspace);
+        }
+
+        return workspace;
+    }
+
+    /**
+     * @return Resultado da última busca feita com esta área de trabalho.
+     */
+    public TraversalResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return Capacidade da área de trabalho (o maior número de nós de um
+     *          grafo em que ela pode ser usada).
+     */
+    public int capacity() {
+        return result.capacity();
+    }
+
+    /**
+     * Pilha com pelo menos size posições (o conteúdo anterior é descartado).
+     */
+    int[] stack(int size) {
+        if (stack == null || stack.length < size) {
+            stack = new int[size];
+        }
+
+        return stack;
+    }
+
+    /**
+     * Buffer para os vizinhos de um nó com pelo menos size posições.
+     */
+    int[] neighborBuffer(int size) {
+        if (neighbors == null || neighbors.length < size) {
+            neighbors = new int[size];
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * Pilha de iteradores da DFS na lista, vazia.
+     */
+    ArrayList<Iterator<Integer>> iteratorStack() {
+        iterators.clear();
+
+        return iterators;
+    }
+
+    /**
+     * Bits de visitados da BFS ou DFS na matriz, todos zerados; quem usa é
+     * responsável por zerá-los de novo ao final (ver clearKnownBits()).
+     */
+    long[] knownBits(int words) {
+        if (knownBits == null || knownBits.length < words) {
+            knownBits = new long[words];
+        }
+
+        return knownBits;
+    }
+
+    /**
+     * Zera as palavras de knownBits tocadas por uma busca, percorrendo só os
+     * nós que ela alcançou.
+     * @param nodes Nós alcançados.
+     * @param count Quantidade de posições válidas em nodes.
+     */
+    void clearKnownBits(int[] nodes, int count) {
+        for (int i=0; i < count; i++) {
+            knownBits[nodes[i] >>> 6] = 0;
+        }
+    }
+
+    /**
+     * BFS paralela com nThreads threads: a mesma da chamada anterior, se o
+     * número de threads não mudou (senão, uma nova, e o pool da antiga
+     * termina sozinho quando fica ocioso).
+     */
+    ParallelBFS parallelBFS(int nThreads) {
+        if (parallelBFS == null || parallelBFS.getNThreads() != nThreads) {
+            parallelBFS = new ParallelBFS(nThreads);
+        }
+
+        return parallelBFS;
+    }
+
+    /**
+     * @return Arcos percorridos pela última BFS bidirecional feita com esta
+     *          área de trabalho (o custo dela, para Graph.calcDistances()).
+     */
+    long getNScanned() {
+        return nScanned;
+    }
+
+    void setNScanned(long nScanned) {
+        this.nScanned = nScanned;
+    }
+
+    /**
+     * Bits da fronteira de Graph.directionOptimizingBFS(), todos zerados;
+     * quem usa é responsável por zerá-los de novo ao final de cada nível.
+     */
+    long[] frontierBits(int words) {
+        if (frontierBits == null || frontierBits.length < words) {
+            frontierBits = new long[words];
+        }
+
+        return frontierBits;
+    }
+}
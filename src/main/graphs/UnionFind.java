@@ -0,0 +1,152 @@
+package graphs;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Floresta de conjuntos disjuntos ("union-find") sobre os inteiros de 0 a
+ * n, guardada num único int[] de pais.
+ *
+ * Há dois modos de uso, que não devem ser misturados na mesma instância:
+ * - sequencial (find() e union()): união por posto e compressão de caminho
+ *   por "halving" (cada nó passa a apontar para o avô);
+ * - concorrente (findConcurrent() e unionConcurrent()), para várias threads
+ *   unindo ao mesmo tempo: a raiz de maior índice é ligada à de menor com um
+ *   compareAndSet, e só raízes são ligadas, então os pais só diminuem e não
+ *   se formam ciclos; a compressão de caminho só altera nós que já não são
+ *   raízes, e por isso pode ser feita sem sincronização.
+ */
+class UnionFind {
+    /**
+     * Acesso atômico às posições de um int[].
+     */
+    private static final VarHandle INT_ARRAY =
+            MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * Pai de cada elemento (as raízes apontam para si mesmas).
+     */
+    private final int[] parent;
+
+    /**
+     * Limite superior da altura da árvore de cada raiz (modo sequencial).
+     */
+    private final byte[] rank;
+
+    /**
+     * Número de conjuntos (modo sequencial).
+     */
+    private int nSets;
+
+    /**
+     * Cria n + 1 conjuntos unitários, {0}, {1}, ..., {n}.
+     * @param n Maior elemento.
+     */
+    UnionFind(int n) {
+        this.parent = new int[n + 1];
+        this.rank = new byte[n + 1];
+        this.nSets = n + 1;
+
+        for (int i=0; i <= n; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * @param x Elemento.
+     * @return Representante (raiz) do conjunto de x.
+     */
+    int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+
+        return x;
+    }
+
+    /**
+     * Une os conjuntos de a e b.
+     * @return Se a e b estavam em conjuntos diferentes.
+     */
+    boolean union(int a, int b) {
+        a = find(a);
+        b = find(b);
+
+        if (a == b) {
+            return false;
+        }
+
+        if (rank[a] < rank[b]) {
+            parent[a] = b;
+        } else if (rank[a] > rank[b]) {
+            parent[b] = a;
+        } else {
+            parent[b] = a;
+            rank[a]++;
+        }
+
+        nSets--;
+
+        return true;
+    }
+
+    /**
+     * @return Número de conjuntos (só no modo sequencial).
+     */
+    int getNSets() {
+        return nSets;
+    }
+
+    /**
+     * Versão de find() segura para uso simultâneo com unionConcurrent().
+     * @param x Elemento.
+     * @return Raiz do conjunto de x no momento da chamada.
+     */
+    int findConcurrent(int x) {
+        while (true) {
+            int p = (int) INT_ARRAY.getAcquire(parent, x);
+
+            if (p == x) {
+                return x;
+            }
+
+            int grandparent = (int) INT_ARRAY.getAcquire(parent, p);
+
+            if (grandparent != p) {
+                INT_ARRAY.setRelease(parent, x, grandparent);
+            }
+
+            x = grandparent;
+        }
+    }
+
+    /**
+     * Une os conjuntos de a e b; pode ser chamado por várias threads ao
+     * mesmo tempo.
+     * @return Se esta chamada fez a união (false se a e b já estavam no mesmo
+     *          conjunto).
+     */
+    boolean unionConcurrent(int a, int b) {
+        while (true) {
+            a = findConcurrent(a);
+            b = findConcurrent(b);
+
+            if (a == b) {
+                return false;
+            }
+
+            if (a < b) {
+                int tmp = a;
+                a = b;
+                b = tmp;
+            }
+
+            // a ainda é raiz? Então passa a apontar para b; se não, outra
+            // thread o ligou antes, e tentamos de novo a partir das raízes
+            if (INT_ARRAY.compareAndSet(parent, a, a, b)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Ordenações dos nós que aproximam, nos arrays da CSR, os nós que costumam
+ * ser visitados juntos (ver Graph.relabel()). Com os índices arbitrários dos
+ * arquivos de entrada, os vizinhos de um nó estão espalhados por todo o
+ * grafo, e cada acesso de uma busca cai numa linha de cache diferente;
+ * depois da renumeração, os vizinhos tendem a ter índices próximos.
+ *
+ * Todas as ordenações recebem a CSR atual (vizinhos em ordem crescente) e
+ * retornam um array order em que order[k] é o nó que passa a ter o índice k
+ * (de 1 a nNodes; a posição 0 não é usada).
+ */
+class VertexOrdering {
+    /**
+     * Número máximo de BFS na busca por um nó pseudoperiférico de cada
+     * componente (reverseCuthillMcKee()).
+     */
+    private static final int PERIPHERAL_SWEEPS = 4;
+
+    /**
+     * Ordem de visita de uma BFS a partir do menor nó de cada componente,
+     * com os vizinhos em ordem crescente.
+     */
+    static int[] bfs(int nNodes, int[] offsets, int[] targets) {
+        int[] order = new int[nNodes + 1];
+        boolean[] visited = new boolean[nNodes + 1];
+        int tail = 1;
+
+        for (int s=1; s <= nNodes; s++) {
+            if (visited[s]) {
+                continue;
+            }
+
+            int head = tail;
+            order[tail++] = s;
+            visited[s] = true;
+
+            while (head < tail) {
+                int v = order[head++];
+
+                for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        order[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Ordem de Cuthill-McKee reversa: em cada componente, uma BFS a partir de
+     * um nó pseudoperiférico (aproximadamente um dos mais distantes do
+     * centro), em que os vizinhos de cada nó entram na fila em ordem
+     * crescente de grau; no fim, a ordem inteira é invertida. Minimiza
+     * aproximadamente a largura de banda da matriz de adjacências, ou seja,
+     * a maior diferença de índice entre dois vizinhos.
+     */
+    static int[] reverseCuthillMcKee(int nNodes, int[] offsets, int[] targets) {
+        int[] order = new int[nNodes + 1];
+        int[] stamp = new int[nNodes + 1];  // marcas das BFS auxiliares
+        int[] level = new int[nNodes + 1];
+        int[] queue = new int[nNodes];
+        boolean[] visited = new boolean[nNodes + 1];
+        int epoch = 0;
+        int tail = 1;
+
+        int maxDegree = 0;
+
+        for (int v=1; v <= nNodes; v++) {
+            maxDegree = Math.max(maxDegree, offsets[v + 1] - offsets[v]);
+        }
+
+        long[] byDegree = new long[maxDegree];  // (grau, nó) de cada vizinho
+
+        for (int s=1; s <= nNodes; s++) {
+            if (visited[s]) {
+                continue;
+            }
+
+            // Nó pseudoperiférico (George e Liu): BFS a partir do nó de menor
+            // grau do último nível da BFS anterior, enquanto a
+            // excentricidade aumentar
+            int root = s;
+            int ecc = -1;
+
+            for (int sweep=0; sweep < PERIPHERAL_SWEEPS; sweep++) {
+                int size = levels(root, offsets, targets, stamp, ++epoch, level, queue);
+                int rootEcc = level[queue[size - 1]];
+
+                if (rootEcc <= ecc) {
+                    break;
+                }
+
+                ecc = rootEcc;
+                int next = queue[size - 1];
+
+                for (int j=size - 1; j >= 0 && level[queue[j]] == ecc; j--) {
+                    int w = queue[j];
+
+                    if (degree(w, offsets) < degree(next, offsets)) {
+                        next = w;
+                    }
+                }
+
+                if (next == root) {
+                    break;
+                }
+
+                root = next;
+            }
+
+            int head = tail;
+            order[tail++] = root;
+            visited[root] = true;
+
+            while (head < tail) {
+                int v = order[head++];
+                int count = 0;
+
+                for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        byDegree[count++] = ((long) degree(w, offsets) << 32) | w;
+                    }
+                }
+
+                Arrays.sort(byDegree, 0, count);  // empates pelo menor índice
+
+                for (int j=0; j < count; j++) {
+                    order[tail++] = (int) byDegree[j];
+                }
+            }
+        }
+
+        for (int i=1, j=nNodes; i < j; i++, j--) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        return order;
+    }
+
+    /**
+     * Nós em ordem decrescente de grau (empates pelo menor índice), com
+     * counting sort: os nós de grau alto, que aparecem nas listas de muitos
+     * outros, ficam juntos no início dos arrays.
+     */
+    static int[] byDegree(int nNodes, int[] offsets) {
+        int maxDegree = 0;
+
+        for (int v=1; v <= nNodes; v++) {
+            maxDegree = Math.max(maxDegree, degree(v, offsets));
+        }
+
+        int[] start = new int[maxDegree + 2];
+
+        for (int v=1; v <= nNodes; v++) {
+            start[maxDegree - degree(v, offsets) + 1]++;
+        }
+
+        for (int d=1; d <= maxDegree + 1; d++) {
+            start[d] += start[d - 1];
+        }
+
+        int[] order = new int[nNodes + 1];
+
+        for (int v=1; v <= nNodes; v++) {
+            order[1 + start[maxDegree - degree(v, offsets)]++] = v;
+        }
+
+        return order;
+    }
+
+    private static int degree(int v, int[] offsets) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * BFS auxiliar, só com os níveis.
+     * @return Número de nós alcançados (na ordem de visita, em queue).
+     */
+    private static int levels(int origin, int[] offsets, int[] targets,
+                              int[] stamp, int epoch, int[] level, int[] queue) {
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = origin;
+        stamp[origin] = epoch;
+        level[origin] = 0;
+
+        while (head < tail) {
+            int v = queue[head++];
+
+            for (int i=offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+
+                if (stamp[w] != epoch) {
+                    stamp[w] = epoch;
+                    level[w] = level[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+
+        return tail;
+    }
+}
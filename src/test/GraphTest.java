@@ -1,13 +1,29 @@
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import graphs.ConnectedComponents;
+import graphs.DistanceOracle;
+import graphs.DistanceProfile;
 import graphs.Graph;
-
+import graphs.GraphGenerator;
+import graphs.ShortestPaths;
+import graphs.SpanningForest;
+import graphs.TraversalResult;
+import graphs.TraversalWorkspace;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.Iterator;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,12 +32,18 @@ class GraphTest {
     private static Graph connected7;
     private static Graph disconnected6;
     private static Graph disconnected15;
+    private static Graph disconnected15C;  // mesmo grafo, repr. CSR
+
+    private static Graph grid150M;  // > 64 nós: mais de uma palavra por linha
+    private static Graph grid150C;
 
     private static Graph bfsTreeM6;  // raiz: nó 6
     private static Graph bfsTreeL6;
+    private static Graph bfsTreeC6;
 
     private static Graph dfsTreeM4;  // raiz: nó 4
     private static Graph dfsTreeL4;
+    private static Graph dfsTreeC4;
 
     private static final double eps = 1e-6;  // p/ comparações de floats
 
@@ -51,13 +73,22 @@ class GraphTest {
 
         try {
             disconnected15 = new Graph("src/test/input/teste3.txt", 1);
+            disconnected15C = new Graph("src/test/input/teste3.txt", Graph.CSR);
         } catch (InstantiationException exc) {
             System.err.println("Falha na criacao do grafo manual 3");
         }
 
+        try {
+            grid150M = new Graph("src/test/input/teste4.txt", Graph.MATRIX);
+            grid150C = new Graph("src/test/input/teste4.txt", Graph.CSR);
+        } catch (InstantiationException exc) {
+            System.err.println("Falha na criacao do grafo manual 4");
+        }
+
         try {
             bfsTreeM6 = new Graph("src/test/input/bfstree_root6.txt", 0);
             bfsTreeL6 = new Graph("src/test/input/bfstree_root6.txt", 1);
+            bfsTreeC6 = new Graph("src/test/input/bfstree_root6.txt", Graph.CSR);
         } catch (InstantiationException exc) {
             System.err.println("Falha na criacao do grafo da BFS (slide)");
         }
@@ -65,6 +96,7 @@ class GraphTest {
         try {
             dfsTreeM4 = new Graph("src/test/input/dfstree_root4.txt", 0);
             dfsTreeL4 = new Graph("src/test/input/dfstree_root4.txt", 1);
+            dfsTreeC4 = new Graph("src/test/input/dfstree_root4.txt", Graph.CSR);
         } catch (InstantiationException exc) {
             System.err.println("Falha na criacao do grafo da DFS (slide)");
         }
@@ -101,6 +133,9 @@ class GraphTest {
                 assertEquals(false, neighbors.contains(i));
             }
         }
+
+        // Ordem crescente, não a do arquivo, também na lista de adjacência
+        assertEquals(Arrays.asList(1, 2, 3, 4), pdfGraph.getNeighbors(5));
     }
 
     @Test
@@ -149,6 +184,27 @@ class GraphTest {
 
     }
 
+    @Test
+    @DisplayName("Distribuição, percentis e histograma dos graus")
+    void degreeDistribution() {
+        // pdf.txt: graus 1, 1, 2, 2, 4
+        assertArrayEquals(new int[]{0, 2, 2, 0, 1}, pdfGraph.getDegreeDistribution());
+        assertEquals(1, pdfGraph.getDegreePercentile(0));
+        assertEquals(1, pdfGraph.getDegreePercentile(40));
+        assertEquals(2, pdfGraph.getDegreePercentile(50));
+        assertEquals(4, pdfGraph.getDegreePercentile(100));
+        assertArrayEquals(new int[]{2, 2, 1}, pdfGraph.getDegreeHistogram(2));
+        assertThrows(IllegalArgumentException.class, () -> pdfGraph.getDegreePercentile(101));
+
+        // mesmos graus nas três representações
+        Graph[][] sameInput = {{disconnected15, disconnected15C}, {grid150M, grid150C}};
+
+        for (Graph[] pair : sameInput) {
+            assertArrayEquals(pair[0].getDegreeDistribution(), pair[1].getDegreeDistribution());
+            assertEquals(pair[0].getDegreeOverview(), pair[1].getDegreeOverview());
+        }
+    }
+
     @Test
     @DisplayName("Componente conexa (BFS)")
     void BFSComponent() {
@@ -182,6 +238,7 @@ class GraphTest {
 
         bfsTrees.add(bfsTreeM6.BFS(6));
         bfsTrees.add(bfsTreeL6.BFS(6));
+        bfsTrees.add(bfsTreeC6.BFS(6));
 
         Iterator<HashMap<Integer, Integer[]>> treeIt = bfsTrees.iterator();
 
@@ -242,6 +299,7 @@ class GraphTest {
 
         dfsTrees.add(dfsTreeM4.DFS(4));
         dfsTrees.add(dfsTreeL4.DFS(4));
+        dfsTrees.add(dfsTreeC4.DFS(4));
 
         Iterator<HashMap<Integer, Integer[]>> treeIt = dfsTrees.iterator();
         while(treeIt.hasNext()) {
@@ -273,6 +331,205 @@ class GraphTest {
         }
     }
 
+    @Test
+    @DisplayName("BFS e DFS com resultado em arrays (reaproveitado)")
+    void traversalResult() {
+        TraversalResult result = new TraversalResult(grid150C.getNNodes());
+        Graph[] graphs = {grid150M, grid150C, disconnected15, disconnected15C};
+
+        for (Graph graph : graphs) {
+            for (int origin = 1; origin <= graph.getNNodes(); origin += 7) {
+                for (int s = 0; s <= 1; s++) {
+                    HashMap<Integer, Integer[]> tree;
+
+                    if (s == 0) {
+                        tree = graph.BFS(origin);
+                        graph.BFS(origin, -1, result);
+                    } else {
+                        tree = graph.DFS(origin);
+                        graph.DFS(origin, -1, result);
+                    }
+
+                    assertEquals(tree.size(), result.getNReached());
+                    assertEquals(origin, result.getNodeAt(0));
+
+                    for (int i = 1; i <= graph.getNNodes(); i++) {
+                        if (tree.containsKey(i)) {
+                            assertEquals(tree.get(i)[0], result.getParent(i));
+                            assertEquals(tree.get(i)[1], result.getLevel(i));
+                        } else {
+                            // o resultado anterior não pode "vazar" para o novo
+                            assertFalse(result.isReached(i), i + " a mais");
+                            assertEquals(-1, result.getLevel(i));
+                        }
+                    }
+                }
+            }
+        }
+
+        assertFalse(result.isReached(1000));  // índice inexistente
+        assertThrows(IllegalArgumentException.class,
+                () -> grid150C.BFS(1, -1, new TraversalResult(10)));
+    }
+
+    @Test
+    @DisplayName("BFS e DFS com área de trabalho reaproveitada")
+    void traversalWorkspace() {
+        TraversalWorkspace workspace = new TraversalWorkspace(grid150C.getNNodes());
+        Graph[] graphs = {grid150M, grid150C, disconnected15, disconnected15C, pdfGraph};
+
+        // Alterna grafos, representações e algoritmos na mesma área de
+        // trabalho: nenhuma marca de uma busca pode sobrar para a seguinte
+        for (int round = 0; round < 3; round++) {
+            for (Graph graph : graphs) {
+                for (int origin = 1; origin <= graph.getNNodes(); origin += 5) {
+                    TraversalResult expected = graph.BFS(origin, -1, new TraversalResult(graph.getNNodes()));
+                    TraversalResult result = graph.BFS(origin, -1, workspace);
+
+                    assertTrue(result == workspace.getResult());
+                    assertEquals(expected.getNReached(), result.getNReached());
+
+                    for (int i = 1; i <= graph.getNNodes(); i++) {
+                        assertEquals(expected.getLevel(i), result.getLevel(i));
+                        assertEquals(expected.getParent(i), result.getParent(i));
+                    }
+
+                    expected = graph.DFS(origin, -1, new TraversalResult(graph.getNNodes()));
+                    graph.DFS(origin, -1, workspace);
+
+                    for (int i = 1; i <= graph.getNNodes(); i++) {
+                        assertEquals(expected.getLevel(i), result.getLevel(i));
+                        assertEquals(expected.getParent(i), result.getParent(i));
+                    }
+                }
+            }
+        }
+
+        // Área de trabalho de cada thread: a mesma enquanto couber o grafo
+        TraversalWorkspace pooled = TraversalWorkspace.forCurrentThread(10);
+        assertTrue(pooled == TraversalWorkspace.forCurrentThread(5));
+        assertTrue(TraversalWorkspace.forCurrentThread(1000).capacity() >= 1000);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> grid150C.DFS(1, -1, new TraversalWorkspace(10)));
+    }
+
+    @Test
+    @DisplayName("Tempos de descoberta e término da DFS")
+    void DFSTimes() {
+        TraversalWorkspace workspace = new TraversalWorkspace(grid150C.getNNodes());
+        Graph[] graphs = {grid150M, grid150C, disconnected15, dfsTreeL4};
+
+        for (Graph graph : graphs) {
+            TraversalResult result = graph.DFS(1, -1, workspace);
+            int k = result.getNReached();
+            boolean[] used = new boolean[2 * k + 1];
+
+            for (int i = 0; i < k; i++) {
+                int v = result.getNodeAt(i);
+                int d = result.getDiscoveryTime(v);
+                int f = result.getFinishTime(v);
+
+                // cada tempo de 1 a 2k aparece uma única vez
+                assertTrue(d >= 1 && f > d && f <= 2 * k);
+                assertFalse(used[d] || used[f]);
+                used[d] = true;
+                used[f] = true;
+
+                // a ordem de visita é a de descoberta
+                if (i > 0) {
+                    assertTrue(result.getDiscoveryTime(result.getNodeAt(i - 1)) < d);
+                }
+
+                // intervalo do filho contido no do pai
+                if (v != 1) {
+                    int p = result.getParent(v);
+                    assertTrue(result.getDiscoveryTime(p) < d);
+                    assertTrue(f < result.getFinishTime(p));
+                }
+            }
+
+            assertEquals(2 * k, result.getFinishTime(1));
+        }
+
+        // DFS interrompida: o alvo não termina; BFS não tem tempos
+        TraversalResult result = grid150C.DFS(1, 20, workspace);
+        assertEquals(-1, result.getFinishTime(20));
+        assertTrue(result.getDiscoveryTime(20) > 0);
+
+        grid150C.BFS(1, -1, workspace);
+        assertEquals(-1, workspace.getResult().getDiscoveryTime(1));
+    }
+
+    @Test
+    @DisplayName("BFS alternando direções: mesmos níveis da BFS")
+    void directionOptimizingBFS() {
+        TraversalWorkspace workspace = new TraversalWorkspace(grid150C.getNNodes());
+        Graph[] graphs = {grid150C, disconnected15C, bfsTreeC6, grid150M};
+        // (limiares padrão, sempre de baixo para cima e quase sempre de cima
+        // para baixo)
+        int[][] thresholds = {{Graph.DO_BFS_ALPHA, Graph.DO_BFS_BETA},
+                {Integer.MAX_VALUE, Integer.MAX_VALUE}, {1, 1}};
+
+        for (Graph graph : graphs) {
+            for (int origin = 1; origin <= graph.getNNodes(); origin += 3) {
+                HashMap<Integer, Integer[]> tree = graph.BFS(origin);
+
+                for (int[] t : thresholds) {
+                    assertSameLevels(graph, tree,
+                            graph.directionOptimizingBFS(origin, workspace, t[0], t[1]));
+                }
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> grid150C.directionOptimizingBFS(1, workspace, 0, 1));
+    }
+
+    @Test
+    @DisplayName("BFS paralela: mesmos níveis da BFS")
+    void parallelBFS() {
+        TraversalWorkspace workspace = new TraversalWorkspace(grid150C.getNNodes());
+        Graph[] graphs = {grid150C, disconnected15C, bfsTreeC6, grid150M};
+
+        for (Graph graph : graphs) {
+            for (int origin = 1; origin <= graph.getNNodes(); origin += 3) {
+                HashMap<Integer, Integer[]> tree = graph.BFS(origin);
+
+                // fronteira mínima 1: todos os níveis passam pelo pool
+                assertSameLevels(graph, tree, graph.parallelBFS(origin, workspace, 4, 1));
+                assertSameLevels(graph, tree, graph.parallelBFS(origin, workspace, 4));
+                assertSameLevels(graph, tree, graph.parallelBFS(origin, workspace, 1));
+            }
+        }
+    }
+
+    /**
+     * Confere se uma BFS que pode escolher outros pais (ex.: paralela) chegou
+     * aos mesmos nós e níveis da BFS usual.
+     */
+    private static void assertSameLevels(Graph graph, HashMap<Integer, Integer[]> tree,
+                                         TraversalResult result) {
+        assertEquals(tree.size(), result.getNReached());
+
+        for (int i = 1; i <= graph.getNNodes(); i++) {
+            if (!tree.containsKey(i)) {
+                assertFalse(result.isReached(i), i + " a mais");
+                continue;
+            }
+
+            assertEquals(tree.get(i)[1], result.getLevel(i));
+
+            // o pai pode ser outro, mas tem que ser vizinho e estar no nível
+            // anterior
+            if (i != result.getOrigin()) {
+                int p = result.getParent(i);
+                assertTrue(graph.getNeighbors(i).contains(p));
+                assertEquals(result.getLevel(i) - 1, result.getLevel(p));
+            }
+        }
+    }
+
     @Test
     @DisplayName("Distância entre nós")
     void calcDistance() {
@@ -283,6 +540,54 @@ class GraphTest {
         assertEquals(-1, disconnected6.calcDistance(4, 5));
     }
 
+    @Test
+    @DisplayName("Caminho mais curto pela BFS bidirecional")
+    void findShortestPath() throws InstantiationException {
+        ArrayList<Integer> path6 = disconnected6.findShortestPath(4, 3);
+        assertEquals(4, path6.size());
+        assertEquals(4, path6.get(0));
+        assertEquals(3, path6.get(3));
+        assertTrue(disconnected6.findShortestPath(4, 5).isEmpty());
+        assertEquals(Collections.singletonList(2), pdfGraph.findShortestPath(2, 2));
+        assertEquals(0, pdfGraph.calcDistance(2, 2));
+
+        // Distâncias iguais às da BFS a partir de um lado só, em todas as
+        // representações (e com os nós renumerados)
+        GraphGenerator er = GraphGenerator.erdosRenyi(1500, 0.0015, 7);
+        Graph expected = new Graph(er, Graph.LIST);
+        Graph relabeled = new Graph(er, Graph.CSR);
+        relabeled.relabel(Graph.ORDER_RCM);
+
+        Graph[] graphs = {
+                expected, new Graph(er, Graph.MATRIX), new Graph(er, Graph.CSR),
+                new Graph(er, Graph.OFFHEAP), new Graph(er, Graph.COMPRESSED), relabeled,
+        };
+
+        for (int origin = 1; origin <= 1500; origin += 97) {
+            TraversalResult tree = expected.BFS(origin, -1, (TraversalResult) null);
+
+            for (int goal = 1; goal <= 1500; goal += 31) {
+                int dist = tree.isReached(goal) ? tree.getLevel(goal) : -1;
+
+                for (Graph graph : graphs) {
+                    assertEquals(dist, graph.calcDistance(origin, goal));
+
+                    ArrayList<Integer> path = graph.findShortestPath(origin, goal);
+                    assertEquals(dist + 1, path.size());
+
+                    for (int i = 1; i < path.size(); i++) {
+                        assertTrue(graph.getNeighbors(path.get(i - 1)).contains(path.get(i)));
+                    }
+
+                    if (dist >= 0) {
+                        assertEquals(origin, path.get(0));
+                        assertEquals(goal, path.get(dist));
+                    }
+                }
+            }
+        }
+    }
+
     @Test
     @DisplayName("Diâmetro do grafo")
     void calcDiameter() {
@@ -304,6 +609,94 @@ class GraphTest {
         // às vezes dá 3, às vezes dá 4 (o certo); parece razoável
     }
 
+    @Test
+    @DisplayName("Diâmetro exato por componente (iFUB)")
+    void calcExactDiameters() {
+        Graph[] graphs = {grid150M, grid150C, disconnected15, disconnected6,
+                connected7, pdfGraph, bfsTreeC6, dfsTreeL4};
+
+        for (Graph graph : graphs) {
+            ArrayList<HashMap<String, Integer>> components = graph.calcExactDiameters();
+            int total = 0;
+
+            for (int c = 0; c < components.size(); c++) {
+                HashMap<String, Integer> data = components.get(c);
+                int size = data.get("size");
+                total += size;
+
+                if (c > 0) {
+                    assertTrue(components.get(c - 1).get("size") >= size);
+                }
+
+                // força bruta: a maior excentricidade entre os nós da
+                // componente
+                int diameter = 0;
+
+                for (int v : graph.findConnectedComponent(data.get("node"))) {
+                    for (Integer[] parentLevel : graph.BFS(v).values()) {
+                        diameter = Math.max(diameter, parentLevel[1]);
+                    }
+                }
+
+                assertEquals(diameter, data.get("diameter"));
+                assertTrue(data.get("bfsCalls") >= 1 && data.get("bfsCalls") <= size + 3);
+            }
+
+            assertEquals(graph.getNNodes(), total);
+        }
+
+        assertEquals(grid150M.calcDiameter(), grid150C.calcExactDiameters().get(0).get("diameter"));
+    }
+
+    @Test
+    @DisplayName("BFS de várias origens: excentricidades e histograma")
+    void multiSourceBFS() {
+        Graph[] graphs = {grid150C, grid150M, disconnected15C, disconnected15, bfsTreeC6};
+
+        for (Graph graph : graphs) {
+            int n = graph.getNNodes();
+            int[] expectedEcc = new int[n];
+            long[] expectedHist = new long[n];
+
+            for (int v = 1; v <= n; v++) {
+                for (Integer[] parentLevel : graph.BFS(v).values()) {
+                    expectedEcc[v - 1] = Math.max(expectedEcc[v - 1], parentLevel[1]);
+                    expectedHist[parentLevel[1]]++;
+                }
+            }
+
+            // 1 palavra: lotes de 64 (o último incompleto); 4: um lote só
+            for (int nWords = 1; nWords <= 4; nWords += 3) {
+                int[] sources = new int[n];
+
+                for (int i = 0; i < n; i++) {
+                    sources[i] = i + 1;
+                }
+
+                DistanceProfile profile = graph.multiSourceBFS(sources, nWords);
+                long[] hist = profile.getHistogram();
+
+                assertEquals(n, profile.getNSources());
+
+                for (int i = 0; i < n; i++) {
+                    assertEquals(expectedEcc[i], profile.getEccentricity(i));
+                }
+
+                for (int d = 0; d < n; d++) {
+                    assertEquals(expectedHist[d], d < hist.length ? hist[d] : 0L);
+                }
+
+                assertEquals(graph.calcDiameter(), profile.getMaxEccentricity());
+            }
+        }
+
+        // Origens repetidas e fora de ordem
+        DistanceProfile profile = grid150C.multiSourceBFS(new int[]{7, 3, 7});
+        assertEquals(profile.getEccentricity(0), profile.getEccentricity(2));
+        assertEquals(3, profile.getHistogram()[0]);
+        assertEquals(grid150C.multiSourceBFS().getMaxEccentricity(), grid150C.calcDiameter());
+    }
+
     @Test
     @DisplayName("Componente conexa (função específica)")
     void findConnectedComponent() {
@@ -348,6 +741,773 @@ class GraphTest {
         }
     }
 
+    @Test
+    @DisplayName("Componentes conexas por union-find")
+    void findComponents() {
+        Graph[] graphs = {disconnected6, disconnected15, disconnected15C, grid150M,
+                grid150C, pdfGraph};
+
+        for (Graph graph : graphs) {
+            ArrayList<ArrayList<Integer>> expected = new ArrayList<ArrayList<Integer>>();
+            boolean[] seen = new boolean[graph.getNNodes() + 1];
+
+            // referência: uma BFS por componente, na ordem do menor nó
+            for (int v = 1; v <= graph.getNNodes(); v++) {
+                if (!seen[v]) {
+                    ArrayList<Integer> component = graph.findConnectedComponent(v);
+                    expected.add(component);
+
+                    for (int w : component) {
+                        seen[w] = true;
+                    }
+                }
+            }
+
+            // sequencial e com 4 threads (na CSR)
+            for (int nThreads = 1; nThreads <= 4; nThreads += 3) {
+                ConnectedComponents found = graph.findComponents(nThreads);
+
+                assertEquals(expected.size(), found.getNComponents());
+
+                for (int c = 0; c < found.getNComponents(); c++) {
+                    int[] members = found.getMembers(c);
+                    ArrayList<Integer> component = graph.findConnectedComponent(members[0]);
+
+                    assertEquals(component.size(), found.getSize(c));
+
+                    if (c > 0) {
+                        assertTrue(found.getSize(c - 1) >= found.getSize(c));
+                    }
+
+                    for (int i = 0; i < members.length; i++) {
+                        assertEquals(component.get(i), members[i]);
+                        assertEquals(members[i], found.getNode(c, i));
+                        assertEquals(c, found.getComponentId(members[i]));
+                        assertEquals(members.length, found.getComponentSize(members[i]));
+                        assertTrue(found.sameComponent(members[0], members[i]));
+                    }
+                }
+            }
+        }
+
+        ConnectedComponents d6 = disconnected6.findComponents();
+        assertFalse(d6.sameComponent(1, 5));
+        assertEquals(4, d6.getComponentSize(2));
+        assertEquals(2, d6.getSize(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> d6.getNode(1, 2));
+    }
+
+    @Test
+    @DisplayName("Componentes mantidas durante a leitura")
+    void loadComponents() throws InstantiationException {
+        Graph summary = new Graph("src/test/input/teste3.txt", Graph.SUMMARY);
+        Graph tracked = new Graph("src/test/input/teste3.txt", Graph.LIST, 1, true);
+        ConnectedComponents expected = disconnected15.findComponents();
+
+        assertEquals(disconnected15.getNNodes(), summary.getNNodes());
+        assertEquals(disconnected15.getNEdges(), summary.getNEdges());
+
+        for (Graph graph : new Graph[]{summary, tracked}) {
+            ConnectedComponents found = graph.findComponents();
+
+            assertEquals(expected.getNComponents(), found.getNComponents());
+            assertArrayEquals(expected.getComponentIds(), found.getComponentIds());
+            assertEquals(disconnected15.findConnectedComponents(),
+                    graph.findConnectedComponents());
+            assertEquals(disconnected15.findConnectedComponent(3),
+                    graph.findConnectedComponent(3));
+        }
+
+        // sem arestas guardadas, não há como percorrer o grafo
+        assertThrows(UnsupportedOperationException.class, () -> summary.getNeighbors(1));
+        assertThrows(UnsupportedOperationException.class, () -> summary.BFS(1));
+        assertEquals(disconnected15.getNeighbors(1), tracked.getNeighbors(1));
+    }
+
+    @Test
+    @DisplayName("Representação CSR equivalente à lista")
+    void csrMatchesList() {
+        assertEquals(disconnected15.getNNodes(), disconnected15C.getNNodes());
+        assertEquals(disconnected15.getNEdges(), disconnected15C.getNEdges());
+
+        for (int i = 1; i <= disconnected15.getNNodes(); i++) {
+            ArrayList<Integer> expected = disconnected15.getNeighbors(i);
+            Collections.sort(expected);
+
+            // na CSR os vizinhos já vêm em ordem crescente
+            assertEquals(expected, disconnected15C.getNeighbors(i), "Vizinhos de " + i);
+            assertEquals(disconnected15.getDegree(i), disconnected15C.getDegree(i));
+        }
+
+        assertEquals(disconnected15.findConnectedComponents(),
+                disconnected15C.findConnectedComponents());
+        assertEquals(disconnected15.calcDiameter(), disconnected15C.calcDiameter());
+    }
+
+    @Test
+    @DisplayName("Matriz em bits com mais de 64 colunas")
+    void bitMatrixMatchesCSR() {
+        for (int i = 1; i <= grid150M.getNNodes(); i++) {
+            assertEquals(grid150C.getNeighbors(i), grid150M.getNeighbors(i), "Vizinhos de " + i);
+            assertEquals(grid150C.getDegree(i), grid150M.getDegree(i));
+        }
+
+        HashMap<Integer, Integer[]> bfsM = grid150M.BFS(1);
+        HashMap<Integer, Integer[]> bfsC = grid150C.BFS(1);
+        HashMap<Integer, Integer[]> dfsM = grid150M.DFS(1);
+        HashMap<Integer, Integer[]> dfsC = grid150C.DFS(1);
+
+        assertEquals(bfsC.keySet(), bfsM.keySet());
+
+        for (int node : bfsC.keySet()) {
+            // mesma ordem de vizinhos => mesmas árvores
+            assertEquals(bfsC.get(node)[0], bfsM.get(node)[0]);
+            assertEquals(bfsC.get(node)[1], bfsM.get(node)[1]);
+            assertEquals(dfsC.get(node)[0], dfsM.get(node)[0]);
+            assertEquals(dfsC.get(node)[1], dfsM.get(node)[1]);
+        }
+
+        assertEquals(grid150C.calcDistance(1, 150), grid150M.calcDistance(1, 150));
+        assertTrue(Graph.estimateMatrixBytes(150) < 150 * 150);  // 1 bit por célula
+    }
+
+    @Test
+    @DisplayName("Leitura tolerante a linhas em branco, tabs e espaços")
+    void lenientInput() throws InstantiationException {
+        // mesmo grafo do pdf, mas com \r\n, tabs, espaços sobrando, linhas
+        // em branco e uma aresta repetida no final
+        for (int repr = Graph.MATRIX; repr <= Graph.CSR; repr++) {
+            Graph graph = new Graph("src/test/input/formato_livre.txt", repr);
+
+            assertEquals(5, graph.getNNodes());
+            assertEquals(6, graph.getNEdges());
+            assertEquals(2, graph.calcDistance(1, 4));
+            assertEquals(1, graph.calcDistance(5, 3));
+        }
+
+        assertThrows(InstantiationException.class,
+                () -> new Graph("src/test/input/formato_invalido.txt", Graph.CSR));
+        assertThrows(InstantiationException.class,
+                () -> new Graph("src/test/input/nao_existe.txt", Graph.CSR));
+
+        HashMap<String, Double> stats = pdfGraph.getLoadStats();
+
+        assertEquals(5.0, stats.get("edges"));
+        assertTrue(stats.get("bytes") > 0);
+        assertTrue(stats.get("edgesPerSec") > 0);
+    }
+
+    @Test
+    @DisplayName("Construção em paralelo")
+    void parallelLoad() throws InstantiationException {
+        Graph parallelC = new Graph("src/test/input/teste4.txt", Graph.CSR, 4);
+        Graph parallelL = new Graph("src/test/input/teste4.txt", Graph.LIST, 4);
+
+        assertEquals(grid150C.getNEdges(), parallelC.getNEdges());
+        assertEquals(grid150C.getNEdges(), parallelL.getNEdges());
+
+        for (int i = 1; i <= grid150C.getNNodes(); i++) {
+            // a versão paralela monta exatamente a mesma CSR
+            assertEquals(grid150C.getNeighbors(i), parallelC.getNeighbors(i), "Vizinhos de " + i);
+            assertEquals(grid150C.getDegree(i), parallelL.getDegree(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot binário")
+    void snapshot() throws InstantiationException, IOException {
+        String outDir = "src/test/reports/";
+        Graph[] sources = {grid150C, disconnected15, pdfGraph, disconnected6};
+
+        for (Graph source : sources) {
+            for (boolean compressed : new boolean[]{false, true}) {
+                String file = outDir + source.getInputFile() + (compressed ? "_z" : "") + ".bin";
+                source.saveSnapshot(file, compressed);
+
+                Graph loadedC = new Graph(file, Graph.CSR);
+                Graph loadedL = new Graph(file, Graph.LIST);
+
+                assertEquals(source.getNNodes(), loadedC.getNNodes());
+                assertEquals(source.getNEdges(), loadedC.getNEdges());
+
+                for (int v = 1; v <= source.getNNodes(); v++) {
+                    assertEquals(source.getNeighbors(v), loadedC.getNeighbors(v), "Vizinhos de " + v);
+                    assertEquals(source.getNeighbors(v), loadedL.getNeighbors(v), "Vizinhos de " + v);
+                }
+
+                assertArrayEquals(source.findComponents().getComponentIds(),
+                        new Graph(file, Graph.SUMMARY).findComponents().getComponentIds());
+            }
+        }
+
+        // um byte trocado no meio dos vizinhos é detectado pelo checksum
+        String file = outDir + "teste4.bin";
+        grid150C.saveSnapshot(file);
+
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 10);
+            int b = raf.read();
+            raf.seek(raf.length() - 10);
+            raf.write(b ^ 1);
+        }
+
+        assertThrows(InstantiationException.class, () -> new Graph(file, Graph.CSR));
+    }
+
+    @Test
+    @DisplayName("Listas de adjacências fora da heap e comprimida")
+    void offHeapAndCompressed() throws InstantiationException, IOException {
+        String outDir = "src/test/reports/";
+        grid150C.saveSnapshot(outDir + "teste4_offheap.bin");
+        disconnected15.saveSnapshot(outDir + "teste3_offheap_z.bin", true);
+
+        Graph[][] pairs = {
+                {grid150C, new Graph("src/test/input/teste4.txt", Graph.OFFHEAP)},
+                {grid150C, new Graph(outDir + "teste4_offheap.bin", Graph.OFFHEAP)},  // mapeado
+                {disconnected15, new Graph("src/test/input/teste3.txt", Graph.OFFHEAP, 1, true)},
+                {disconnected15, new Graph(outDir + "teste3_offheap_z.bin", Graph.OFFHEAP)},
+                {grid150C, new Graph("src/test/input/teste4.txt", Graph.COMPRESSED)},
+                {disconnected15, new Graph("src/test/input/teste3.txt", Graph.COMPRESSED, 4)},
+                {disconnected15, new Graph(outDir + "teste3_offheap_z.bin", Graph.COMPRESSED)},
+                {pdfGraph, new Graph("src/test/input/pdf.txt", Graph.COMPRESSED)},
+        };
+
+        for (Graph[] pair : pairs) {
+            Graph expected = pair[0];
+            Graph graph = pair[1];
+
+            assertEquals(expected.getNEdges(), graph.getNEdges());
+            assertArrayEquals(expected.findComponents().getComponentIds(),
+                    graph.findComponents().getComponentIds());
+
+            // (o número de BFS pode mudar: fora da heap não há passo de
+            // baixo para cima, e os pais, logo o centro, podem ser outros)
+            ArrayList<HashMap<String, Integer>> d1 = expected.calcExactDiameters();
+            ArrayList<HashMap<String, Integer>> d2 = graph.calcExactDiameters();
+
+            for (int c = 0; c < d1.size(); c++) {
+                assertEquals(d1.get(c).get("size"), d2.get(c).get("size"));
+                assertEquals(d1.get(c).get("diameter"), d2.get(c).get("diameter"));
+            }
+
+            for (int v = 1; v <= expected.getNNodes(); v++) {
+                assertEquals(expected.getNeighbors(v), graph.getNeighbors(v), "Vizinhos de " + v);
+                assertEquals(expected.getDegree(v), graph.getDegree(v));
+            }
+
+            // vizinhos em ordem crescente: mesmas árvores da CSR/lista
+            TraversalWorkspace ws1 = new TraversalWorkspace(expected.getNNodes());
+            TraversalWorkspace ws2 = new TraversalWorkspace(expected.getNNodes());
+
+            for (int origin = 1; origin <= expected.getNNodes(); origin += 7) {
+                for (int meth = 0; meth <= 1; meth++) {
+                    TraversalResult t1 = meth == 0 ? expected.BFS(origin, -1, ws1)
+                            : expected.DFS(origin, -1, ws1);
+                    TraversalResult t2 = meth == 0 ? graph.BFS(origin, -1, ws2)
+                            : graph.DFS(origin, -1, ws2);
+
+                    assertEquals(t1.getNReached(), t2.getNReached());
+
+                    for (int i = 0; i < t1.getNReached(); i++) {
+                        int w = t1.getNodeAt(i);
+                        assertEquals(w, t2.getNodeAt(i));
+                        assertEquals(t1.getParent(w), t2.getParent(w));
+                        assertEquals(t1.getLevel(w), t2.getLevel(w));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Renumeração dos nós, transparente e salva no snapshot")
+    void relabel() throws InstantiationException, IOException {
+        String outDir = "src/test/reports/";
+
+        Graph rcm = new Graph("src/test/input/teste4.txt", Graph.CSR);
+        rcm.relabel(Graph.ORDER_RCM);
+        rcm.saveSnapshot(outDir + "teste4_rcm.bin");
+
+        Graph twice = new Graph("src/test/input/teste3.txt", Graph.COMPRESSED);
+        twice.relabel(Graph.ORDER_DEGREE);
+        twice.relabel(Graph.ORDER_BFS);  // compõe com a anterior
+        twice.saveSnapshot(outDir + "teste3_relabel_z.bin", true);
+
+        Graph byDegree = new Graph("src/test/input/pdf.txt", Graph.CSR);
+        byDegree.relabel(Graph.ORDER_DEGREE);
+
+        Graph[][] pairs = {
+                {grid150C, rcm},
+                {grid150C, new Graph(outDir + "teste4_rcm.bin", Graph.CSR)},
+                {grid150C, new Graph(outDir + "teste4_rcm.bin", Graph.OFFHEAP)},
+                {grid150C, new Graph(outDir + "teste4_rcm.bin", Graph.LIST, 1, true)},
+                {disconnected15, twice},
+                {disconnected15, new Graph(outDir + "teste3_relabel_z.bin", Graph.CSR)},
+                {pdfGraph, byDegree},
+        };
+
+        for (Graph[] pair : pairs) {
+            Graph expected = pair[0];
+            Graph graph = pair[1];
+            int n = expected.getNNodes();
+
+            assertNotNull(graph.getPermutation());
+            assertArrayEquals(expected.findComponents().getComponentIds(),
+                    graph.findComponents().getComponentIds());
+            assertEquals(expected.calcDiameter(), graph.calcDiameter());
+
+            for (int v = 1; v <= n; v++) {
+                assertEquals(expected.getNeighbors(v), graph.getNeighbors(v), "Vizinhos de " + v);
+                assertEquals(expected.getDegree(v), graph.getDegree(v));
+            }
+
+            // A ordem de visita muda, mas os níveis não, e as árvores
+            // continuam nos índices originais
+            TraversalWorkspace ws1 = new TraversalWorkspace(n);
+            TraversalWorkspace ws2 = new TraversalWorkspace(n);
+
+            for (int origin = 1; origin <= n; origin += 5) {
+                TraversalResult t1 = expected.BFS(origin, -1, ws1);
+                TraversalResult t2 = graph.BFS(origin, -1, ws2);
+
+                assertEquals(origin, t2.getOrigin());
+                assertEquals(t1.getNReached(), t2.getNReached());
+
+                for (int i = 0; i < t1.getNReached(); i++) {
+                    int w = t2.getNodeAt(i);
+                    assertEquals(t1.getLevel(w), t2.getLevel(w));
+
+                    if (w != origin) {
+                        assertTrue(graph.getNeighbors(w).contains(t2.getParent(w)));
+                        assertEquals(t2.getLevel(w) - 1, t2.getLevel(t2.getParent(w)));
+                    }
+                }
+
+                t2 = graph.DFS(origin, -1, ws2);
+                assertEquals(t1.getNReached(), t2.getNReached());
+
+                for (int i = 1; i < t2.getNReached(); i++) {
+                    int w = t2.getNodeAt(i);
+                    assertTrue(graph.getNeighbors(w).contains(t2.getParent(w)));
+                    assertTrue(t2.getDiscoveryTime(t2.getParent(w)) < t2.getDiscoveryTime(w));
+                }
+
+                assertEquals(expected.calcDistance(origin, n), graph.calcDistance(origin, n));
+            }
+
+            int[] sources = {n, 1, (n + 1) / 2};
+            DistanceProfile p1 = expected.multiSourceBFS(sources);
+            DistanceProfile p2 = graph.multiSourceBFS(sources);
+
+            for (int i = 0; i < sources.length; i++) {
+                assertEquals(sources[i], p2.getSource(i));
+                assertEquals(p1.getEccentricity(i), p2.getEccentricity(i));
+            }
+        }
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> disconnected15.relabel(Graph.ORDER_RCM));
+        assertThrows(IllegalArgumentException.class, () -> rcm.relabel(7));
+    }
+
+    @Test
+    @DisplayName("Geradores de grafos sintéticos")
+    void generators(@TempDir Path tmp) throws InstantiationException, IOException {
+        Graph path = new Graph(GraphGenerator.path(50), Graph.CSR);
+        assertEquals(49, path.getNEdges());
+        assertEquals(49, path.calcDiameter());
+
+        Graph star = new Graph(GraphGenerator.star(40), Graph.LIST);
+        assertEquals(39, star.getDegree(1));
+        assertEquals(2, star.calcDiameter());
+
+        Graph grid = new Graph(GraphGenerator.grid(12, 30), Graph.MATRIX);
+        assertEquals(12 * 29 + 11 * 30, grid.getNEdges());
+        assertEquals(11 + 29, grid.calcDiameter());
+        assertEquals("grid_12x30", grid.getInputFile());
+
+        Graph rmat = new Graph(GraphGenerator.rmat(10, 8000, 3), Graph.COMPRESSED);
+        assertEquals(1024, rmat.getNNodes());
+        assertEquals(8000, rmat.getNEdges());
+
+        Graph ba = new Graph(GraphGenerator.barabasiAlbert(2000, 3, 5), Graph.CSR);
+        assertEquals(1 + 2 + 3 * 1997, ba.getNEdges());  // nós 2, 3 e 4 a 2000
+        assertEquals(1, ba.findComponents().getNComponents());
+        assertTrue(ba.getDegreeOverview().get("max") > 30);  // cauda pesada
+
+        GraphGenerator er = GraphGenerator.erdosRenyi(3000, 0.002, 11);
+        Graph erGraph = new Graph(er, Graph.CSR);
+        assertEquals(0.002 * 2999, 2.0 * erGraph.getNEdges() / 3000, 0.3);
+
+        // Mesma semente, mesmo grafo: direto, fora da heap, só o resumo e
+        // pelo arquivo de texto
+        String file = tmp.resolve(er.getName() + ".txt").toString();
+        er.write(file);
+
+        Graph[] same = {
+                new Graph(er, Graph.OFFHEAP),
+                new Graph(er, Graph.SUMMARY),
+                new Graph(file, Graph.CSR),
+        };
+
+        for (Graph graph : same) {
+            assertEquals(erGraph.getNEdges(), graph.getNEdges());
+            assertArrayEquals(erGraph.findComponents().getComponentIds(),
+                    graph.findComponents().getComponentIds());
+        }
+
+        for (int v = 1; v <= erGraph.getNNodes(); v++) {
+            assertEquals(erGraph.getNeighbors(v), same[0].getNeighbors(v));
+            assertEquals(erGraph.getNeighbors(v), same[2].getNeighbors(v));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> GraphGenerator.erdosRenyi(10, 1.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> GraphGenerator.rmat(31, 10, 0));
+    }
+
+    @Test
+    @DisplayName("Oráculo de distâncias por marcos")
+    void distanceOracle(@TempDir Path tmp) throws InstantiationException, IOException {
+        // Grafo esparso, com várias componentes
+        GraphGenerator er = GraphGenerator.erdosRenyi(1200, 0.0012, 3);
+        Graph graph = new Graph(er, Graph.CSR);
+        Graph relabeled = new Graph(er, Graph.COMPRESSED);
+        relabeled.relabel(Graph.ORDER_BFS);
+
+        int[] selections = {DistanceOracle.BY_DEGREE, DistanceOracle.RANDOM,
+                DistanceOracle.FARTHEST};
+
+        for (int selection : selections) {
+            DistanceOracle oracle = graph.buildDistanceOracle(8, selection, 2);
+            String file = tmp.resolve(er.getName() + ".lmk").toString();
+            oracle.save(file);
+            DistanceOracle loaded = relabeled.loadDistanceOracle(file);
+
+            assertEquals(8, loaded.getNLandmarks());
+            assertEquals(2.0 * 8 * 1201, oracle.getStats().get("bytes"));
+
+            for (int l = 0; l < 8; l++) {
+                assertEquals(oracle.getLandmark(l), loaded.getLandmark(l));
+                assertEquals(0, oracle.distance(oracle.getLandmark(l), oracle.getLandmark(l)));
+            }
+
+            for (int u = 1; u <= 1200; u += 37) {
+                for (int v = 1; v <= 1200; v += 23) {
+                    int dist = graph.calcDistance(u, v);
+
+                    assertEquals(dist, oracle.distance(u, v));
+                    assertEquals(dist, loaded.distance(u, v));
+
+                    if (dist >= 0) {
+                        assertTrue(oracle.lowerBound(u, v) <= dist);
+                        assertTrue(oracle.upperBound(u, v) >= dist);
+                    } else {
+                        assertTrue(oracle.upperBound(u, v) == -1 ||
+                                oracle.upperBound(u, v) == Integer.MAX_VALUE);
+                    }
+                }
+            }
+        }
+
+        // Com FARTHEST, cada componente recebe um marco antes de alguma
+        // receber o segundo
+        ConnectedComponents components = disconnected15.findComponents();
+        DistanceOracle oracle = disconnected15.buildDistanceOracle(
+                components.getNComponents(), DistanceOracle.FARTHEST, 1);
+        Set<Integer> seen = new HashSet<Integer>();
+
+        for (int l = 0; l < oracle.getNLandmarks(); l++) {
+            assertTrue(seen.add(components.getComponentId(oracle.getLandmark(l))));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> pdfGraph.buildDistanceOracle(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> pdfGraph.buildDistanceOracle(2, 7, 1));
+        assertThrows(IOException.class, () -> pdfGraph.loadDistanceOracle(
+                tmp.resolve(er.getName() + ".lmk").toString()));
+    }
+
+    @Test
+    @DisplayName("Distâncias em lote")
+    void calcDistances() throws InstantiationException {
+        Graph relabeled = new Graph("src/test/input/teste4.txt", Graph.CSR);
+        relabeled.relabel(Graph.ORDER_BFS);
+        Graph[] graphs = {grid150M, grid150C, relabeled, disconnected15, disconnected15C};
+        Random random = new Random(25);
+
+        for (Graph graph : graphs) {
+            int n = graph.getNNodes();
+            int nPairs = 300;
+            int[] sources = new int[nPairs];
+            int[] targets = new int[nPairs];
+
+            // Poucas origens, que aparecem dos dois lados dos pares (e alguns
+            // pares de um nó com ele mesmo)
+            for (int i = 0; i < nPairs; i++) {
+                int hub = 1 + random.nextInt(Math.min(n, 4));
+                int other = i % 50 == 0 ? hub : 1 + random.nextInt(n);
+
+                sources[i] = i % 2 == 0 ? hub : other;
+                targets[i] = i % 2 == 0 ? other : hub;
+            }
+
+            for (int nThreads : new int[]{1, 3}) {
+                int[] distances = graph.calcDistances(sources, targets, nThreads);
+
+                for (int i = 0; i < nPairs; i++) {
+                    assertEquals(graph.calcDistance(sources[i], targets[i]), distances[i],
+                            "Par (" + sources[i] + ", " + targets[i] + ")");
+                }
+            }
+        }
+
+        assertArrayEquals(new int[]{2, 1, 2},
+                pdfGraph.calcDistances(new int[]{1, 5, 4}, new int[]{4, 3, 1}));
+        assertEquals(0, pdfGraph.calcDistances(new int[0], new int[0]).length);
+        assertThrows(IllegalArgumentException.class,
+                () -> pdfGraph.calcDistances(new int[]{1, 2}, new int[]{3}));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> pdfGraph.calcDistances(new int[]{1}, new int[]{6}));
+    }
+
+    @Test
+    @DisplayName("Grafo com pesos e Dijkstra")
+    void weighted(@TempDir Path tmp) throws InstantiationException, IOException {
+        Graph small = new Graph("src/test/input/pesos.txt", Graph.CSR);
+        ShortestPaths tree = small.dijkstra(1);
+
+        assertTrue(small.isWeighted());
+        assertEquals(0.1, tree.getDistance(2), 1e-12);
+        assertEquals(0.3, tree.getDistance(5), 1e-12);
+        assertEquals(2.6, tree.getDistance(4), 1e-12);
+        assertEquals(2.6, tree.getDistance(3), 1e-12);
+        assertEquals(2.6, tree.getMaxDistance(), 1e-12);
+        assertEquals(Arrays.asList(1, 2, 5, 4), tree.getPath(4));
+        assertEquals(2.6, small.calcWeightedDistance(1, 3), 1e-12);
+        assertEquals(2.6, small.calcWeightedDiameter(), 1e-12);  // 1 <-> 3
+        small.dijkstra(1, tmp.resolve("pesos_dijkstra.txt").toString());
+
+        // Arquivos aleatórios, comparados com um Dijkstra ingênuo: pesos
+        // inteiros (radix heap) e reais (heap 4-ário)
+        int n = 300;
+        Random random = new Random(23);
+
+        for (double offset : new double[]{0, 0.5}) {
+            String file = tmp.resolve("pesos_" + offset + ".txt").toString();
+            double[][] w = new double[n + 1][n + 1];
+
+            for (double[] row : w) {
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+            }
+
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+                bw.write(n + "\n");
+
+                for (int e = 0; e < 4 * n; e++) {
+                    int u = 1 + random.nextInt(n);
+                    int v = 1 + random.nextInt(n);
+                    double weight = random.nextInt(50) + offset;
+
+                    if (u != v) {
+                        bw.write(u + " " + v + " " + weight + "\n");
+                        w[u][v] = w[v][u] = Math.min(w[u][v], weight);
+                    }
+                }
+            }
+
+            Graph graph = new Graph(file, Graph.CSR);
+            Graph parallel = new Graph(file, Graph.CSR, 4);
+            Graph relabeled = new Graph(file, Graph.CSR);
+            relabeled.relabel(Graph.ORDER_DEGREE);
+            ShortestPaths reused = new ShortestPaths(n);
+
+            for (int origin = 1; origin <= n; origin += 29) {
+                double[] expected = naiveDijkstra(w, origin);
+                ShortestPaths result = graph.dijkstra(origin);
+                relabeled.dijkstra(origin, -1, reused);
+
+                for (int v = 1; v <= n; v++) {
+                    double dist = expected[v] == Double.POSITIVE_INFINITY ? -1 : expected[v];
+
+                    assertEquals(dist, result.getDistance(v), 1e-9, "Distancia de " + v);
+                    assertEquals(dist, reused.getDistance(v), 1e-9, "Distancia de " + v);
+                    assertEquals(dist, parallel.calcWeightedDistance(origin, v), 1e-9);
+                }
+
+                // O caminho devolvido tem o peso da distância
+                int goal = result.getNodeAt(result.getNReached() - 1);
+                ArrayList<Integer> path = graph.dijkstra(origin, goal).getPath(goal);
+                double length = 0;
+
+                for (int i = 1; i < path.size(); i++) {
+                    length += w[path.get(i - 1)][path.get(i)];
+                }
+
+                assertEquals(expected[goal], length, 1e-9);
+            }
+        }
+
+        // Pesos negativos, arquivos mistos e representações sem pesos
+        String negative = tmp.resolve("pesos_negativos.txt").toString();
+        String mixed = tmp.resolve("pesos_mistos.txt").toString();
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(negative))) {
+            bw.write("3\n1 2 1.5\n2 3 -1\n");
+        }
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(mixed))) {
+            bw.write("3\n1 2 1.5\n2 3\n");
+        }
+
+        Graph negativeGraph = new Graph(negative, Graph.CSR);
+
+        assertThrows(IllegalStateException.class, () -> negativeGraph.dijkstra(1));
+        assertThrows(IllegalStateException.class, () -> negativeGraph.calcWeightedDiameter());
+        assertThrows(InstantiationException.class, () -> new Graph(mixed, Graph.CSR));
+        assertFalse(new Graph("src/test/input/pesos.txt", Graph.MATRIX).isWeighted());
+        assertFalse(pdfGraph.isWeighted());
+        assertThrows(UnsupportedOperationException.class, () -> pdfGraph.calcWeightedDistance(1, 2));
+        assertThrows(UnsupportedOperationException.class,
+                () -> small.saveSnapshot(tmp.resolve("pesos.bin").toString()));
+    }
+
+    @Test
+    @DisplayName("Floresta geradora mínima (Kruskal e Borůvka)")
+    void minimumSpanningForest(@TempDir Path tmp) throws InstantiationException, IOException {
+        Graph small = new Graph("src/test/input/pesos.txt", Graph.CSR);
+        SpanningForest forest = small.minimumSpanningForest(2,
+                tmp.resolve("pesos_agm.txt").toString());
+
+        assertEquals(4, forest.getNEdges());
+        assertEquals(1, forest.getNTrees());
+        assertEquals(2.6, forest.getTotalWeight(), 1e-12);
+        assertEquals(2.6, small.minimumSpanningForest().getTotalWeight(), 1e-12);
+
+        // Grafo esparso aleatório, desconexo, com muitos empates e pesos
+        // negativos, comparado com um Prim ingênuo por componente
+        int n = 400;
+        Random random = new Random(24);
+        String file = tmp.resolve("pesos_agm_aleatorio.txt").toString();
+        double[][] w = new double[n + 1][n + 1];
+
+        for (double[] row : w) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write(n + "\n");
+
+            for (int e = 0; e < n; e++) {
+                int u = 1 + random.nextInt(n);
+                int v = 1 + random.nextInt(n);
+                double weight = random.nextInt(10) - 3;
+
+                if (u != v) {
+                    bw.write(u + " " + v + " " + weight + "\n");
+                    w[u][v] = w[v][u] = Math.min(w[u][v], weight);
+                }
+            }
+        }
+
+        Graph graph = new Graph(file, Graph.CSR);
+        Graph relabeled = new Graph(file, Graph.CSR);
+        relabeled.relabel(Graph.ORDER_RCM);
+
+        SpanningForest kruskal = graph.minimumSpanningForest();
+        SpanningForest boruvka = graph.minimumSpanningForest(4);
+        double expected = naivePrim(w);
+
+        assertEquals(expected, kruskal.getTotalWeight(), 1e-9);
+        assertEquals(expected, boruvka.getTotalWeight(), 1e-9);
+        assertEquals(expected, relabeled.minimumSpanningForest(3).getTotalWeight(), 1e-9);
+        assertEquals(graph.findComponents().getNComponents(), kruskal.getNTrees());
+        assertEquals(kruskal.getNEdges(), boruvka.getNEdges());
+
+        // Com a mesma ordem total, os dois algoritmos escolhem as mesmas
+        // arestas, e elas formam uma floresta
+        int[] kruskalEdges = kruskal.getEdgeIndices();
+        int[] boruvkaEdges = boruvka.getEdgeIndices();
+        Arrays.sort(kruskalEdges);
+        Arrays.sort(boruvkaEdges);
+        assertArrayEquals(kruskalEdges, boruvkaEdges);
+
+        for (int i = 0; i < boruvka.getNEdges(); i++) {
+            assertEquals(w[boruvka.getSource(i)][boruvka.getTarget(i)], boruvka.getWeight(i));
+        }
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> pdfGraph.minimumSpanningForest());
+    }
+
+    /**
+     * Prim O(n^2) sobre a matriz de pesos, recomeçando em cada componente.
+     * @return Peso total da floresta geradora mínima.
+     */
+    private static double naivePrim(double[][] w) {
+        int n = w.length - 1;
+        double[] cost = new double[n + 1];
+        boolean[] done = new boolean[n + 1];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        double total = 0;
+
+        for (int it = 0; it < n; it++) {
+            int v = -1;
+
+            for (int u = 1; u <= n; u++) {
+                if (!done[u] && (v == -1 || cost[u] < cost[v])) {
+                    v = u;
+                }
+            }
+
+            if (cost[v] != Double.POSITIVE_INFINITY) {
+                total += cost[v];
+            }
+
+            done[v] = true;
+
+            for (int u = 1; u <= n; u++) {
+                cost[u] = Math.min(cost[u], w[v][u]);
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Dijkstra O(n^2) sobre a matriz de pesos, como referência.
+     */
+    private static double[] naiveDijkstra(double[][] w, int origin) {
+        int n = w.length - 1;
+        double[] dist = new double[n + 1];
+        boolean[] done = new boolean[n + 1];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[origin] = 0;
+
+        for (int it = 0; it < n; it++) {
+            int v = -1;
+
+            for (int u = 1; u <= n; u++) {
+                if (!done[u] && (v == -1 || dist[u] < dist[v])) {
+                    v = u;
+                }
+            }
+
+            if (dist[v] == Double.POSITIVE_INFINITY) {
+                break;
+            }
+
+            done[v] = true;
+
+            for (int u = 1; u <= n; u++) {
+                dist[u] = Math.min(dist[u], dist[v] + w[v][u]);
+            }
+        }
+
+        return dist;
+    }
+
     @Test
     @DisplayName("Nome do arquivo de origem (sem caminho)")
     void getInputFile() {
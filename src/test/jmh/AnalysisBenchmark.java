@@ -0,0 +1,74 @@
+package jmh;
+
+import graphs.ConnectedComponents;
+import graphs.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Medidas sobre o grafo inteiro: componentes conexas, resumo dos graus e
+ * diâmetro (exato, com calcExactDiameters(), e aproximado).
+ *
+ * O grafo é recarregado a cada iteração, e não só no início: a
+ * distribuição dos graus é guardada na primeira consulta, e sem isso
+ * getDegreeOverview() mediria só a consulta ao que já foi calculado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AnalysisBenchmark {
+    @Param({"random-20000", "ba-20000", "grid-20000"})
+    public String graph;
+
+    @Param({"MATRIX", "LIST", "CSR", "OFFHEAP", "COMPRESSED"})
+    public String repr;
+
+    private Graph loaded;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        this.loaded = BenchmarkGraphs.load(graph, repr);
+    }
+
+    @Benchmark
+    public ArrayList<ArrayList<Integer>> findConnectedComponents() {
+        return loaded.findConnectedComponents();
+    }
+
+    @Benchmark
+    public ConnectedComponents findComponents() {
+        return loaded.findComponents();
+    }
+
+    @Benchmark
+    public HashMap<String, Double> getDegreeOverview() {
+        return loaded.getDegreeOverview();
+    }
+
+    @Benchmark
+    public int calcDiameter() {
+        return loaded.calcDiameter();
+    }
+
+    @Benchmark
+    public int calcDiameterApprox() {
+        return loaded.calcDiameter(0);  // log2(n) BFS a partir de nós sorteados
+    }
+}
@@ -0,0 +1,129 @@
+package jmh;
+
+import graphs.Graph;
+import graphs.GraphGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Grafos usados nos benchmarks, identificados por um nome no parâmetro
+ * "graph" dos benchmarks:
+ * - "grafo_1" a "grafo_6": estudos de caso, lidos de case-studies/ (como
+ *   em Main);
+ * - "random-N", "ba-N", "grid-N": grafos sintéticos com cerca de N nós
+ *   (Erdős-Rényi com 4N arestas em média, Barabási-Albert com 3 arestas
+ *   por nó novo e grade com lado raiz de N);
+ * - "rmat-S": R-MAT de escala S (2^S nós, 8 * 2^S arestas).
+ * Os sintéticos vêm de GraphGenerator, com semente fixa, e são escritos num
+ * diretório temporário na primeira vez em que são pedidos.
+ */
+final class BenchmarkGraphs {
+    private static final String CASE_STUDIES_DIR = "case-studies/";
+
+    private static final long SEED = 20211;
+
+    private static final File SYNTHETIC_DIR =
+            new File(System.getProperty("java.io.tmpdir"), "grafos-jmh");
+
+    private BenchmarkGraphs() {
+    }
+
+    /**
+     * @param name Nome do grafo (ver a descrição da classe).
+     * @return Caminho do arquivo de texto do grafo.
+     */
+    static String file(String name) throws IOException {
+        if (name.startsWith("grafo_")) {
+            File file = new File(CASE_STUDIES_DIR + name + ".txt");
+
+            if (!file.exists()) {
+                throw new IOException("Estudo de caso ausente: " + file);
+            }
+
+            return file.getPath();
+        }
+
+        int dash = name.lastIndexOf('-');
+
+        if (dash < 0) {
+            throw new IllegalArgumentException("Grafo desconhecido: " + name);
+        }
+
+        String kind = name.substring(0, dash);
+        int nNodes = Integer.parseInt(name.substring(dash + 1));
+        File file = new File(SYNTHETIC_DIR, name + ".txt");
+
+        if (!file.exists()) {
+            SYNTHETIC_DIR.mkdirs();
+            generator(kind, nNodes).write(file.getPath());
+        }
+
+        return file.getPath();
+    }
+
+    /**
+     * Carrega um grafo de benchmark.
+     * @param name Nome do grafo.
+     * @param repr Nome da representação (MATRIX, LIST, CSR, SUMMARY,
+     *             OFFHEAP ou COMPRESSED).
+     */
+    static Graph load(String name, String repr) throws IOException,
+            InstantiationException {
+        return new Graph(file(name), representation(repr));
+    }
+
+    /**
+     * @param repr Nome de uma das representações de Graph.
+     * @return Constante correspondente.
+     */
+    static int representation(String repr) {
+        switch (repr) {
+            case "MATRIX": return Graph.MATRIX;
+            case "LIST": return Graph.LIST;
+            case "CSR": return Graph.CSR;
+            case "SUMMARY": return Graph.SUMMARY;
+            case "OFFHEAP": return Graph.OFFHEAP;
+            case "COMPRESSED": return Graph.COMPRESSED;
+            default: throw new IllegalArgumentException("Representacao " +
+                    "desconhecida: " + repr);
+        }
+    }
+
+    /**
+     * Nós de origem (ou pares de nós) sorteados com semente fixa, para que
+     * todas as representações façam as mesmas buscas.
+     * @param nNodes Número de nós do grafo.
+     * @param count Quantidade de nós.
+     */
+    static int[] sampleNodes(int nNodes, int count) {
+        Random random = new Random(SEED);
+        int[] nodes = new int[count];
+
+        for (int i=0; i < count; i++) {
+            nodes[i] = 1 + random.nextInt(nNodes);
+        }
+
+        return nodes;
+    }
+
+    private static GraphGenerator generator(String kind, int nNodes) {
+        switch (kind) {
+            case "random":
+                // 4N arestas em média
+                return GraphGenerator.erdosRenyi(nNodes, 8.0 / Math.max(1, nNodes - 1), SEED);
+            case "ba":
+                return GraphGenerator.barabasiAlbert(nNodes, 3, SEED);
+            case "grid":
+                int side = (int) Math.max(1, Math.round(Math.sqrt(nNodes)));
+                return GraphGenerator.grid(side, side);
+            case "rmat":
+                // N é a escala: 2^N nós e 8 * 2^N arestas
+                return GraphGenerator.rmat(nNodes, 8L << nNodes, SEED);
+            default:
+                throw new IllegalArgumentException("Grafo desconhecido: " +
+                        kind + "-" + nNodes);
+        }
+    }
+}
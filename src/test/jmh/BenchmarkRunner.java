@@ -0,0 +1,56 @@
+package jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Executa os benchmarks (todos, ou os selecionados pelos argumentos, que
+ * seguem a linha de comando do JMH: por exemplo,
+ * "TraversalBenchmark.bfs -p graph=grafo_3 -p repr=CSR,COMPRESSED") com o
+ * profiler de alocação (-prof gc) e salva os resultados em
+ * reports/benchmarks/, em JSON e em CSV, com a data no nome, para comparar
+ * versões.
+ *
+ * Combinações que não podem ser carregadas (como a matriz de um estudo de
+ * caso grande) falham no setup e são só relatadas; as outras continuam.
+ */
+public class BenchmarkRunner {
+    private static final String OUT_DIR = "reports/benchmarks/";
+
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cmdOptions)
+                .addProfiler(GCProfiler.class);
+
+        if (cmdOptions.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackage().getName() + "\\.");
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        new File(OUT_DIR).mkdirs();
+        String name = OUT_DIR + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, name + ".json")
+                .writeOut(results);
+        ResultFormatFactory.getInstance(ResultFormatType.CSV, name + ".csv")
+                .writeOut(results);
+
+        System.out.println("Resultados salvos em " + name + ".json e .csv");
+    }
+}
@@ -0,0 +1,70 @@
+package jmh;
+
+import graphs.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga de um grafo (leitura do arquivo e montagem da representação), a
+ * partir do arquivo de texto ou de um snapshot binário
+ * (Graph.saveSnapshot()).
+ *
+ * Cada medida é uma carga inteira, então usa o modo de tempo por execução
+ * isolada, com poucas repetições.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"random-20000", "ba-20000", "grid-20000"})
+    public String graph;
+
+    @Param({"MATRIX", "LIST", "CSR", "SUMMARY", "OFFHEAP", "COMPRESSED"})
+    public String repr;
+
+    /**
+     * "text" (arquivo de entrada) ou "snapshot" (salvo no setup).
+     */
+    @Param({"text", "snapshot"})
+    public String source;
+
+    private String path;
+    private int reprChoice;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.path = BenchmarkGraphs.file(graph);
+        this.reprChoice = BenchmarkGraphs.representation(repr);
+
+        if (source.equals("snapshot")) {
+            String snapshot = path.substring(0, path.lastIndexOf('.')) + ".bin";
+
+            if (!new File(snapshot).exists()) {
+                new Graph(path, Graph.CSR).saveSnapshot(snapshot);
+            }
+
+            this.path = snapshot;
+        }
+    }
+
+    @Benchmark
+    public Graph load() throws InstantiationException {
+        return new Graph(path, reprChoice);
+    }
+}
@@ -0,0 +1,105 @@
+package jmh;
+
+import graphs.Graph;
+import graphs.TraversalResult;
+import graphs.TraversalWorkspace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buscas num grafo já carregado: BFS e DFS a partir de origens sorteadas
+ * (com área de trabalho reaproveitada, como em Main, e na versão com
+ * HashMap, para comparar a alocação com -prof gc) e distância entre pares
+ * de nós.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TraversalBenchmark {
+    private static final int N_SAMPLES = 1024;  // potência de 2
+
+    @Param({"random-20000", "ba-20000", "grid-20000"})
+    public String graph;
+
+    @Param({"MATRIX", "LIST", "CSR", "OFFHEAP", "COMPRESSED"})
+    public String repr;
+
+    private Graph loaded;
+    private int[] origins;
+    private int[] goals;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.loaded = BenchmarkGraphs.load(graph, repr);
+
+        int[] sample = BenchmarkGraphs.sampleNodes(loaded.getNNodes(), 2 * N_SAMPLES);
+        this.origins = new int[N_SAMPLES];
+        this.goals = new int[N_SAMPLES];
+
+        for (int i=0; i < N_SAMPLES; i++) {
+            origins[i] = sample[2 * i];
+            goals[i] = sample[2 * i + 1];
+        }
+    }
+
+    /**
+     * Área de trabalho e posição na amostra de cada thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        TraversalWorkspace workspace;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(TraversalBenchmark benchmark) {
+            this.workspace = new TraversalWorkspace(benchmark.loaded.getNNodes());
+        }
+
+        int advance() {
+            return next++ & (N_SAMPLES - 1);
+        }
+    }
+
+    @Benchmark
+    public TraversalResult bfs(Cursor cursor) {
+        return loaded.BFS(origins[cursor.advance()], -1, cursor.workspace);
+    }
+
+    @Benchmark
+    public TraversalResult dfs(Cursor cursor) {
+        return loaded.DFS(origins[cursor.advance()], -1, cursor.workspace);
+    }
+
+    @Benchmark
+    public HashMap<Integer, Integer[]> bfsMap(Cursor cursor) {
+        return loaded.BFS(origins[cursor.advance()]);
+    }
+
+    @Benchmark
+    public HashMap<Integer, Integer[]> dfsMap(Cursor cursor) {
+        return loaded.DFS(origins[cursor.advance()]);
+    }
+
+    @Benchmark
+    public int calcDistance(Cursor cursor) {
+        int i = cursor.advance();
+
+        return loaded.calcDistance(origins[i], goals[i]);
+    }
+}